@@ -0,0 +1,34 @@
+package com.example.remotejoystick;
+
+import android.view.Choreographer;
+
+// FrameClock of the display: ticks on the ui thread once per display frame (vsync), by Choreographer.
+// should be started / stopped on the ui thread
+public class ChoreographerFrameClock implements FrameClock, Choreographer.FrameCallback {
+    private Listener listener = null;
+    private boolean running = false;
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        if (!running) {
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running)
+            return;
+        listener.onFrame(frameTimeNanos);
+        // (the same callback object every frame, nothing is allocated)
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.remotejoystick;
+
+// keeps the FlightSession of MainActivity across configuration changes (rotation, dark mode...):
+// android keeps this holder while the activity is recreated, and clears it (closing the session, its threads
+// and socket) only when the activity is finished for good.
+// (an androidx.lifecycle.ViewModel, not to be confused with the ViewModel of this app, that the session holds)
+public class FlightSessionHolder extends androidx.lifecycle.ViewModel {
+    private FlightSession session = null;
+
+    // null until the first activity set it (a new holder)
+    public FlightSession getSession() { return session; }
+
+    public void setSession(FlightSession session) { this.session = session; }
+
+    @Override
+    protected void onCleared() {
+        if (session != null)
+            session.close();
+        session = null;
+    }
+}
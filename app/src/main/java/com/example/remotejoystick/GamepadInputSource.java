@@ -0,0 +1,81 @@
+package com.example.remotejoystick;
+
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+// a bluetooth / usb gamepad or joystick as an input source of InputMixer: the activity hands it its generic motion
+// events (Activity.dispatchGenericMotionEvent()). the left stick is aileron and elevator, the right stick (or twist)
+// is rudder, and the throttle lever or right trigger is throttle. an axis the device doesn't have isn't published,
+// so the other sources keep it (e.g. the throttle seek bar), and values within the flat range of an axis
+// (the slack of a centered stick, as the device reports it) are 0.
+// the samples android batched into an event are published oldest first, nothing is allocated per event.
+public class GamepadInputSource implements InputSource {
+    private static final int[] RUDDER_AXES = {MotionEvent.AXIS_RZ, MotionEvent.AXIS_Z, MotionEvent.AXIS_RUDDER};
+    private static final int[] THROTTLE_AXES = {MotionEvent.AXIS_THROTTLE, MotionEvent.AXIS_GAS,
+            MotionEvent.AXIS_RTRIGGER};
+
+    private volatile InputMixer.Channel channel = null;
+
+    @Override
+    public void start(InputMixer.Channel channel) { this.channel = channel; }
+
+    @Override
+    public void stop() {
+        InputMixer.Channel channel_for_now = channel;
+        channel = null;
+        if (channel_for_now != null)
+            channel_for_now.release();
+    }
+
+    // true if event was of a gamepad / joystick (and so taken by this source)
+    public boolean onGenericMotionEvent(MotionEvent event) {
+        InputMixer.Channel channel_for_now = channel;
+        if (channel_for_now == null || event.getActionMasked() != MotionEvent.ACTION_MOVE
+                || (event.getSource() & InputDevice.SOURCE_JOYSTICK) != InputDevice.SOURCE_JOYSTICK)
+            return false;
+        InputDevice device = event.getDevice();
+        if (device == null)
+            return false;
+        long eventNanos = System.nanoTime();
+        long eventTime = event.getEventTime();
+        int history = event.getHistorySize();
+        for (int i = 0; i < history; i++)
+            publish(channel_for_now, event, device, i,
+                    eventNanos - (eventTime - event.getHistoricalEventTime(i)) * 1000000L);
+        publish(channel_for_now, event, device, -1, eventNanos);
+        return true;
+    }
+
+    // the sample of position in the history of event (-1 for the current one)
+    private static void publish(InputMixer.Channel channel, MotionEvent event, InputDevice device, int position,
+                                long nanos) {
+        float aileron = axis(event, device, MotionEvent.AXIS_X, position);
+        // up on a stick is negative, and forward stick is positive elevator
+        float elevator = -axis(event, device, MotionEvent.AXIS_Y, position);
+        float rudder = axis(event, device, firstAxis(event, device, RUDDER_AXES), position);
+        int throttleAxis = firstAxis(event, device, THROTTLE_AXES);
+        float throttle = axis(event, device, throttleAxis, position);
+        // a lever may be -1 (back) to 1 (forward), a trigger is 0 to 1
+        if (throttleAxis >= 0 && device.getMotionRange(throttleAxis, event.getSource()).getMin() < 0)
+            throttle = (throttle + 1) / 2;
+        channel.publish(aileron, elevator, rudder, throttle, nanos);
+    }
+
+    // the first of axes that device has, -1 if none
+    private static int firstAxis(MotionEvent event, InputDevice device, int[] axes) {
+        for (int axis : axes) {
+            if (device.getMotionRange(axis, event.getSource()) != null)
+                return axis;
+        }
+        return -1;
+    }
+
+    // value of axis, 0 within its flat range, NaN if device doesn't have it (or axis is -1)
+    private static float axis(MotionEvent event, InputDevice device, int axis, int position) {
+        InputDevice.MotionRange range = axis < 0 ? null : device.getMotionRange(axis, event.getSource());
+        if (range == null)
+            return Float.NaN;
+        float value = position < 0 ? event.getAxisValue(axis) : event.getHistoricalAxisValue(axis, position);
+        return Math.abs(value) > range.getFlat() ? value : 0;
+    }
+}
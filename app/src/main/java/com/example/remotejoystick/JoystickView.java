@@ -6,6 +6,7 @@ import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.view.MotionEvent;
+import android.view.View;
 import android.widget.*;
 
 // class to be component of view, to be included within others views / Layouts in xml
@@ -20,16 +21,19 @@ import android.widget.*;
 public class JoystickView extends FrameLayout {
     
     // class to gather px,py,pa,pb
+    // and eventNanos = System.nanoTime() when the event that changed them got to this view (for latency tracking)
     public static class JoystickEventArgs {
         public final float px;
         public final float py;
         public final float pa;
         public final float pb;
-        public JoystickEventArgs(float px, float py, float pa, float pb) {
+        public final long eventNanos;
+        public JoystickEventArgs(float px, float py, float pa, float pb, long eventNanos) {
             this.px = px;
             this.py = py;
             this.pa = pa;
             this.pb = pb;
+            this.eventNanos = eventNanos;
         }
     }
     
@@ -41,34 +45,59 @@ public class JoystickView extends FrameLayout {
         void handle(Object sender, JoystickEventArgs args) ;
     }
 
-    private float px=0.5f;
-    private float py=0.5f;
-    private float pa=0.5f;
-    private float pb=0;
-    
-    // on change of px/py/pa/pb notify by updateObserver() below
+    // on change of px/py/pa/pb notify by updateObserver() below (allocates JoystickEventArgs per change)
     public JoystickEventHandler onChange = null;
+    // on change of px/py/pa/pb notify with primitives only (nothing is allocated per touch event),
+    // prefer it over onChange on the hot path
+    public JoystickValuesHandler onValues = null;
+
+    // interface of handler of a finger put on (down == true) or lifted from the joystick
+    public static interface TouchHandler {
+        void handle(boolean down);
+    }
+
+    // on a finger put on / lifted from the joystick (not the seek bars)
+    public TouchHandler onTouch = null;
 
-    private void updateObserver(){
+    // the touch path: px/py/pa/pb from the touch positions, and the historical samples of a move event
+    private final JoystickSampler sampler = new JoystickSampler(this::updateObserver);
+
+    // views of joystick_view.xml, found once by init()
+    private View joystickImg;
+    private View greenFrame;
+    private View joystickFrame;
+    private SeekBar seekBarA;
+    private SeekBar seekBarB;
+
+    private void updateObserver(float px, float py, float pa, float pb, long eventNanos){
+        if (onValues != null)
+            onValues.handle(px, py, pa, pb, eventNanos);
         if (onChange != null)
-            onChange.handle(this, new JoystickEventArgs(this.px, this.py, this.pa, this.pb));
+            onChange.handle(this, new JoystickEventArgs(px, py, pa, pb, eventNanos));
     }
 
+    // what to do with the touch samples that android batches into one move event, IGNORE by default
+    public void setHistoricalSamples(HistoricalSamples mode) { sampler.setHistoricalSamples(mode); }
+
     // init method to fill within this view (which extends FrameLayout) all the components from joystick_view.xml
     // should be called only from constructor.
     // param context should be the context that this view (JoystickView extends FrameLayout) is within.
     private void init(Context context) {
 
         inflate(context ,R.layout.joystick_view,this);
+        joystickImg = findViewById(R.id.joystick_img);
+        greenFrame = findViewById(R.id.green_frame);
+        joystickFrame = findViewById(R.id.joystick_frame);
+        seekBarA = (SeekBar)findViewById(R.id.seekBar_value_a);
+        seekBarB = (SeekBar)findViewById(R.id.seekBar_value_b);
 
-        // set listeners to seekbars, to update this.pa/this.pb on their change, and then updateObserver()
+        // set listeners to seekbars, to update pa/pb on their change, and then updateObserver()
         final JoystickView self = this;
 
-        ((SeekBar)findViewById(R.id.seekBar_value_a)).setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+        seekBarA.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                self.pa = progress/100f;
-                self.updateObserver();
+                self.sampler.setBars(progress/100f, self.sampler.getPb(), System.nanoTime());
             }
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {}
@@ -76,11 +105,10 @@ public class JoystickView extends FrameLayout {
             public void onStopTrackingTouch(SeekBar seekBar) {}
         });
 
-        ((SeekBar)findViewById(R.id.seekBar_value_b)).setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+        seekBarB.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
-                self.pb = progress/100f;
-                self.updateObserver();
+                self.sampler.setBars(self.sampler.getPa(), progress/100f, System.nanoTime());
             }
             @Override
             public void onStartTrackingTouch(SeekBar seekBar) {}
@@ -111,61 +139,70 @@ public class JoystickView extends FrameLayout {
 
     // get the specific-mobile size of green_frame (joystick_movement area)
     // and init this.joystick_radius, this.joystick_movement_border, joystick_border_padding_from_top / left
-    // should be called only after rendering view has finished
+    // should be called only after rendering view has finished (it allocates only on its first call)
     private void ensureRadiusAndMovementBorder() {
         if (this.joystick_radius > 0)
             return;
         Rect r = new Rect();
-        findViewById(R.id.green_frame).getDrawingRect(r);
+        greenFrame.getDrawingRect(r);
         joystick_movement_border = r.right;
         joystick_radius =  r.right / 5.5f;
+        sampler.setGeometry(joystick_movement_border, joystick_radius);
         // The green_frame is 200*200dpi and in the center(both left-right and top-bottom) of 300*300dpi joystick_frame
         // (which left-top of this JoystickView)
         // meaning, green_frame is 50dpi from top/left, following lines get dpi=density
         DisplayMetrics m = new DisplayMetrics();
-        (findViewById(R.id.joystick_frame)).getDisplay().getRealMetrics(m);
+        joystickFrame.getDisplay().getRealMetrics(m);
         joystick_border_padding_from_top = 50 * m.density;
         joystick_border_padding_from_left = 50 * m.density;
     }
 
-    // handle touch on screen = trying to moving the joystick
+    // handle touch on screen = trying to moving the joystick.
+    // nothing is allocated here: the views are cached, the knob is moved by translation (no relayout),
+    // and the values go through the primitive onValues
     @Override
     public boolean onTouchEvent(MotionEvent event){
         if (event == null ) {return true;}
+        long touchNanos = System.nanoTime();
         ensureRadiusAndMovementBorder();
-        // get x,y within the joystick_movement_square[== the green frame layout which R.id.joystick_img is within it]
-        float x = event.getX() - joystick_border_padding_from_left;
-        float y = event.getY() - joystick_border_padding_from_top;
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            sampler.release();
+            if (onTouch != null)
+                onTouch.handle(true);
+        }
 
-        // all joystick circle must stay within its movement square-area
-        if (x < joystick_radius || y < joystick_radius ||
-                     x > joystick_movement_border - joystick_radius || y > joystick_movement_border - joystick_radius) {
-            return true;
+        sampler.begin();
+        if (sampler.wantsHistoricalSamples()) {
+            // samples android batched since the last event, oldest first, with their own time
+            long eventTime = event.getEventTime();
+            int history = event.getHistorySize();
+            for (int i = 0; i < history; i++) {
+                long sampleNanos = touchNanos - (eventTime - event.getHistoricalEventTime(i)) * 1000000L;
+                sampler.sample(event.getHistoricalX(i) - joystick_border_padding_from_left,
+                        event.getHistoricalY(i) - joystick_border_padding_from_top, sampleNanos);
+            }
         }
-        // set new joystick position, where (x,y) is the center, and joystick_img is square of 2r*2r
-        (findViewById(R.id.joystick_img)).layout((int) (x - joystick_radius), (int) (y - joystick_radius),
-                                                             (int) (x + joystick_radius), (int) (y + joystick_radius));
-
-        // consider the reachable area that the joystick can be within :
-        // x:[radius, joystick_movement_border - joystick_radius]
-        // if we shift "left" we obtain x:[0, joystick_movement_border - 2*joystick_radius]
-        // and px is the progress from 0 to (joystick_movement_border - 2*joystick_radius)
-        // same in y axis
-        this.px = (x-joystick_radius)/(joystick_movement_border - 2*joystick_radius);
-        this.py = (y-joystick_radius)/(joystick_movement_border - 2*joystick_radius);
-
-         // the user see up direction, while in programming is the lower Y position value
-        this.py = 1 - this.py;
-
-        // notify about the changes
-        this.updateObserver();
+        // get x,y within the joystick_movement_square[== the green frame layout which R.id.joystick_img is within it]
+        // (positions the joystick circle can't reach, since it must stay within its square, are ignored)
+        sampler.sample(event.getX() - joystick_border_padding_from_left,
+                event.getY() - joystick_border_padding_from_top, touchNanos);
+
+        // notify about the changes, and move the knob so (knobX, knobY) is its center
+        if (sampler.end()) {
+            joystickImg.setTranslationX(sampler.getKnobX() - joystick_radius - joystickImg.getLeft());
+            joystickImg.setTranslationY(sampler.getKnobY() - joystick_radius - joystickImg.getTop());
+        }
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) && onTouch != null)
+            onTouch.handle(false);
         return  true;
     }
 
     // reset VALUES of px, py, pa, pb AND their POSITIONS in the gui.
     public void resetValues() {
         ensureRadiusAndMovementBorder();
-        // will automatically update and invoke (3 times) the updateObserver() - which will raise this.onChange.handel()
+        // a simulated touch DOWN at the center and then UP, both through the sampler (so onChange is raised
+        // with the centered values, and onTouch sees the finger lifted), and then the seek bars are set
 
         // simulate moving the joystick
 
@@ -181,9 +218,13 @@ public class JoystickView extends FrameLayout {
         MotionEvent event = MotionEvent.obtain(temp, temp,
                 MotionEvent.ACTION_DOWN, padded_x, padded_y, 0);
         this.dispatchTouchEvent(event);
+        // and lifting the finger (so onTouch doesn't see the simulated finger as still on the joystick)
+        event.setAction(MotionEvent.ACTION_UP);
+        this.dispatchTouchEvent(event);
+        event.recycle();
 
         // simulate moving the seek bars
-        ((SeekBar)(findViewById(R.id.seekBar_value_a))).setProgress(50);
-        ((SeekBar)(findViewById(R.id.seekBar_value_b))).setProgress(0);
+        seekBarA.setProgress(50);
+        seekBarB.setProgress(0);
     }
 }
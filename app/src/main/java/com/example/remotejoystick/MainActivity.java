@@ -1,15 +1,31 @@
 package com.example.remotejoystick;
 
+import android.content.SharedPreferences;
 import android.os.Handler;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.util.Log;
+import android.hardware.SensorManager;
+import android.view.MotionEvent;
 import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.AutoCompleteTextView;
 import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import android.os.Bundle;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
 /*
 Main (and only) activity of the app, connecting to Flight gear simulator,
 and sending mobile-user commands for the movements.
@@ -17,14 +33,46 @@ using MVVM:
 Loads view from activity_main.xml, [contains component of JoystickView.java according to joystick_view.xml]
  view-model from ViewModel,
  model from FGModel.java
+the model and view model are of a FlightSession, that outlives this activity on rotation (see FlightSessionHolder)
  */
 public class MainActivity extends AppCompatActivity {
     // direct access to the instance which responsible
     // to the inner component within this associative view of this activity
     private JoystickView joystickView=null;
+    private FlightSession session=null;
     private ViewModel viewModel=null;
+    private FGModel model=null;
+    // touch, tilt and gamepad, merged into the values of viewModel
+    private InputMixer mixer=null;
+    private GamepadInputSource gamepad=null;
+    private TiltInputSource tilt=null;
+    // refresh of the latency overlay, while latencyOverlay_CheckBox is checked
+    private static final long LATENCY_OVERLAY_REFRESH_MILLIS = 500;
+    private Handler latencyOverlayHandler=null;
+    private Runnable latencyOverlayRefresh=null;
+    // refresh of the metrics overlay, while metricsOverlay_CheckBox is checked (on the latency handler)
+    private static final long METRICS_OVERLAY_REFRESH_MILLIS = 1000;
+    private Runnable metricsOverlayRefresh=null;
+    // the metrics of the session go to logcat (tag RemoteJoystick) this often
+    private static final long METRICS_EXPORT_MILLIS = 10000;
+    // the input of the last run is recorded to this file of the app (for bug reports and replays, see InputReplay)
+    private static final String RECORDING_FILE = "last-flight.rec";
+    // instruments that flight gear pushes (see Telemetry), shown under the connection state
+    private static final String AIRSPEED = "/velocities/airspeed-kt";
+    private static final String ALTITUDE = "/position/altitude-ft";
+    private static final String HEADING = "/orientation/heading-deg";
+    private static final long TELEMETRY_REFRESH_MILLIS = 250;
+    private Handler telemetryHandler=null;
+    private Runnable telemetryRefresh=null;
+    private CheckBox tiltCheckBox=null;
+    // the flight gear instances connected to lately, kept in the preferences of the app
+    // (the last good one is pre-connected at startup and fills the connection boxes)
+    private static final String PREFERENCES = "remote_joystick";
+    private static final String RECENT_ENDPOINTS = "recent_endpoints";
+    private SharedPreferences preferences=null;
+    private RecentEndpoints recentEndpoints=null;
 
-    // Override the behavior of creating this activity (once in a run)
+    // Override the behavior of creating this activity (once per configuration, e.g. again on rotation)
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -33,8 +81,18 @@ public class MainActivity extends AppCompatActivity {
         // get the JoystickView instance within the loaded xml
         this.joystickView = (JoystickView) findViewById(R.id.joystickView);
 
-        // create ViewModel and bind this view changes to set the model view properties
-        this.viewModel = new ViewModel(new FGModel());
+        this.preferences = getSharedPreferences(PREFERENCES, MODE_PRIVATE);
+        this.recentEndpoints = RecentEndpoints.decode(this.preferences.getString(RECENT_ENDPOINTS, null));
+        // the session of the previous activity (before a rotation), with its connection, or a new one
+        FlightSessionHolder holder = new ViewModelProvider(this, new ViewModelProvider.NewInstanceFactory())
+                .get(FlightSessionHolder.class);
+        this.session = holder.getSession();
+        if (this.session == null) {
+            this.session = createSession();
+            holder.setSession(this.session);
+        }
+        this.model = this.session.getModel();
+        this.viewModel = this.session.getViewModel();
         // anonymous classes can refer local final variables
         final MainActivity self = this;
         // subscribe to viewModel onError event
@@ -50,17 +108,74 @@ public class MainActivity extends AppCompatActivity {
             }
         };
 
-        // bind viewModel to joystick data
-        this.joystickView.onChange=new JoystickView.JoystickEventHandler(){
+        // show the connection state under the connect button
+        // (the model keeps reconnecting a lost connection, so the user can see it is on it)
+        final TextView connectionStateText = (TextView)findViewById(R.id.connectionState_TextView);
+        ConnectionState state = this.model.getConnectionState();
+        connectionStateText.setText(describe(new ConnectionStateEventArgs(state, state, 0, 0)));
+        this.viewModel.onStateChange = new ConnectionStateEventHandler() {
             @Override
-            public void handle(Object sender, JoystickView.JoystickEventArgs args) {
-                viewModel.setValues_from_joystick(args.px, args.py, args.pa, args.pb);
+            public void handle(Object sender, ConnectionStateEventArgs args) {
+                final String text = describe(args);
+                final boolean connected = args.state == ConnectionState.CONNECTED && sender == model;
+                Handler handler = new Handler(self.getMainLooper());
+                handler.post(()-> {
+                    connectionStateText.setText(text);
+                    // a good endpoint: it is pre-connected on the next start
+                    if (connected)
+                        rememberEndpoint(viewModel.getEndpoint());
+                });
             }
         };
 
+        // live instruments of the session: flight gear pushes the changes, the ui just reads the newest values
+        final Telemetry telemetry = this.model.getTelemetry();
+        final TextView telemetryText = (TextView)findViewById(R.id.telemetry_TextView);
+        this.telemetryHandler = new Handler(getMainLooper());
+        this.telemetryRefresh = new Runnable() {
+            // the text changes only when an update came
+            private long shownUpdates = 0;
+            @Override
+            public void run() {
+                long updates = telemetry.getUpdates();
+                if (updates != shownUpdates) {
+                    shownUpdates = updates;
+                    telemetryText.setText(String.format(Locale.US, "%.0f kt   %.0f ft   %03.0f\u00b0",
+                            telemetry.get(0), telemetry.get(1), telemetry.get(2)));
+                }
+                telemetryHandler.postDelayed(this, TELEMETRY_REFRESH_MILLIS);
+            }
+        };
+        this.telemetryRefresh.run();
+
+        // bind viewModel to the input sources through the mixer (primitives only, so dragging allocates nothing),
+        // every touch sample android batched goes to the model, which sends the newest anyway.
+        // a gamepad, once used, takes the stick over the screen, tilt (when checked) takes it over the touch joystick,
+        // and a finger on the joystick overrides both. rudder and throttle follow whichever moved last
+        this.joystickView.setHistoricalSamples(HistoricalSamples.FORWARD_ALL);
+        this.mixer = new InputMixer();
+        this.mixer.onValues = this.viewModel::setValues;
+        this.mixer.setMergeRule(InputMixer.RUDDER, InputMixer.MergeRule.LATEST);
+        this.mixer.setMergeRule(InputMixer.THROTTLE, InputMixer.MergeRule.LATEST);
+        this.mixer.add(new TouchInputSource(this.joystickView), 0, InputMixer.ALL_AXES);
+        this.gamepad = new GamepadInputSource();
+        this.mixer.add(this.gamepad, 2, InputMixer.ALL_AXES);
+        this.tilt = new TiltInputSource((SensorManager) getSystemService(SENSOR_SERVICE));
+        this.tiltCheckBox = (CheckBox)findViewById(R.id.tilt_CheckBox);
+        this.tiltCheckBox.setEnabled(this.tilt.isAvailable());
+        this.tiltCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                if (isChecked)
+                    mixer.add(tilt, 1, InputMixer.AILERON_AXIS | InputMixer.ELEVATOR_AXIS);
+                else
+                    mixer.remove(tilt);
+            }
+        });
+
 
         /* binding of the top part to viewModel:
-          (ip_TextBox, port_TextBox, connect_Button, resetJoystick_Button) */
+          (ip_TextBox, port_TextBox, transport_Spinner, connect_Button, resetJoystick_Button) */
 
         // bind viewModel to ip_TextBox text
         ((TextView)findViewById(R.id.ip_TextBox)).addTextChangedListener(new TextWatcher() {
@@ -82,19 +197,87 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void afterTextChanged(Editable s) { viewModel.setPort(s.toString());  }
         });
+        // bind viewModel to transport_Spinner selection [items are in the order of TransportType]
+        ((Spinner)findViewById(R.id.transport_Spinner)).setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                viewModel.setTransport(TransportType.values()[position]);
+            }
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {  }
+        });
+
+        // a new run starts with the boxes of the last good endpoint (the session pre-connects to it already),
+        // and the ip box suggests the recent ones (on rotation, the boxes keep what the user typed)
+        ((AutoCompleteTextView)findViewById(R.id.ip_TextBox)).setAdapter(new ArrayAdapter<>(this,
+                android.R.layout.simple_dropdown_item_1line, this.recentEndpoints.getIps()));
+        Endpoint last = this.recentEndpoints.getLast();
+        if (savedInstanceState == null && last != null) {
+            ((TextView)findViewById(R.id.ip_TextBox)).setText(last.ip);
+            ((TextView)findViewById(R.id.port_TextBox)).setText(Integer.toString(last.port));
+            ((Spinner)findViewById(R.id.transport_Spinner)).setSelection(last.transport.ordinal());
+        }
 
         // set onClick event handle to click on connect_Button
         ((Button)findViewById(R.id.connect_Button)).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
                 // viewModel.connect() will call viewModel.onError.handle()
-                // if the port property of viewModel is invalid tcp port, or error in connection(timeout of 2 sec),
+                // if the port property of viewModel is invalid port, or error in connection(timeout of 2 sec),
+                // (the pre-connected endpoint is kept as it is, if the boxes weren't changed)
                 // we already set onError as handler,
                 // which notify the user about the problem in message in the bottom of the screen (Toast)
                 viewModel.connect();
             }
         });
 
+        // latency overlay: latency tracking of the model is on only while it is shown
+        final TextView latencyText = (TextView)findViewById(R.id.latency_TextView);
+        this.latencyOverlayHandler = new Handler(getMainLooper());
+        this.latencyOverlayRefresh = new Runnable() {
+            @Override
+            public void run() {
+                latencyText.setText(formatLatency(model, viewModel.getLatencyProbe()));
+                latencyOverlayHandler.postDelayed(this, LATENCY_OVERLAY_REFRESH_MILLIS);
+            }
+        };
+        ((CheckBox)findViewById(R.id.latencyOverlay_CheckBox)).setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                latencyOverlayHandler.removeCallbacks(latencyOverlayRefresh);
+                model.setLatencyTracking(isChecked);
+                // the network + flight gear part of the lag is probed only while the overlay is shown too
+                viewModel.setLatencyProbing(isChecked);
+                latencyText.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+                if (isChecked) {
+                    model.resetLatency();
+                    latencyOverlayRefresh.run();
+                }
+            }
+        });
+
+        // metrics overlay: every metric of the pipeline, and how fast the counters grow
+        final TextView metricsText = (TextView)findViewById(R.id.metrics_TextView);
+        this.metricsOverlayRefresh = new Runnable() {
+            private MetricsSnapshot previous = null;
+            @Override
+            public void run() {
+                MetricsSnapshot snapshot = model.getMetrics().snapshot();
+                metricsText.setText(formatMetrics(snapshot, previous));
+                previous = snapshot;
+                latencyOverlayHandler.postDelayed(this, METRICS_OVERLAY_REFRESH_MILLIS);
+            }
+        };
+        ((CheckBox)findViewById(R.id.metricsOverlay_CheckBox)).setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                latencyOverlayHandler.removeCallbacks(metricsOverlayRefresh);
+                metricsText.setVisibility(isChecked ? View.VISIBLE : View.GONE);
+                if (isChecked)
+                    metricsOverlayRefresh.run();
+            }
+        });
+
         // set onClick event handle to click on resetJoystick_Button
         ((Button)findViewById(R.id.resetJoystick_Button)).setOnClickListener(new View.OnClickListener() {
             @Override
@@ -103,4 +286,163 @@ public class MainActivity extends AppCompatActivity {
             }
         });
     }
+
+    // the session of a new run: the view model takes one joystick state per display frame (whatever the touch rate is),
+    // and the model sends only the newest state (as fast as the network takes, at least 5 per second),
+    // so fast drags won't queue. the max rate is above the display rate, so only the frame clock sets the pace
+    private FlightSession createSession() {
+        FGModel newModel = new FGModel();
+        newModel.setMinSendRate(5);
+        newModel.setMaxSendRate(120);
+        // (the idle keyframes of the conflating mode keep sending the hold state in the background)
+        newModel.setConflatingSend(true);
+        FlightSession newSession = new FlightSession(newModel);
+        newSession.setHoldWhileBackgrounded(true);
+        newSession.getViewModel().setFrameClock(new ChoreographerFrameClock());
+        // finger jitter and the center of the stick are conditioned before anything is sent
+        newSession.getViewModel().setConditioner(InputConditioner.forTouch());
+        // the flight gear properties to set (and their resolution, e.g. don't send finger jitter)
+        // are in assets/bindings.conf
+        loadBindings(newSession);
+        startRecording(newSession);
+        // live instruments: flight gear pushes the changes, the ui just reads the newest values
+        newModel.setTelemetry(new Telemetry(AIRSPEED, ALTITUDE, HEADING));
+        // counting is always on (it is cheap), and a snapshot goes to logcat now and then
+        newSession.setMetricsExporter(new MetricsExporter(newModel.getMetrics(), METRICS_EXPORT_MILLIS,
+                snapshot -> Log.i("RemoteJoystick", "metrics " + snapshot)));
+        // cold start: connect to the last good endpoint while the screen is still being built
+        // (and warm up the send path meanwhile), so the first touch finds an open socket
+        newSession.preconnect(recentEndpoints.getLast());
+        return newSession;
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        session.enterForeground();
+        // (on rotation, the restored tilt_CheckBox adds it later)
+        if (tiltCheckBox.isChecked())
+            mixer.add(tilt, 1, InputMixer.AILERON_AXIS | InputMixer.ELEVATOR_AXIS);
+    }
+
+    @Override
+    protected void onStop() {
+        // a rotation goes on with the same session right away, otherwise nobody sees the screen now:
+        // the tilt sensor stops, and the session holds (see FlightSession.enterBackground())
+        if (!isChangingConfigurations()) {
+            if (tiltCheckBox.isChecked())
+                mixer.remove(tilt);
+            session.enterBackground();
+        }
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        // stop refreshing the latency overlay of this (destroyed) activity
+        if (latencyOverlayHandler != null) {
+            latencyOverlayHandler.removeCallbacks(latencyOverlayRefresh);
+            latencyOverlayHandler.removeCallbacks(metricsOverlayRefresh);
+        }
+        if (telemetryHandler != null)
+            telemetryHandler.removeCallbacks(telemetryRefresh);
+        // the input sources (the tilt sensor thread) belong to this activity, and the session must not keep it.
+        // the session itself (connection, threads, recorder) is closed by FlightSessionHolder when the activity
+        // is finished for good
+        mixer.stop();
+        viewModel.onError = null;
+        viewModel.onStateChange = null;
+        super.onDestroy();
+    }
+
+    // gamepad / joystick axes go to the gamepad input source
+    @Override
+    public boolean dispatchGenericMotionEvent(MotionEvent event) {
+        return gamepad.onGenericMotionEvent(event) || super.dispatchGenericMotionEvent(event);
+    }
+
+    // endpoint connected: it goes first in the recent endpoints (saved in the background by apply())
+    private void rememberEndpoint(Endpoint endpoint) {
+        if (endpoint != null && recentEndpoints.add(endpoint))
+            preferences.edit().putString(RECENT_ENDPOINTS, recentEndpoints.encode()).apply();
+    }
+
+    // load the property bindings of the model from assets/bindings.conf,
+    // or keep the default bindings (with a 0.005 deadband) if it can't be read
+    private void loadBindings(FlightSession newSession) {
+        try {
+            InputStream in = getAssets().open("bindings.conf");
+            try {
+                newSession.getModel().setBindings(BindingTable.load(in));
+            } finally {
+                in.close();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Toast.makeText(getApplicationContext(), "bindings.conf: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            newSession.getViewModel().setControlResolution(0.001f, 0.005f);
+        }
+    }
+
+    // record the input of this run to RECORDING_FILE (overwriting the previous run).
+    // the app flies just as well without it, so a file that can't be written is ignored
+    private void startRecording(FlightSession newSession) {
+        try {
+            newSession.setRecorder(new InputRecorder(new File(getFilesDir(), RECORDING_FILE)));
+        } catch (IOException e) {
+            newSession.setRecorder(null);
+        }
+    }
+
+    // text of the connection state line
+    private static String describe(ConnectionStateEventArgs args) {
+        switch (args.state) {
+            case CONNECTING:
+                return args.attempt > 1 ? "Connecting (attempt " + args.attempt + ")" : "Connecting";
+            case CONNECTED:
+                return "Connected";
+            case BACKOFF:
+                return "Connection lost, retrying in " + (args.retryInMillis + 999) / 1000 + " s";
+            default:
+                return "Disconnected";
+        }
+    }
+
+    // text of the latency overlay: p50/p99/max in milliseconds of every stage, the round trip to flight gear
+    // (if probe isn't null) and the current send rate
+    private static String formatLatency(FGModel model, LatencyProbe probe) {
+        StringBuilder text = new StringBuilder("stage  p50 / p99 / max [ms]");
+        for (LatencyStage stage : LatencyStage.values()) {
+            LatencyHistogram histogram = model.getLatency(stage);
+            text.append(String.format(Locale.US, "\n%s  %.2f / %.2f / %.2f  (%d)", stage,
+                    histogram.getPercentile(0.5) / 1e6, histogram.getPercentile(0.99) / 1e6,
+                    histogram.getMax() / 1e6, histogram.getCount()));
+        }
+        if (probe != null) {
+            LatencyHistogram roundTrip = probe.getRoundTrip();
+            text.append(String.format(Locale.US, "\nround trip  %.2f / %.2f / %.2f  (%d, %d lost)",
+                    roundTrip.getPercentile(0.5) / 1e6, roundTrip.getPercentile(0.99) / 1e6,
+                    roundTrip.getMax() / 1e6, roundTrip.getCount(), probe.getProbesLost()));
+            text.append(String.format(Locale.US, "\none way ~%.2f, jitter %.2f",
+                    probe.getOneWayNanos() / 1e6, probe.getJitterNanos() / 1e6));
+        }
+        text.append(String.format(Locale.US, "\nsend rate %d Hz (%d to %d)",
+                model.getSendRate(), model.getMinSendRate(), model.getMaxSendRate()));
+        return text.toString();
+    }
+
+    // text of the metrics overlay: a line per metric, with its growth per second since previous (if not null)
+    private static String formatMetrics(MetricsSnapshot snapshot, MetricsSnapshot previous) {
+        StringBuilder text = new StringBuilder();
+        double seconds = previous == null ? 0 : (snapshot.nanos - previous.nanos) / 1e9;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (i > 0)
+                text.append('\n');
+            String name = snapshot.getName(i);
+            text.append(name).append("  ").append(snapshot.getValue(i));
+            long delta = previous == null ? 0 : snapshot.delta(previous, name);
+            if (seconds > 0 && delta != 0)
+                text.append(String.format(Locale.US, "  (%+.1f/s)", delta / seconds));
+        }
+        return text.toString();
+    }
 }
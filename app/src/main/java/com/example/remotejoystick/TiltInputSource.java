@@ -0,0 +1,99 @@
+package com.example.remotejoystick;
+
+import android.hardware.Sensor;
+import android.hardware.SensorEvent;
+import android.hardware.SensorEventListener;
+import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+
+// tilting the phone as an input source of InputMixer: roll is aileron, pitch is elevator.
+// the accelerometer (gravity sensor if there is one) is sampled at ~200 Hz on its own thread, so the ui thread
+// never waits for it, and nothing is allocated per sample. the attitude when started (or calibrate() was called)
+// is neutral, and tilting it by maxAngle (30 degrees by default) from there is a full deflection.
+// (the activity is portrait: right edge down is right aileron, top edge down is forward stick)
+public class TiltInputSource implements InputSource, SensorEventListener {
+    private static final int SAMPLING_PERIOD_MICROS = 5000;
+
+    private final SensorManager sensorManager;
+    private final Sensor sensor;
+    private HandlerThread thread = null;
+    private volatile InputMixer.Channel channel = null;
+    private volatile float maxAngleRadians = (float) Math.toRadians(30);
+    // set by calibrate(), the neutral attitude is of the sensor thread only
+    private volatile boolean calibrate = true;
+    private float neutralRoll = 0;
+    private float neutralPitch = 0;
+
+    public TiltInputSource(SensorManager sensorManager) {
+        this.sensorManager = sensorManager;
+        Sensor gravity = sensorManager.getDefaultSensor(Sensor.TYPE_GRAVITY);
+        this.sensor = gravity != null ? gravity : sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
+    }
+
+    // false if the phone has no accelerometer (start() does nothing then)
+    public boolean isAvailable() { return sensor != null; }
+
+    // the tilt from neutral of a full deflection
+    public void setMaxAngle(float degrees) {
+        if (degrees <= 0 || degrees > 90)
+            throw new IllegalArgumentException("max angle should be in (0, 90] degrees");
+        this.maxAngleRadians = (float) Math.toRadians(degrees);
+    }
+
+    // the attitude of the next sample is neutral
+    public void calibrate() { calibrate = true; }
+
+    @Override
+    public void start(InputMixer.Channel channel) {
+        if (sensor == null || this.channel != null)
+            return;
+        this.channel = channel;
+        calibrate = true;
+        thread = new HandlerThread("TiltInputSource");
+        thread.start();
+        sensorManager.registerListener(this, sensor, SAMPLING_PERIOD_MICROS, new Handler(thread.getLooper()));
+    }
+
+    @Override
+    public void stop() {
+        InputMixer.Channel channel_for_now = channel;
+        if (channel_for_now == null)
+            return;
+        sensorManager.unregisterListener(this);
+        thread.quit();
+        thread = null;
+        channel = null;
+        channel_for_now.release();
+    }
+
+    @Override
+    public void onSensorChanged(SensorEvent event) {
+        InputMixer.Channel channel_for_now = channel;
+        if (channel_for_now == null)
+            return;
+        // the sensor reads "up" in the coordinates of the phone
+        float x = event.values[0];
+        float y = event.values[1];
+        float z = event.values[2];
+        float roll = (float) Math.atan2(-x, z);
+        float pitch = (float) Math.atan2(-y, z);
+        if (calibrate) {
+            neutralRoll = roll;
+            neutralPitch = pitch;
+            calibrate = false;
+        }
+        float max = maxAngleRadians;
+        // (rudder and throttle aren't of this source)
+        channel_for_now.publish(clamp((roll - neutralRoll) / max), clamp((pitch - neutralPitch) / max),
+                Float.NaN, Float.NaN, System.nanoTime());
+    }
+
+    @Override
+    public void onAccuracyChanged(Sensor sensor, int accuracy) {
+    }
+
+    private static float clamp(float value) {
+        return Math.max(-1, Math.min(1, value));
+    }
+}
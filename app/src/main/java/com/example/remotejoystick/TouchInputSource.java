@@ -0,0 +1,26 @@
+package com.example.remotejoystick;
+
+// the touch joystick and seek bars of a JoystickView, as an input source of InputMixer.
+// the values (px, py, pa, pb between 0 to 1) are converted to the controls as ViewModel.setValues_from_joystick() does,
+// and while a finger is on the joystick its channel overrides the other sources (tilt, gamepad)
+public class TouchInputSource implements InputSource {
+    private final JoystickView view;
+
+    public TouchInputSource(JoystickView view) {
+        this.view = view;
+    }
+
+    @Override
+    public void start(final InputMixer.Channel channel) {
+        // (the handlers are made once here, nothing is allocated per touch event)
+        view.onValues = (px, py, pa, pb, eventNanos) ->
+                channel.publish((px-0.5f)*2, (py-0.5f)*2, (pa-0.5f)*2, pb, eventNanos);
+        view.onTouch = channel::setOverride;
+    }
+
+    @Override
+    public void stop() {
+        view.onValues = null;
+        view.onTouch = null;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.remotejoystick;
+
+// the flight trace of InputTraces, converted once to (aileron, elevator, rudder, throttle)
+// as ViewModel.setValues_from_joystick() converts it, so the benchmarks measure only what they call
+class BenchmarkTraces {
+    static float[][] normalFlightControls() {
+        float[][] raw = InputTraces.normalFlight(60);
+        float[][] controls = new float[raw.length][];
+        for (int i = 0; i < raw.length; i++) {
+            float[] s = raw[i];
+            controls[i] = new float[]{(s[0] - 0.5f) * 2, (s[1] - 0.5f) * 2, (s[2] - 0.5f) * 2, s[3]};
+        }
+        return controls;
+    }
+}
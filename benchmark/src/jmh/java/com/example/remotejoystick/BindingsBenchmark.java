@@ -0,0 +1,57 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// encoding of one frame by the number of bound properties: the cost per frame should grow only by the bytes,
+// there is no allocation and one buffer (one write) per frame whatever the number is
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BindingsBenchmark {
+    @Param({"4", "10", "20"})
+    public int properties;
+
+    private float[][] trace;
+    private int next = 0;
+    private ControlFrameEncoder encoder;
+
+    @Setup
+    public void setup() throws Exception {
+        trace = BenchmarkTraces.normalFlightControls();
+        // the 4 controls, and then more engines / trims that follow the throttle / elevator
+        StringBuilder text = new StringBuilder(
+                "aileron  /controls/flight/aileron  deadband=0.005\n" +
+                "elevator /controls/flight/elevator deadband=0.005\n" +
+                "rudder   /controls/flight/rudder\n" +
+                "throttle /controls/engines/engine[0]/throttle\n");
+        for (int i = 4; i < properties; i++) {
+            if (i % 2 == 0)
+                text.append("throttle /controls/engines/engine[").append(i / 2).append("]/throttle\n");
+            else
+                text.append("elevator /controls/flight/trim").append(i).append(" scale=0.1 deadband=0.005\n");
+        }
+        encoder = new ControlFrameEncoder(BindingTable.parse(new StringReader(text.toString())));
+    }
+
+    private float[] nextSample() {
+        float[] sample = trace[next];
+        next = (next + 1) % trace.length;
+        return sample;
+    }
+
+    @Benchmark
+    public ByteBuffer fullFrame() {
+        float[] s = nextSample();
+        return encoder.encode(s[0], s[1], s[2], s[3]);
+    }
+
+    @Benchmark
+    public ByteBuffer deltaFrame() {
+        float[] s = nextSample();
+        return encoder.encodeChanged(s[0], s[1], s[2], s[3]);
+    }
+}
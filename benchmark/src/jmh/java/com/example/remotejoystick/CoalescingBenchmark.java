@@ -0,0 +1,49 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// cost of FGModel.updatePlaneData() for the caller (the ui thread) under a burst of updates:
+// "conflating" publishes to the slot while the sender thread drains it,
+// "limiter" is the per-event mode with the time-window limiter (not connected, so nothing is queued).
+// run with -t 2 or more to see the slot under contention of several input threads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CoalescingBenchmark {
+    @Param({"conflating", "limiter"})
+    public String mode;
+
+    private FGModel model;
+
+    @State(Scope.Thread)
+    public static class Input {
+        float[][] trace;
+        int next = 0;
+
+        @Setup
+        public void setup() {
+            trace = BenchmarkTraces.normalFlightControls();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        model = new FGModel();
+        model.setMaxSendRate(1000);
+        model.setConflatingSend("conflating".equals(mode));
+    }
+
+    @TearDown
+    public void tearDown() {
+        model.setConflatingSend(false);
+    }
+
+    @Benchmark
+    public void updatePlaneData(Input input) {
+        float[] s = input.trace[input.next];
+        input.next = (input.next + 1) % input.trace.length;
+        model.updatePlaneData(s[0], s[1], s[2], s[3]);
+    }
+}
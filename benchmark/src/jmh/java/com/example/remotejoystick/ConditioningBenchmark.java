@@ -0,0 +1,43 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// InputConditioner.condition() of the 4 axes of a sample of the flight trace (the settings of the app):
+// the cost per sample of the conditioning stage, with every kind of smoothing on the stick
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConditioningBenchmark {
+    private static final long SAMPLE_NANOS = 1000000000L / InputTraces.SAMPLE_RATE_HZ;
+
+    @Param({"NONE", "EMA", "ONE_EURO"})
+    public AxisConditioning.Smoothing smoothing;
+
+    private float[][] trace;
+    private int next = 0;
+    private long nanos = 0;
+    private InputConditioner conditioner;
+
+    @Setup
+    public void setup() {
+        trace = BenchmarkTraces.normalFlightControls();
+        AxisConditioning stick = new AxisConditioning(0.02f, 0.3f, smoothing, 0.3f, 2, 5, 0.004f);
+        conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.AILERON, stick);
+        conditioner.setAxis(InputMixer.ELEVATOR, stick);
+        conditioner.setAxis(InputMixer.RUDDER, AxisConditioning.shaped(0.02f, 0.2f, 0));
+    }
+
+    @Benchmark
+    public float conditionSample() {
+        float[] s = trace[next];
+        next = (next + 1) % trace.length;
+        nanos += SAMPLE_NANOS;
+        return conditioner.condition(InputMixer.AILERON, s[0], nanos)
+                + conditioner.condition(InputMixer.ELEVATOR, s[1], nanos)
+                + conditioner.condition(InputMixer.RUDDER, s[2], nanos)
+                + conditioner.condition(InputMixer.THROTTLE, s[3], nanos);
+    }
+}
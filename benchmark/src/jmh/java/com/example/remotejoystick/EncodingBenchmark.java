@@ -0,0 +1,52 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// encoding of one control frame: the telnet encoder (full / delta) vs. the string concatenation it replaced
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncodingBenchmark {
+    private float[][] trace;
+    private int next = 0;
+    private ControlFrameEncoder encoder;
+
+    @Setup
+    public void setup() {
+        trace = BenchmarkTraces.normalFlightControls();
+        encoder = new ControlFrameEncoder();
+        encoder.setResolution(ControlFrameEncoder.AILERON, 0.001f, 0.005f);
+        encoder.setResolution(ControlFrameEncoder.ELEVATOR, 0.001f, 0.005f);
+    }
+
+    private float[] nextSample() {
+        float[] sample = trace[next];
+        next = (next + 1) % trace.length;
+        return sample;
+    }
+
+    @Benchmark
+    public ByteBuffer fullFrame() {
+        float[] s = nextSample();
+        return encoder.encode(s[0], s[1], s[2], s[3]);
+    }
+
+    @Benchmark
+    public ByteBuffer deltaFrame() {
+        float[] s = nextSample();
+        return encoder.encodeChanged(s[0], s[1], s[2], s[3]);
+    }
+
+    // what FGModel.updatePlaneData() did before ControlFrameEncoder (without the PrintWriter charset encoding)
+    @Benchmark
+    public String stringConcatenation() {
+        float[] s = nextSample();
+        return "set /controls/flight/aileron " + s[0] + "\r\n" +
+                "set /controls/flight/elevator " + s[1] + "\r\n" +
+                "set /controls/flight/rudder " + s[2] + "\r\n" +
+                "set /controls/engines/current-engine/throttle " + s[3] + "\r\n";
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// cost of counting on the hot path from several threads: one AtomicLong (as the model counted before)
+// vs a StripedCounter, and the cost of a snapshot of the metrics of a model (what the overlay and the export pay)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private final AtomicLong atomic = new AtomicLong();
+    private final StripedCounter striped = new StripedCounter();
+    private FGModel model;
+
+    @Setup
+    public void setup() {
+        model = new FGModel();
+        new ViewModel(model);
+    }
+
+    @TearDown
+    public void tearDown() {
+        model.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long atomicIncrement() {
+        return atomic.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void stripedIncrement() {
+        striped.increment();
+    }
+
+    @Benchmark
+    public MetricsSnapshot modelSnapshot() {
+        return model.getMetrics().snapshot();
+    }
+}
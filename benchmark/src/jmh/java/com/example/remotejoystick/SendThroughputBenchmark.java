@@ -0,0 +1,97 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+// frames per second that a transport can encode and write to a loopback sink that drains everything
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SendThroughputBenchmark {
+    // "telnet-full" sends all the controls every frame, "telnet-delta" only the changed ones (deadband 0.005)
+    @Param({"telnet-full", "telnet-delta", "udp-csv", "udp-binary"})
+    public String transportType;
+
+    private float[][] trace;
+    private int next = 0;
+    private ControlTransport transport;
+    private ServerSocketChannel tcpServer;
+    private DatagramChannel udpServer;
+    private Thread drain;
+
+    @Setup
+    public void setup() throws IOException {
+        trace = BenchmarkTraces.normalFlightControls();
+        if (transportType.startsWith("telnet")) {
+            tcpServer = ServerSocketChannel.open();
+            tcpServer.bind(new InetSocketAddress("127.0.0.1", 0));
+            int port = ((InetSocketAddress) tcpServer.getLocalAddress()).getPort();
+            drain = new Thread(() -> {
+                try (SocketChannel client = tcpServer.accept()) {
+                    drainAll(client);
+                } catch (IOException e) {
+                    // sink closed
+                }
+            });
+            drain.start();
+            ControlFrameEncoder encoder = new ControlFrameEncoder();
+            if (transportType.equals("telnet-full")) {
+                encoder.setKeyframeInterval(1);
+            } else {
+                for (int axis = 0; axis < ControlFrameEncoder.AXES; axis++)
+                    encoder.setResolution(axis, 0.001f, 0.005f);
+            }
+            transport = TelnetTransport.open("127.0.0.1", port, 2000, encoder);
+        } else {
+            udpServer = DatagramChannel.open();
+            udpServer.bind(new InetSocketAddress("127.0.0.1", 0));
+            int port = ((InetSocketAddress) udpServer.getLocalAddress()).getPort();
+            drain = new Thread(() -> {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(2048);
+                try {
+                    while (true) {
+                        buffer.clear();
+                        udpServer.receive(buffer);
+                    }
+                } catch (IOException e) {
+                    // sink closed
+                }
+            });
+            drain.start();
+            transport = GenericUdpTransport.open("127.0.0.1", port, transportType.equals("udp-binary"));
+        }
+    }
+
+    private static void drainAll(SocketChannel client) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        while (true) {
+            buffer.clear();
+            if (client.read(buffer) < 0)
+                return;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        transport.close();
+        if (tcpServer != null)
+            tcpServer.close();
+        if (udpServer != null)
+            udpServer.close();
+        drain.join(2000);
+    }
+
+    @Benchmark
+    public int send() throws IOException {
+        float[] s = trace[next];
+        next = (next + 1) % trace.length;
+        return transport.send(s[0], s[1], s[2], s[3]);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.remotejoystick;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+// ViewModel.setValues_from_joystick(): the conversion of joystick values, up to the call of the model
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewModelBenchmark {
+    // model that only consumes what it gets
+    private static class SinkModel extends FGModel {
+        Blackhole blackhole;
+
+        @Override
+        public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                    long inputNanos, long viewModelNanos) {
+            blackhole.consume(aileron);
+            blackhole.consume(elevator);
+            blackhole.consume(rudder);
+            blackhole.consume(throttle);
+            blackhole.consume(viewModelNanos);
+        }
+    }
+
+    private float[][] trace;
+    private int next = 0;
+    private ViewModel viewModel;
+    private SinkModel model;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        trace = InputTraces.normalFlight(60);
+        model = new SinkModel();
+        model.blackhole = blackhole;
+        viewModel = new ViewModel(model);
+    }
+
+    @Benchmark
+    public void setValuesFromJoystick() {
+        float[] s = trace[next];
+        next = (next + 1) % trace.length;
+        viewModel.setValues_from_joystick(s[0], s[1], s[2], s[3], 1);
+    }
+}
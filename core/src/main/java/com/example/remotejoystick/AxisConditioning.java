@@ -0,0 +1,70 @@
+package com.example.remotejoystick;
+
+// how InputConditioner shapes one axis, in this order:
+//   deadzone:   |value| below it is 0, and the rest of the range is stretched back to reach 1
+//   expo:       0 is linear, 1 is value^3 (finer control around the center, same full deflection)
+//   smoothing:  NONE, EMA (value moves alpha of the way to each sample), or ONE_EURO (a low pass whose cutoff
+//               rises with the speed of the input: steady while held, little lag while moving, see
+//               Casiez et al. "1 euro filter")
+//   hysteresis: the output moves only when the input left it by at least this much
+//               (so finger jitter around a held value is not a stream of tiny changes)
+// immutable, so InputConditioner can swap it while conditioning without locks
+public class AxisConditioning {
+    public enum Smoothing { NONE, EMA, ONE_EURO }
+
+    // no shaping at all
+    public static final AxisConditioning NONE = new AxisConditioning(0, 0, Smoothing.NONE, 1, 1, 0, 0);
+
+    public final float deadzone;
+    public final float expo;
+    public final Smoothing smoothing;
+    // weight of a new sample (0 to 1] of EMA
+    public final float alpha;
+    // cutoff frequency of a held input, and how much it rises per unit of speed (per second), of ONE_EURO
+    public final float minCutoffHz;
+    public final float beta;
+    public final float hysteresis;
+
+    public AxisConditioning(float deadzone, float expo, Smoothing smoothing, float alpha, float minCutoffHz,
+                            float beta, float hysteresis) {
+        if (!(deadzone >= 0 && deadzone < 1) || !(hysteresis >= 0 && hysteresis < 1))
+            throw new IllegalArgumentException("deadzone and hysteresis should be in [0, 1)");
+        if (!(expo >= 0 && expo <= 1))
+            throw new IllegalArgumentException("expo should be in [0, 1]");
+        if (!(alpha > 0 && alpha <= 1))
+            throw new IllegalArgumentException("alpha should be in (0, 1]");
+        if (!(minCutoffHz > 0) || !(beta >= 0))
+            throw new IllegalArgumentException("min cutoff should be positive and beta not negative");
+        this.deadzone = deadzone;
+        this.expo = expo;
+        this.smoothing = smoothing;
+        this.alpha = alpha;
+        this.minCutoffHz = minCutoffHz;
+        this.beta = beta;
+        this.hysteresis = hysteresis;
+    }
+
+    // shaping and hysteresis without smoothing
+    public static AxisConditioning shaped(float deadzone, float expo, float hysteresis) {
+        return new AxisConditioning(deadzone, expo, Smoothing.NONE, 1, 1, 0, hysteresis);
+    }
+
+    public static AxisConditioning ema(float deadzone, float expo, float alpha, float hysteresis) {
+        return new AxisConditioning(deadzone, expo, Smoothing.EMA, alpha, 1, 0, hysteresis);
+    }
+
+    public static AxisConditioning oneEuro(float deadzone, float expo, float minCutoffHz, float beta,
+                                           float hysteresis) {
+        return new AxisConditioning(deadzone, expo, Smoothing.ONE_EURO, 1, minCutoffHz, beta, hysteresis);
+    }
+
+    // deadzone and expo of value (the stateless part)
+    public float shape(float value) {
+        float magnitude = Math.abs(value);
+        if (magnitude <= deadzone)
+            return 0;
+        magnitude = Math.min(1, (magnitude - deadzone) / (1 - deadzone));
+        magnitude = (1 - expo) * magnitude + expo * magnitude * magnitude * magnitude;
+        return value < 0 ? -magnitude : magnitude;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.remotejoystick;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// table of the flight gear properties that FGModel drives, and the input each of them takes its value from.
+// the inputs are the 4 controls of the joystick (aileron, elevator, rudder, throttle are inputs 0 to 3),
+// and any other named input (flaps, brakes, a button...) that the table uses, numbered in order of appearance.
+// an input may drive many properties (e.g. the throttle of every engine).
+// the text format, one binding per line ('#' starts a comment):
+//   <input> <property path> [scale=1] [offset=0] [min=-1000000] [max=1000000] [step=0.001] [deadband=0]
+// e.g.
+//   throttle  /controls/engines/engine[1]/throttle
+//   flaps     /controls/flight/flaps  scale=0.5 offset=0.5 step=0.01
+// immutable, compiled once by ControlFrameEncoder into pre-encoded "set <path> " prefixes.
+public class BindingTable {
+    // names of the first inputs, in the order of ControlFrameEncoder.AILERON..THROTTLE
+    private static final String[] CONTROLS = {"aileron", "elevator", "rudder", "throttle"};
+    private static final float DEFAULT_MAX = 1000000f;
+
+    private final List<String> inputs;
+    private final List<PropertyBinding> bindings;
+
+    private BindingTable(List<String> inputs, List<PropertyBinding> bindings) {
+        this.inputs = Collections.unmodifiableList(inputs);
+        this.bindings = Collections.unmodifiableList(bindings);
+    }
+
+    // the 4 controls of the joystick, as the app always sent them
+    public static BindingTable defaults() {
+        try {
+            return parse(new StringReader(
+                    "aileron  /controls/flight/aileron\n" +
+                    "elevator /controls/flight/elevator\n" +
+                    "rudder   /controls/flight/rudder\n" +
+                    "throttle /controls/engines/current-engine/throttle\n"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // read a table in the text format above (utf-8), IllegalArgumentException tells the line of a bad binding
+    public static BindingTable load(InputStream in) throws IOException {
+        return parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public static BindingTable parse(Reader reader) throws IOException {
+        List<String> inputs = new ArrayList<>();
+        Collections.addAll(inputs, CONTROLS);
+        List<PropertyBinding> bindings = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = lines.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            try {
+                bindings.add(parseBinding(line.split("\\s+"), inputs));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + number + ": " + e.getMessage(), e);
+            }
+        }
+        return new BindingTable(inputs, bindings);
+    }
+
+    private static PropertyBinding parseBinding(String[] parts, List<String> inputs) {
+        if (parts.length < 2)
+            throw new IllegalArgumentException("expected <input> <property path> [options]");
+        String input = parts[0];
+        int inputIndex = inputs.indexOf(input);
+        if (inputIndex < 0) {
+            inputIndex = inputs.size();
+            inputs.add(input);
+        }
+        float scale = 1, offset = 0, min = -DEFAULT_MAX, max = DEFAULT_MAX, step = 0.001f, deadband = 0;
+        for (int i = 2; i < parts.length; i++) {
+            int eq = parts[i].indexOf('=');
+            if (eq <= 0)
+                throw new IllegalArgumentException("expected <option>=<value>: " + parts[i]);
+            String key = parts[i].substring(0, eq);
+            float value;
+            try {
+                value = Float.parseFloat(parts[i].substring(eq + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a number: " + parts[i]);
+            }
+            switch (key) {
+                case "scale": scale = value; break;
+                case "offset": offset = value; break;
+                case "min": min = value; break;
+                case "max": max = value; break;
+                case "step": step = value; break;
+                case "deadband": deadband = value; break;
+                default: throw new IllegalArgumentException("unknown option: " + key);
+            }
+        }
+        return new PropertyBinding(input, inputIndex, parts[1], scale, offset, min, max, step, deadband);
+    }
+
+    // names of the inputs (the 4 controls first), the index of a name is its input index
+    public List<String> getInputs() { return inputs; }
+
+    // index of the named input, or -1 if the table doesn't use it
+    public int getInputIndex(String input) { return inputs.indexOf(input); }
+
+    public List<PropertyBinding> getBindings() { return bindings; }
+}
@@ -0,0 +1,453 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// class that owns the connection of FGModel to flight gear, on its own thread (NIO selector loop),
+// so neither the caller of connect() (the ui thread) nor the sending thread ever waits for connection management.
+// state machine:
+//   DISCONNECTED --connect()--> CONNECTING --ok--> CONNECTED --lost--> BACKOFF
+//   CONNECTING --failed / timeout--> BACKOFF --delay passed--> CONNECTING
+//   any state --disconnect()--> DISCONNECTED
+// the delay of BACKOFF grows exponentially with the failed attempts (with random jitter), up to a maximum.
+// the thread also drains what the telnet server sends back (so it never piles up in the receive buffer),
+// and a connection the server closed is found by the reader without waiting for the next write to fail.
+// what it reads is parsed by the Telemetry of setTelemetry() (properties flight gear pushes to subscribers).
+public class ConnectionManager {
+    // event happens on every state change
+    public ConnectionStateEventHandler onStateChange = null;
+    // event happens when the first attempt of connect() failed ("Connection Error"),
+    // or when an open connection was lost ("Disconnected")
+    public ErrorEventHandler onError = null;
+    // gets the bytes that flight gear sent (optional, e.g. to parse replies), see ReceiveHandler
+    public volatile ReceiveHandler onReceive = null;
+    // properties every telnet connection subscribes to, and the mirror of their values (null for none)
+    private volatile Telemetry telemetry = null;
+    // round trip probe of the telnet connections (null for none)
+    private volatile LatencyProbe probe = null;
+
+    // the sending thread locks the encoder while it sends, new transports are published under this lock
+    private final ControlFrameEncoder encoder;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // the loop of a selector that keeps failing pauses between tries (doubled from initial up to max),
+    // and ends after this many failures in a row
+    static final long LOOP_RETRY_INITIAL_MILLIS = 10;
+    static final long LOOP_RETRY_MAX_MILLIS = 1000;
+    static final int MAX_LOOP_FAILURES = 8;
+    // requests of other threads, run by the connection thread
+    private final ConcurrentLinkedQueue<Runnable> requests = new ConcurrentLinkedQueue<>();
+
+    private volatile ControlTransport transport = null;
+    private volatile ConnectionState state = ConnectionState.DISCONNECTED;
+    private volatile int connectTimeoutMillis = 2000;
+    private volatile long backoffInitialMillis = 250;
+    private volatile long backoffMaxMillis = 10000;
+    private volatile long reconnects = 0;
+    // written by the connection thread only
+    private volatile long bytesReceived = 0;
+
+    // fields of the connection thread only:
+    private String ipv4 = null;
+    private int port = 0;
+    private TransportType type = TransportType.TELNET_TCP;
+    private int attempt = 0;
+    // true once the current target was connected (so a failure later is a reconnect, not a connect error)
+    private boolean wasConnected = false;
+    private SocketChannel pending = null;
+    private long connectDeadline = 0;
+    private long retryAt = 0;
+    private final Random jitter = new Random();
+    // reused by every read of the connection thread
+    private final ByteBuffer received = ByteBuffer.allocateDirect(4096);
+
+    public ConnectionManager(ControlFrameEncoder encoder) throws IOException {
+        this.encoder = encoder;
+        this.selector = Selector.open();
+        this.thread = new Thread(this::loop, "FGModel-connection");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // the open transport, or null if not connected
+    public ControlTransport getTransport() { return transport; }
+
+    public ConnectionState getState() { return state; }
+
+    // how many times a lost / failed connection was connected again
+    public long getReconnects() { return reconnects; }
+
+    // bytes that flight gear sent back, of all the connections
+    public long getBytesReceived() { return bytesReceived; }
+
+    public void setConnectTimeout(int millis) { this.connectTimeoutMillis = millis; }
+
+    // delay before the first retry, doubled on every failed attempt up to maxMillis
+    public void setBackoff(long initialMillis, long maxMillis) {
+        if (initialMillis <= 0 || maxMillis < initialMillis)
+            throw new IllegalArgumentException("backoff should be positive and max not less than initial");
+        this.backoffInitialMillis = initialMillis;
+        this.backoffMaxMillis = maxMillis;
+    }
+
+    // connect to the given flight gear (closing the current connection), and keep reconnecting until disconnect()
+    public void connect(String ipv4, int port, TransportType type) {
+        request(() -> retarget(ipv4, port, type));
+    }
+
+    // like connect(), but if the given flight gear is already connected (or connecting), that connection is kept
+    // as it is (so a second speculative pre-connect doesn't throw away the socket of the first one)
+    public void connectOrKeep(String ipv4, int port, TransportType type) {
+        request(() -> {
+            boolean same = ipv4.equals(this.ipv4) && port == this.port && type == this.type;
+            if (same && (state == ConnectionState.CONNECTED || state == ConnectionState.CONNECTING))
+                return;
+            retarget(ipv4, port, type);
+        });
+    }
+
+    private void retarget(String ipv4, int port, TransportType type) {
+        closeAll();
+        this.ipv4 = ipv4;
+        this.port = port;
+        this.type = type;
+        this.attempt = 0;
+        this.wasConnected = false;
+        startConnect();
+    }
+
+    // close the connection, and stop reconnecting
+    public void disconnect() {
+        request(() -> {
+            closeAll();
+            this.ipv4 = null;
+            setState(ConnectionState.DISCONNECTED, 0, 0);
+        });
+    }
+
+    // subscribe every telnet connection to the properties of telemetry (and unsubscribe the previous ones),
+    // the open connection right away. null for no telemetry
+    public void setTelemetry(Telemetry telemetry) {
+        request(() -> {
+            Telemetry previous = this.telemetry;
+            this.telemetry = telemetry;
+            if (telemetry != null)
+                telemetry.resetLine();
+            if (!(transport instanceof TelnetTransport))
+                return;
+            TelnetTransport telnet = (TelnetTransport) transport;
+            try {
+                // the sending thread writes to the same socket (its pending bytes go first)
+                synchronized (encoder) {
+                    if (previous != null)
+                        telnet.sendCommand(previous.getUnsubscribeCommands());
+                    if (telemetry != null)
+                        telnet.sendCommand(telemetry.getSubscribeCommands());
+                }
+            } catch (IOException e) {
+                lost(telnet, e);
+            }
+        });
+    }
+
+    public Telemetry getTelemetry() { return telemetry; }
+
+    // probe the round trip of every telnet connection with probe (see LatencyProbe), null to stop probing
+    public void setLatencyProbe(LatencyProbe probe) {
+        request(() -> {
+            LatencyProbe previous = this.probe;
+            this.probe = probe;
+            if (!(transport instanceof TelnetTransport))
+                return;
+            TelnetTransport telnet = (TelnetTransport) transport;
+            try {
+                synchronized (encoder) {
+                    if (probe != null && previous == null)
+                        telnet.sendCommand(probe.getSubscribeCommand());
+                    else if (probe == null && previous != null)
+                        telnet.sendCommand(previous.getUnsubscribeCommand());
+                }
+            } catch (IOException e) {
+                lost(telnet, e);
+            }
+            if (probe != null)
+                probe.connected(System.nanoTime());
+        });
+    }
+
+    public LatencyProbe getLatencyProbe() { return probe; }
+
+    // called by the sending thread when a write to lost failed (or stalled for too long), returns immediately.
+    // if lost is still the current transport, it is closed, "Disconnected" is raised, and reconnecting begins
+    public void connectionLost(ControlTransport lost, IOException cause) {
+        request(() -> lost(lost, cause));
+    }
+
+    private void lost(ControlTransport lost, IOException cause) {
+        if (lost != this.transport)
+            return;
+        this.transport = null;
+        lost.close();
+        if (onError != null)
+            onError.handle(this, new ErrorEventArgs("Disconnected", cause));
+        backoff();
+    }
+
+    // stop the connection thread and close everything (the manager can't be used after it)
+    public void close() {
+        request(() -> {
+            closeAll();
+            setState(ConnectionState.DISCONNECTED, 0, 0);
+            running = false;
+        });
+    }
+
+    private void request(Runnable request) {
+        requests.add(request);
+        selector.wakeup();
+    }
+
+    // body of the connection thread
+    private void loop() {
+        int failures = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                long timeout = 0;
+                if (state == ConnectionState.CONNECTING && pending != null)
+                    timeout = Math.max(1, connectDeadline - now);
+                else if (state == ConnectionState.BACKOFF)
+                    timeout = Math.max(1, retryAt - now);
+                LatencyProbe latencyProbe = probe;
+                if (latencyProbe != null && transport instanceof TelnetTransport)
+                    timeout = Math.max(1, latencyProbe.nanosUntilDue(System.nanoTime()) / 1000000);
+                selector.select(timeout);
+
+                Runnable request;
+                while ((request = requests.poll()) != null)
+                    request.run();
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (key.isValid() && key.isConnectable() && key.channel() == pending)
+                        finishConnect();
+                    else if (key.isValid() && key.isReadable())
+                        drain(key);
+                }
+                selector.selectedKeys().clear();
+
+                now = System.currentTimeMillis();
+                if (state == ConnectionState.CONNECTING && pending != null && now >= connectDeadline)
+                    failed(new IOException("connect timed out after " + connectTimeoutMillis + " ms"));
+                else if (state == ConnectionState.BACKOFF && now >= retryAt)
+                    startConnect();
+                probe();
+                failures = 0;
+            } catch (IOException | RuntimeException e) {
+                // the selector itself failed: report it once and try again after a pause (a broken selector
+                // would fail right away again, so no spinning and no flood of errors), and give up after a while
+                failures++;
+                if (failures == 1 && onError != null)
+                    onError.handle(this, new ErrorEventArgs("Connection Error", e));
+                if (failures >= MAX_LOOP_FAILURES) {
+                    running = false;
+                    closeAll();
+                    setState(ConnectionState.DISCONNECTED, 0, 0);
+                    break;
+                }
+                try {
+                    Thread.sleep(backoffDelay(failures, LOOP_RETRY_INITIAL_MILLIS, LOOP_RETRY_MAX_MILLIS, 0));
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    // write the next probe of the latency probe when it is due
+    private void probe() {
+        LatencyProbe latencyProbe = probe;
+        ControlTransport current = transport;
+        if (latencyProbe == null || !(current instanceof TelnetTransport) || !latencyProbe.isDue(System.nanoTime()))
+            return;
+        TelnetTransport telnet = (TelnetTransport) current;
+        try {
+            synchronized (encoder) {
+                // the probe never competes with the controls: a socket that is behind gets no probe
+                long now = System.nanoTime();
+                if (telnet.getPendingBytes() > 0)
+                    latencyProbe.skip(now);
+                else
+                    telnet.sendCommand(latencyProbe.encode(now));
+            }
+        } catch (IOException e) {
+            lost(telnet, e);
+        }
+    }
+
+    private void startConnect() {
+        if (ipv4 == null)
+            return;
+        attempt++;
+        setState(ConnectionState.CONNECTING, attempt, 0);
+        try {
+            if (type == TransportType.TELNET_TCP) {
+                SocketChannel channel = SocketChannel.open();
+                pending = channel;
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                if (channel.connect(new InetSocketAddress(ipv4, port))) {
+                    connected(new TelnetTransport(channel, encoder));
+                } else {
+                    connectDeadline = System.currentTimeMillis() + connectTimeoutMillis;
+                    channel.register(selector, SelectionKey.OP_CONNECT);
+                }
+            } else {
+                // udp has no handshake
+                connected(GenericUdpTransport.open(ipv4, port, type == TransportType.GENERIC_UDP_BINARY));
+            }
+        } catch (IOException | RuntimeException e) {
+            failed(e);
+        }
+    }
+
+    private void finishConnect() {
+        try {
+            if (pending.finishConnect())
+                connected(new TelnetTransport(pending, encoder));
+        } catch (IOException | RuntimeException e) {
+            failed(e);
+        }
+    }
+
+    private void connected(ControlTransport opened) throws IOException {
+        if (opened instanceof TelnetTransport) {
+            TelnetTransport telnet = (TelnetTransport) opened;
+            // no prompts after every command, and whatever comes anyway is drained by drain()
+            telnet.enterDataMode();
+            Telemetry subscribed = telemetry;
+            if (subscribed != null) {
+                subscribed.resetLine();
+                telnet.sendCommand(subscribed.getSubscribeCommands());
+            }
+            LatencyProbe latencyProbe = probe;
+            if (latencyProbe != null) {
+                telnet.sendCommand(latencyProbe.getSubscribeCommand());
+                latencyProbe.connected(System.nanoTime());
+            }
+            telnet.getChannel().register(selector, SelectionKey.OP_READ, telnet);
+        }
+        pending = null;
+        // the new flight gear connection should get the full state
+        synchronized (encoder) {
+            opened.forceKeyframe();
+        }
+        if (wasConnected || attempt > 1)
+            reconnects++;
+        wasConnected = true;
+        attempt = 0;
+        transport = opened;
+        setState(ConnectionState.CONNECTED, 0, 0);
+    }
+
+    // read everything the server sent to the transport of key, and give it to onReceive
+    private void drain(SelectionKey key) {
+        TelnetTransport telnet = (TelnetTransport) key.attachment();
+        try {
+            int n;
+            do {
+                received.clear();
+                n = telnet.getChannel().read(received);
+                if (n > 0) {
+                    bytesReceived += n;
+                    received.flip();
+                    Telemetry subscribed = telemetry;
+                    if (subscribed != null) {
+                        subscribed.handle(received);
+                        received.rewind();
+                    }
+                    LatencyProbe latencyProbe = probe;
+                    if (latencyProbe != null) {
+                        latencyProbe.handle(received);
+                        received.rewind();
+                    }
+                    ReceiveHandler handler = onReceive;
+                    if (handler != null)
+                        handler.handle(received);
+                }
+            } while (n > 0);
+            if (n < 0) {
+                key.cancel();
+                lost(telnet, new IOException("connection closed by flight gear"));
+            }
+        } catch (IOException e) {
+            key.cancel();
+            lost(telnet, e);
+        }
+    }
+
+    private void failed(Exception cause) {
+        closePending();
+        // only the first failure of connect() is an error for the user, the next ones are just state changes
+        if (attempt == 1 && !wasConnected && onError != null)
+            onError.handle(this, new ErrorEventArgs("Connection Error", cause));
+        backoff();
+    }
+
+    private void backoff() {
+        if (ipv4 == null) {
+            setState(ConnectionState.DISCONNECTED, 0, 0);
+            return;
+        }
+        long delay = backoffDelay(Math.max(1, attempt), backoffInitialMillis, backoffMaxMillis, jitter.nextDouble());
+        retryAt = System.currentTimeMillis() + delay;
+        setState(ConnectionState.BACKOFF, attempt, delay);
+    }
+
+    // delay before the next attempt after the given number of failed attempts (1 and up):
+    // initial * 2^(attempt-1), at most max, and then a random part of its second half is taken off (jitter 0 to 1),
+    // so many clients that lost the same server won't retry all at once
+    static long backoffDelay(int attempt, long initialMillis, long maxMillis, double jitter) {
+        long delay = initialMillis << Math.min(attempt - 1, 30);
+        if (delay <= 0 || delay > maxMillis)
+            delay = maxMillis;
+        return delay - (long) (delay / 2 * jitter);
+    }
+
+    private void closePending() {
+        if (pending == null)
+            return;
+        try {
+            pending.close();
+        } catch (IOException e) {
+            // not used anymore anyway
+        }
+        pending = null;
+    }
+
+    private void closeAll() {
+        closePending();
+        ControlTransport current = transport;
+        transport = null;
+        if (current != null)
+            current.close();
+    }
+
+    private void setState(ConnectionState newState, int attempt, long retryInMillis) {
+        ConnectionState previous = this.state;
+        this.state = newState;
+        if (onStateChange != null)
+            onStateChange.handle(this, new ConnectionStateEventArgs(previous, newState, attempt, retryInMillis));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.remotejoystick;
+
+// states of the connection of FGModel to flight gear (see ConnectionManager)
+public enum ConnectionState {
+    // no connection, and none is wanted (before connect() / after disconnect())
+    DISCONNECTED,
+    // a connection attempt is in progress
+    CONNECTING,
+    // connected, control frames are sent
+    CONNECTED,
+    // the last attempt failed or the connection was lost, waiting before the next attempt
+    BACKOFF
+}
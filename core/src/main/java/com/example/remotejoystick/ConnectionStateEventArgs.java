@@ -0,0 +1,17 @@
+package com.example.remotejoystick;
+
+// class to gather a change of ConnectionState:
+// the previous and the new state, the number of the connection attempt (0 when connected or disconnected),
+// and in BACKOFF, how long until the next attempt (0 otherwise)
+public class ConnectionStateEventArgs {
+    public final ConnectionState previous;
+    public final ConnectionState state;
+    public final int attempt;
+    public final long retryInMillis;
+    public ConnectionStateEventArgs(ConnectionState previous, ConnectionState state, int attempt, long retryInMillis){
+        this.previous = previous;
+        this.state = state;
+        this.attempt = attempt;
+        this.retryInMillis = retryInMillis;
+    }
+}
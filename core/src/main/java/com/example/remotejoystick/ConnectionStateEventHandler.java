@@ -0,0 +1,6 @@
+package com.example.remotejoystick;
+
+// interface of handler of changes of the connection state (raised by the connection thread, not the ui thread)
+public interface ConnectionStateEventHandler {
+    void handle(Object sender, ConnectionStateEventArgs args);
+}
@@ -0,0 +1,262 @@
+package com.example.remotejoystick;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+// class that encodes one frame of the controls as telnet "set" lines (the flight gear props protocol)
+// into a reused direct ByteBuffer, without allocating anything per frame:
+// the properties are given by a BindingTable (by default the 4 controls of the joystick),
+// their "set <path> " prefixes are encoded once, and the floats are written by a fixed-precision formatter,
+// so all the properties of a frame go out in one buffer (one write) whatever their number is.
+// encodeChanged() writes only the properties whose quantized value moved more than their deadband (delta encoding),
+// and every keyframe interval a full frame, so flight gear recovers from any missed frame.
+// not thread safe - each sending thread should use its own encoder (or lock it).
+public class ControlFrameEncoder {
+    // indexes of the inputs of the 4 controls (in the default table also the indexes of their bindings)
+    public static final int AILERON = 0;
+    public static final int ELEVATOR = 1;
+    public static final int RUDDER = 2;
+    public static final int THROTTLE = 3;
+    public static final int AXES = 4;
+
+    // digits after the decimal point of each value (1e-4 is far below what the joystick can give)
+    public static final int DECIMALS = 4;
+    private static final long DECIMALS_SCALE = 10000;
+    // values are clamped to this, so the integer part always fits in the scratch buffer
+    private static final float MAX_ABS_VALUE = 1000000f;
+    // longest value: sign, 7 integer digits, point and the decimals
+    private static final int MAX_VALUE_BYTES = 9 + DECIMALS;
+
+    private static final byte[] SET = ascii("set ");
+    private static final byte[] CRLF = ascii("\r\n");
+
+    private BindingTable table;
+    // compiled table: "set <path> " prefix, input and value curve of every binding
+    private byte[][] prefixes;
+    private int[] inputIndexes;
+    private PropertyBinding[] bindings;
+    // the current value of every input of the table (the 4 controls are given to encode(), the rest by setInput())
+    private float[] inputs;
+
+    // delta encoding state: per binding quantization step and deadband, and the last quantized value that was sent
+    private float[] steps;
+    private float[] deadbands;
+    private long[] lastSent;
+    private long[] quantized;
+    // every keyframeInterval frames of encodeChanged(), a full frame is encoded
+    private int keyframeInterval = 50;
+    private int framesSinceKeyframe = 0;
+    private boolean keyframePending = true;
+
+    private ByteBuffer buffer;
+    // frame of the sent state (encodeSentState()), separate so it can be written along with the last frame
+    private ByteBuffer stateBuffer;
+    // digits of the number are written here in reverse order, and then copied to buffer
+    private final byte[] scratch = new byte[24];
+
+    public ControlFrameEncoder() {
+        this(BindingTable.defaults());
+    }
+
+    public ControlFrameEncoder(BindingTable table) {
+        setBindings(table);
+    }
+
+    // compile the table: encode the prefixes and size the buffer for a frame of all its properties.
+    // the values of inputs that are in both tables are kept, the next frame is a keyframe
+    public void setBindings(BindingTable table) {
+        List<PropertyBinding> list = table.getBindings();
+        int count = list.size();
+        byte[][] prefixes = new byte[count][];
+        int[] inputIndexes = new int[count];
+        float[] steps = new float[count];
+        float[] deadbands = new float[count];
+        int maxFrame = 0;
+        for (int i = 0; i < count; i++) {
+            PropertyBinding binding = list.get(i);
+            byte[] path = ascii(binding.path);
+            byte[] prefix = new byte[SET.length + path.length + 1];
+            System.arraycopy(SET, 0, prefix, 0, SET.length);
+            System.arraycopy(path, 0, prefix, SET.length, path.length);
+            prefix[prefix.length - 1] = ' ';
+            prefixes[i] = prefix;
+            inputIndexes[i] = binding.inputIndex;
+            steps[i] = binding.step;
+            deadbands[i] = binding.deadband;
+            maxFrame += prefix.length + MAX_VALUE_BYTES + CRLF.length;
+        }
+        float[] inputs = new float[table.getInputs().size()];
+        if (this.inputs != null)
+            System.arraycopy(this.inputs, 0, inputs, 0, Math.min(inputs.length, this.inputs.length));
+
+        this.table = table;
+        this.prefixes = prefixes;
+        this.inputIndexes = inputIndexes;
+        this.bindings = list.toArray(new PropertyBinding[count]);
+        this.inputs = inputs;
+        this.steps = steps;
+        this.deadbands = deadbands;
+        this.lastSent = new long[count];
+        this.quantized = new long[count];
+        this.buffer = ByteBuffer.allocateDirect(Math.max(256, maxFrame));
+        this.stateBuffer = ByteBuffer.allocateDirect(buffer.capacity());
+        this.keyframePending = true;
+    }
+
+    public BindingTable getBindings() { return table; }
+
+    public int getBindingCount() { return bindings.length; }
+
+    // most bytes of one frame (all the properties)
+    public int getMaxFrameBytes() { return buffer.capacity(); }
+
+    // set the value of an input (an index of table.getInputs()), it is sent with the next frame
+    public void setInput(int input, float value) { inputs[input] = value; }
+
+    public float getInput(int input) { return inputs[input]; }
+
+    // encode the 4 controls (and the other inputs) to the reused buffer,
+    // and return it ready to be written (position 0, limit = length).
+    // the returned buffer is valid until the next call of encode()
+    public ByteBuffer encode(float aileron, float elevator, float rudder, float throttle) {
+        setControls(aileron, elevator, rudder, throttle);
+        buffer.clear();
+        for (int i = 0; i < bindings.length; i++)
+            putLine(buffer, prefixes[i], bindings[i].apply(inputs[inputIndexes[i]]));
+        buffer.flip();
+        return buffer;
+    }
+
+    // set the quantization step (positive, at least 10^-DECIMALS) and deadband (not negative) of one binding
+    // (of the default table: one axis, e.g. AILERON).
+    // the binding is sent only when its quantized value moved by at least deadband from the last sent value
+    public void setResolution(int binding, float step, float deadband) {
+        if (!(step >= 1f / DECIMALS_SCALE) || !(deadband >= 0))
+            throw new IllegalArgumentException("step should be at least 0.0001 and deadband not negative");
+        steps[binding] = step;
+        deadbands[binding] = deadband;
+        keyframePending = true;
+    }
+
+    // a full frame is encoded every interval frames of encodeChanged() (1 means always full frames)
+    public void setKeyframeInterval(int interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("keyframe interval should be positive");
+        this.keyframeInterval = interval;
+    }
+
+    // make the next encodeChanged() encode a full frame (e.g. for a new connection)
+    public void forceKeyframe() { keyframePending = true; }
+
+    // like encode(), but only with the bindings that changed since the last sent value (quantized values are sent),
+    // or all of them when it is time for a keyframe. the returned buffer may be empty - then nothing should be sent
+    public ByteBuffer encodeChanged(float aileron, float elevator, float rudder, float throttle) {
+        setControls(aileron, elevator, rudder, throttle);
+        for (int i = 0; i < bindings.length; i++)
+            quantized[i] = quantize(i, bindings[i].apply(inputs[inputIndexes[i]]));
+
+        boolean keyframe = keyframePending || ++framesSinceKeyframe >= keyframeInterval;
+        if (keyframe) {
+            keyframePending = false;
+            framesSinceKeyframe = 0;
+        }
+
+        buffer.clear();
+        for (int i = 0; i < bindings.length; i++) {
+            long delta = Math.abs(quantized[i] - lastSent[i]);
+            if (keyframe || (delta != 0 && delta * steps[i] >= deadbands[i])) {
+                lastSent[i] = quantized[i];
+                putLine(buffer, prefixes[i], quantized[i] * steps[i]);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // a full frame of what encodeChanged() sent so far (the last sent value of every binding),
+    // for a receiver that missed some of its frames, to get it back in sync with the others.
+    // the returned buffer is valid until the next call of encodeSentState(), the buffer of encodeChanged() stays valid
+    public ByteBuffer encodeSentState() {
+        stateBuffer.clear();
+        for (int i = 0; i < bindings.length; i++)
+            putLine(stateBuffer, prefixes[i], lastSent[i] * steps[i]);
+        stateBuffer.flip();
+        return stateBuffer;
+    }
+
+    private void setControls(float aileron, float elevator, float rudder, float throttle) {
+        inputs[AILERON] = aileron;
+        inputs[ELEVATOR] = elevator;
+        inputs[RUDDER] = rudder;
+        inputs[THROTTLE] = throttle;
+    }
+
+    private long quantize(int binding, float value) {
+        if (value != value)
+            value = 0;
+        if (value > MAX_ABS_VALUE)
+            value = MAX_ABS_VALUE;
+        else if (value < -MAX_ABS_VALUE)
+            value = -MAX_ABS_VALUE;
+        return Math.round((double) value / steps[binding]);
+    }
+
+    private void putLine(ByteBuffer buffer, byte[] prefix, float value) {
+        buffer.put(prefix);
+        putFixed(buffer, scratch, value);
+        buffer.put(CRLF);
+    }
+
+    // write value as ascii with exactly DECIMALS digits after the point, e.g. -0.5 -> "-0.5000"
+    // NaN is written as 0, and huge values are clamped. scratch should have at least 24 bytes
+    // (package-private so other encoders of this package will format the values the same way)
+    static void putFixed(ByteBuffer buffer, byte[] scratch, float value) {
+        if (value != value)
+            value = 0;
+        if (value > MAX_ABS_VALUE)
+            value = MAX_ABS_VALUE;
+        else if (value < -MAX_ABS_VALUE)
+            value = -MAX_ABS_VALUE;
+
+        long scaled = Math.round(Math.abs((double) value) * DECIMALS_SCALE);
+        // "-0.0000" is not written, only real negative values (after rounding) get the sign
+        if (value < 0 && scaled != 0)
+            buffer.put((byte) '-');
+
+        int n = 0;
+        // fraction digits (fixed count, including leading zeros), in reverse order
+        long fraction = scaled % DECIMALS_SCALE;
+        for (int i = 0; i < DECIMALS; i++) {
+            scratch[n++] = (byte) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        scratch[n++] = (byte) '.';
+        // integer digits, at least one ("0.xxxx")
+        long integer = scaled / DECIMALS_SCALE;
+        do {
+            scratch[n++] = (byte) ('0' + integer % 10);
+            integer /= 10;
+        } while (integer != 0);
+
+        while (n > 0)
+            buffer.put(scratch[--n]);
+    }
+
+    // write non negative value as ascii digits, scratch should have at least 20 bytes
+    static void putDigits(ByteBuffer buffer, byte[] scratch, long value) {
+        int n = 0;
+        do {
+            scratch[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0)
+            buffer.put(scratch[--n]);
+    }
+
+    static byte[] ascii(String s) {
+        byte[] bytes = new byte[s.length()];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) s.charAt(i);
+        return bytes;
+    }
+}
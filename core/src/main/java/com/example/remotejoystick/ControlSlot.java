@@ -0,0 +1,94 @@
+package com.example.remotejoystick;
+
+// single shared slot that holds only the newest control state (aileron, elevator, rudder, throttle).
+// writers overwrite the slot (nothing is queued), and the reader always takes the newest state,
+// so states that were overwritten before the reader got to them are coalesced - but the last one is never lost.
+public class ControlSlot {
+    private float aileron = 0;
+    private float elevator = 0;
+    private float rudder = 0;
+    private float throttle = 0;
+    // System.nanoTime() of the input event of the state, and of ViewModel.setValues() (0 if unknown)
+    private long inputNanos = 0;
+    private long viewModelNanos = 0;
+    // incremented on every publish(), so the reader knows whether there is something new and how much was skipped
+    private long version = 0;
+    // incremented on every wakeUp(), so a waiting reader returns without a new version
+    private long wakeUps = 0;
+
+    // overwrite the slot with the newest state and wake up the reader, returns the version of the new state
+    public synchronized long publish(float aileron, float elevator, float rudder, float throttle) {
+        return publish(aileron, elevator, rudder, throttle, 0, 0);
+    }
+
+    // publish() with the timestamps of the state, for latency tracking
+    public synchronized long publish(float aileron, float elevator, float rudder, float throttle,
+                                     long inputNanos, long viewModelNanos) {
+        this.aileron = aileron;
+        this.elevator = elevator;
+        this.rudder = rudder;
+        this.throttle = throttle;
+        this.inputNanos = inputNanos;
+        this.viewModelNanos = viewModelNanos;
+        this.version++;
+        notifyAll();
+        return this.version;
+    }
+
+    // publish the current state again as a new version (without its timestamps, the wait was not of the pipeline),
+    // so the reader sends it now (e.g. to a connection that just came up) instead of at its next idle keyframe.
+    // nothing happens if nothing was published yet
+    public synchronized void republish() {
+        if (this.version == 0)
+            return;
+        this.inputNanos = 0;
+        this.viewModelNanos = 0;
+        this.version++;
+        notifyAll();
+    }
+
+    // wake up the reader waiting in awaitNewer() without a new state (it returns as on a timeout),
+    // e.g. to stop it without an interrupt
+    public synchronized void wakeUp() {
+        this.wakeUps++;
+        notifyAll();
+    }
+
+    // block until the slot holds state newer than lastSeenVersion (or wakeUp() was called),
+    // then copy it into out = {aileron, elevator, rudder, throttle} and return its version
+    public synchronized long awaitNewer(long lastSeenVersion, float[] out) throws InterruptedException {
+        long lastWakeUps = this.wakeUps;
+        while (this.version == lastSeenVersion && this.wakeUps == lastWakeUps)
+            wait();
+        out[0] = this.aileron;
+        out[1] = this.elevator;
+        out[2] = this.rudder;
+        out[3] = this.throttle;
+        return this.version;
+    }
+
+    // like awaitNewer(), but waits at most timeoutMillis - then copies the current state anyway,
+    // and returns lastSeenVersion if nothing new was published meanwhile (so does a wakeUp()).
+    // if times isn't null, the timestamps of the state are copied to times = {inputNanos, viewModelNanos}
+    public synchronized long awaitNewer(long lastSeenVersion, float[] out, long[] times, long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        long left = timeoutMillis;
+        long lastWakeUps = this.wakeUps;
+        while (this.version == lastSeenVersion && this.wakeUps == lastWakeUps && left > 0) {
+            wait(left);
+            left = deadline - System.currentTimeMillis();
+        }
+        out[0] = this.aileron;
+        out[1] = this.elevator;
+        out[2] = this.rudder;
+        out[3] = this.throttle;
+        if (times != null) {
+            times[0] = this.inputNanos;
+            times[1] = this.viewModelNanos;
+        }
+        return this.version;
+    }
+
+    public synchronized long getVersion() { return version; }
+}
@@ -0,0 +1,25 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+
+// interface of an open connection to flight gear, that control frames are sent through.
+// implemented by TelnetTransport (tcp, props protocol) and GenericUdpTransport (udp, generic protocol).
+// send() is called by one thread at a time.
+public interface ControlTransport {
+    // returned by send() when the socket can't take more bytes now: the frame was skipped (nothing of it was sent),
+    // and a newer frame should be sent later
+    int STALLED = -1;
+
+    // send one frame of the 4 controls, never blocks on a non-blocking socket.
+    // returns how many bytes the socket took (0 if nothing had to be sent), or STALLED
+    int send(float aileron, float elevator, float rudder, float throttle) throws IOException;
+
+    // bytes of the last frame that the socket didn't take yet (0 if the socket keeps up)
+    int getPendingBytes();
+
+    // new connection / lost frames: the next send() should carry the full state
+    void forceKeyframe();
+
+    // close the connection, never throws
+    void close();
+}
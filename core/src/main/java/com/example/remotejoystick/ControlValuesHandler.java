@@ -0,0 +1,9 @@
+package com.example.remotejoystick;
+
+// handler of control values updates == (aileron, elevator, rudder, throttle), aileron, elevator and rudder
+// between -1 to 1, throttle between 0 to 1, with primitives only, so nothing is allocated per update.
+// inputNanos: System.nanoTime() of the input sample (0 if unknown), for latency tracking.
+// (ViewModel::setValues fits it)
+public interface ControlValuesHandler {
+    void handle(float aileron, float elevator, float rudder, float throttle, long inputNanos);
+}
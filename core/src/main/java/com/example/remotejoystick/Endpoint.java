@@ -0,0 +1,87 @@
+package com.example.remotejoystick;
+
+// a flight gear instance to connect to: ipv4, port and transport.
+// the parsers validate the text of the connection boxes without regex, split or boxing, so a check on every
+// keystroke (or at startup) costs no allocation. immutable.
+public class Endpoint {
+    public final String ip;
+    public final int port;
+    public final TransportType transport;
+
+    public Endpoint(String ip, int port, TransportType transport) {
+        if (parseIpv4(ip) < 0)
+            throw new IllegalArgumentException("Invalid IP4 address");
+        if (port <= 0 || port > 65535)
+            throw new IllegalArgumentException("Port is int between 1 to 65535");
+        if (transport == null)
+            throw new IllegalArgumentException("transport should not be null");
+        this.ip = ip;
+        this.port = port;
+        this.transport = transport;
+    }
+
+    // the address of text as an unsigned 32 bit int, or -1 if it isn't [num].[num].[num].[num]
+    // with every num a positive int between 0 to 255 (as the regex check of ViewModel.connect() was)
+    public static long parseIpv4(CharSequence text) {
+        if (text == null)
+            return -1;
+        long address = 0;
+        int octets = 0;
+        int octet = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                digits++;
+                if (octet > 255)
+                    return -1;
+            } else if (c == '.' && digits > 0 && octets < 3) {
+                address = (address << 8) | octet;
+                octets++;
+                octet = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
+        }
+        if (digits == 0 || octets != 3)
+            return -1;
+        return (address << 8) | octet;
+    }
+
+    // the tcp/udp port of text (wikipedia: within [1,65535]), or -1
+    public static int parsePort(CharSequence text) {
+        if (text == null || text.length() == 0)
+            return -1;
+        int port = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            port = port * 10 + (c - '0');
+            if (port > 65535)
+                return -1;
+        }
+        return port > 0 ? port : -1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Endpoint))
+            return false;
+        Endpoint endpoint = (Endpoint) other;
+        return port == endpoint.port && transport == endpoint.transport && ip.equals(endpoint.ip);
+    }
+
+    @Override
+    public int hashCode() {
+        return (ip.hashCode() * 31 + port) * 31 + transport.hashCode();
+    }
+
+    // "ip port TRANSPORT", the line of RecentEndpoints
+    @Override
+    public String toString() {
+        return ip + " " + port + " " + transport.name();
+    }
+}
@@ -0,0 +1,549 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.LockSupport;
+
+// class that connect to flight gear socket and send data to it.
+// (tcp telnet socket by default, or udp generic protocol socket, see TransportType)
+// connecting and reconnecting is done by the thread of ConnectionManager,
+// socket writes are in different thread, using ExecutorService
+// in conflating send mode, control frames are sent by a dedicated sender thread instead (see setConflatingSend)
+public class FGModel {
+    // event happens when error that related to the socket occurs.
+    public ErrorEventHandler onError = null;
+    // event happens when the connection state changes (connecting, connected, lost and waiting to reconnect...)
+    public ConnectionStateEventHandler onStateChange = null;
+    // encodes the telnet frames of both send modes to one reused buffer (sendFrame() locks it),
+    // and keeps the resolution settings between connections
+    private final ControlFrameEncoder encoder = new ControlFrameEncoder();
+    private final ConnectionManager connection;
+    // when not null, frames go to all the instances of connectFanOut() instead of the connection
+    private volatile FanOutTransport fanOut = null;
+    // a transport that can't take any byte for this long is considered lost (e.g. half-open connection)
+    private volatile long stallTimeoutMillis = 3000;
+    // when the current transport began to stall (0 if it isn't stalled), used under the encoder lock
+    private long stalledSinceNanos = 0;
+    private ExecutorService es = null;
+    // frames per second of both send modes, between min and max Hz, by how fast the socket takes the writes
+    private final SendRateController rate = new SendRateController(5, 50);
+
+    // conflating send mode: updatePlaneData() only overwrites slot, and the sender thread sends the newest state
+    private final ControlSlot slot = new ControlSlot();
+    private volatile boolean conflating = false;
+    // the sender thread, it runs while it is this one (stopped by a wakeUp() of slot and an unpark, not an interrupt,
+    // which would close the socket under a write of it)
+    private volatile Thread sender = null;
+    // when no new state arrives for this long, the sender thread sends a full frame of the last state
+    private static final long IDLE_KEYFRAME_MILLIS = 1000;
+    // frames warmUp() encodes (enough for the jit to compile the encoding path)
+    private static final int WARM_UP_FRAMES = 5000;
+
+    // metrics of the model and its connection (and of the stages before it, that register theirs here)
+    private final Metrics metrics = new Metrics();
+    // counters: updatePlaneData() calls, frames actually written to the socket,
+    // and states that were overwritten in the slot before the sender thread took them
+    private final StripedCounter updatesReceived = metrics.counter("model.updatesReceived");
+    private final StripedCounter framesSent = metrics.counter("model.framesSent");
+    private final StripedCounter statesCoalesced = metrics.counter("model.statesCoalesced");
+    // bytes written to the socket, and frames that had no changed control (so nothing was written)
+    private final StripedCounter bytesSent = metrics.counter("model.bytesSent");
+    private final StripedCounter framesUnchanged = metrics.counter("model.framesUnchanged");
+    // updates that the time limiter of the per-event mode didn't send
+    private final StripedCounter updatesDropped = metrics.counter("model.updatesDropped");
+    // frames that were skipped because the socket couldn't take them (see ControlTransport.STALLED)
+    private final StripedCounter framesStalled = metrics.counter("model.framesStalled");
+    // errors raised by onError (connection errors, lost connections, stalled writes)
+    private final StripedCounter errors = metrics.counter("model.errors");
+
+    // latency of the stages of the written samples, by LatencyStage ordinal (recorded only if latencyTracking)
+    private volatile boolean latencyTracking = false;
+    private final LatencyHistogram[] latency = new LatencyHistogram[LatencyStage.values().length];
+    // System.nanoTime() when the first control frame was written (0 until then), see getFirstFrameNanos()
+    private volatile long firstFrameNanos = 0;
+
+    public FGModel() {
+        final ThreadPoolExecutor pool = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        this.es = pool;
+        try {
+            this.connection = new ConnectionManager(encoder);
+        } catch (IOException e) {
+            throw new IllegalStateException("can't open selector for the connection thread", e);
+        }
+        final FGModel self = this;
+        // errors and state changes of the connection are of this model
+        this.connection.onError = new ErrorEventHandler() {
+            @Override
+            public void handle(Object sender, ErrorEventArgs args) {
+                self.errors.increment();
+                if (self.onError != null)
+                    self.onError.handle(self, args);
+            }
+        };
+        this.connection.onStateChange = new ConnectionStateEventHandler() {
+            @Override
+            public void handle(Object sender, ConnectionStateEventArgs args) {
+                // a new connection gets the current state right away, not at the next idle keyframe
+                // (e.g. the stick was set while a pre-connect was still connecting, and that state found no socket)
+                if (args.state == ConnectionState.CONNECTED && self.conflating)
+                    self.slot.republish();
+                if (self.onStateChange != null)
+                    self.onStateChange.handle(self, args);
+            }
+        };
+        for (int i = 0; i < latency.length; i++)
+            latency[i] = new LatencyHistogram();
+
+        // gauges are read only by snapshots
+        metrics.gauge("model.sendRateHz", rate::getRateHz);
+        // tasks of the per-event mode waiting for the socket
+        metrics.gauge("model.queueDepth", () -> pool.getQueue().size());
+        metrics.gauge("connection.state", () -> connection.getState().ordinal());
+        metrics.gauge("connection.reconnects", connection::getReconnects);
+        metrics.gauge("connection.bytesReceived", connection::getBytesReceived);
+        metrics.gauge("fanOut.connected", () -> {
+            FanOutTransport transport = fanOut;
+            return transport != null ? transport.getConnectedCount() : 0;
+        });
+        metrics.gauge("connection.pendingBytes", () -> {
+            ControlTransport transport = getTransport();
+            return transport != null ? transport.getPendingBytes() : 0;
+        });
+        metrics.gauge("latency.inputToWritten.p50Micros",
+                () -> latency[LatencyStage.INPUT_TO_WRITTEN.ordinal()].getPercentile(0.5) / 1000);
+        metrics.gauge("latency.inputToWritten.p99Micros",
+                () -> latency[LatencyStage.INPUT_TO_WRITTEN.ordinal()].getPercentile(0.99) / 1000);
+    }
+
+    // run the send path of a frame (the slot and the encoder of the bindings) a few thousand times on scratch
+    // objects, so the first real frame doesn't pay for class loading and the interpreter.
+    // nothing is sent and the state of this model isn't touched, so it can run on any thread, e.g. while connecting
+    public void warmUp() {
+        ControlFrameEncoder scratch = new ControlFrameEncoder(getBindings());
+        ControlSlot scratchSlot = new ControlSlot();
+        final float[] state = new float[4];
+        final long[] times = new long[2];
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            float value = (i % 200) / 100f - 1;
+            long version = scratchSlot.publish(value, -value, value / 2, (i % 100) / 100f, i, i);
+            try {
+                scratchSlot.awaitNewer(version - 1, state, times, 0);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (i % 64 == 0)
+                scratch.forceKeyframe();
+            scratch.encodeChanged(state[0], state[1], state[2], state[3]);
+        }
+    }
+
+    // open new socket and connect to the tcp-flight-gear-server
+    public void connect(String ipv4, int port) {
+        connect(ipv4, port, TransportType.TELNET_TCP);
+    }
+
+    // open new socket of the given type and connect to the flight-gear-server.
+    // returns immediately: the prev sockets are closed and the new one is connected by the connection thread,
+    // which also reconnects (with growing delays) whenever the connection is lost, until disconnect()
+    public void connect(String ipv4, int port, TransportType type) {
+        closeFanOut();
+        connection.connect(ipv4, port, type);
+    }
+
+    // like connect(), but a connection to (or a connect in progress to) this same flight gear is kept,
+    // so the socket of a pre-connect is used as it is
+    public void connectOrKeep(String ipv4, int port, TransportType type) {
+        closeFanOut();
+        connection.connectOrKeep(ipv4, port, type);
+    }
+
+    // send the same frames to several flight gear instances (ipv4s[i]:ports[i], telnet) instead of one connection.
+    // each instance is connected, reconnected and throttled on its own (see FanOutTransport),
+    // the errors and state changes of an instance are raised by this model's events with its FanOutTarget as sender
+    public void connectFanOut(String[] ipv4s, int[] ports) {
+        connection.disconnect();
+        FanOutTransport transport;
+        try {
+            transport = new FanOutTransport(encoder, ipv4s, ports);
+        } catch (IOException e) {
+            if (onError != null)
+                onError.handle(this, new ErrorEventArgs("Connection Error", e));
+            return;
+        }
+        transport.setStallTimeout(stallTimeoutMillis);
+        final FGModel self = this;
+        transport.onError = new ErrorEventHandler() {
+            @Override
+            public void handle(Object sender, ErrorEventArgs args) {
+                self.errors.increment();
+                if (self.onError != null)
+                    self.onError.handle(sender, args);
+            }
+        };
+        transport.onStateChange = new ConnectionStateEventHandler() {
+            @Override
+            public void handle(Object sender, ConnectionStateEventArgs args) {
+                if (self.onStateChange != null)
+                    self.onStateChange.handle(sender, args);
+            }
+        };
+        FanOutTransport previous;
+        synchronized (encoder) {
+            previous = fanOut;
+            fanOut = transport;
+        }
+        if (previous != null)
+            previous.close();
+        transport.connect();
+    }
+
+    // the instances of connectFanOut() with their state and stats (empty if not fanning out)
+    public List<FanOutTarget> getFanOutTargets() {
+        FanOutTransport transport = fanOut;
+        return transport == null ? Collections.<FanOutTarget>emptyList() : transport.getTargets();
+    }
+
+    private void closeFanOut() {
+        FanOutTransport previous;
+        synchronized (encoder) {
+            previous = fanOut;
+            fanOut = null;
+        }
+        if (previous != null)
+            previous.close();
+    }
+
+    // close the connection (or the fan-out) and stop reconnecting
+    public void disconnect() {
+        closeFanOut();
+        connection.disconnect();
+    }
+
+    // stop all the threads of this model and close the connection (the model can't be used after it)
+    public void close() {
+        setConflatingSend(false);
+        closeFanOut();
+        connection.close();
+        es.shutdown();
+    }
+
+    public ConnectionState getConnectionState() { return connection.getState(); }
+
+    public long getReconnects() { return connection.getReconnects(); }
+
+    // bytes that flight gear sent back (they are read and dropped, unless a ReceiveHandler is set)
+    public long getBytesReceived() { return connection.getBytesReceived(); }
+
+    // handler of the bytes flight gear sends back (null for none), called by the connection thread
+    public void setReceiveHandler(ReceiveHandler handler) { connection.onReceive = handler; }
+
+    // mirror the properties of telemetry (pushed by flight gear, over the telnet connection), null for none.
+    // (a fan-out doesn't subscribe, see connectFanOut())
+    public void setTelemetry(Telemetry telemetry) { connection.setTelemetry(telemetry); }
+
+    public Telemetry getTelemetry() { return connection.getTelemetry(); }
+
+    // measure the round trip to flight gear over the telnet connection with probe (see LatencyProbe), null to stop
+    public void setLatencyProbe(LatencyProbe probe) { connection.setLatencyProbe(probe); }
+
+    public LatencyProbe getLatencyProbe() { return connection.getLatencyProbe(); }
+
+    // delays between reconnect attempts: initialMillis after the first failure, doubled up to maxMillis
+    public void setReconnectBackoff(long initialMillis, long maxMillis) {
+        connection.setBackoff(initialMillis, maxMillis);
+    }
+
+    // a connection that can't take any byte for this long is closed and reconnected
+    public void setStallTimeout(long millis) { this.stallTimeoutMillis = millis; }
+
+    private ControlTransport getTransport() {
+        FanOutTransport transport = fanOut;
+        return transport != null ? transport : connection.getTransport();
+    }
+
+    // turn on/off the conflating send mode.
+    // when on, a dedicated thread always sends the newest state (at most getSendRate() frames per second)
+    // and the last state is never dropped, when off every updatePlaneData() call that the rate allows is a task of es
+    public synchronized void setConflatingSend(boolean enabled) {
+        if (enabled == this.conflating)
+            return;
+        this.conflating = enabled;
+        if (enabled) {
+            // start from the state before the current one, so the newest state will be sent right away
+            final long startVersion = Math.max(0, slot.getVersion() - 1);
+            this.sender = new Thread(() -> senderLoop(startVersion), "FGModel-sender");
+            this.sender.setDaemon(true);
+            this.sender.start();
+        } else {
+            Thread stopped = this.sender;
+            this.sender = null;
+            slot.wakeUp();
+            LockSupport.unpark(stopped);
+        }
+    }
+
+    public boolean isConflatingSend() { return conflating; }
+
+    // max frames per second (positive), the rate is lowered from it only while the socket can't keep up
+    public void setMaxSendRate(int hz) {
+        if (hz <= 0)
+            throw new IllegalArgumentException("max send rate should be positive");
+        rate.setRange(Math.min(rate.getMinHz(), hz), hz);
+    }
+
+    public int getMaxSendRate() { return rate.getMaxHz(); }
+
+    // min frames per second (positive, not above the max rate), the rate isn't lowered below it on congestion
+    public void setMinSendRate(int hz) {
+        rate.setRange(hz, rate.getMaxHz());
+    }
+
+    public int getMinSendRate() { return rate.getMinHz(); }
+
+    // frames per second now (between the min and the max rate)
+    public int getSendRate() { return rate.getRateHz(); }
+
+    public long getUpdatesReceived() { return updatesReceived.get(); }
+
+    public long getFramesSent() { return framesSent.get(); }
+
+    public long getStatesCoalesced() { return statesCoalesced.get(); }
+
+    public long getBytesSent() { return bytesSent.get(); }
+
+    public long getFramesUnchanged() { return framesUnchanged.get(); }
+
+    public long getUpdatesDropped() { return updatesDropped.get(); }
+
+    public long getFramesStalled() { return framesStalled.get(); }
+
+    public long getErrors() { return errors.get(); }
+
+    // System.nanoTime() when the first control frame of this model was written to a socket, 0 if none was yet
+    public long getFirstFrameNanos() { return firstFrameNanos; }
+
+    // the metrics registry of the pipeline of this model (see Metrics), for snapshots and MetricsExporter
+    public Metrics getMetrics() { return metrics; }
+
+    // true if there is an open connection to flight gear (it may still turn out to be unreachable on next send)
+    // (when fanning out, if at least one of the instances is connected)
+    public boolean isConnected() {
+        FanOutTransport transport = fanOut;
+        return transport != null ? transport.getConnectedCount() > 0 : getTransport() != null;
+    }
+
+    // per binding quantization and deadband of the sent properties (of the default bindings binding is an axis,
+    // one of ControlFrameEncoder.AILERON etc.)
+    // (only properties whose quantized value moved at least deadband are sent, see ControlFrameEncoder)
+    public void setResolution(int binding, float step, float deadband) {
+        synchronized (encoder) {
+            encoder.setResolution(binding, step, deadband);
+        }
+    }
+
+    // the flight gear properties to send and the inputs they take their values from
+    // (by default the 4 controls), the next frame carries all of them
+    public void setBindings(BindingTable table) {
+        synchronized (encoder) {
+            encoder.setBindings(table);
+        }
+    }
+
+    public BindingTable getBindings() {
+        synchronized (encoder) {
+            return encoder.getBindings();
+        }
+    }
+
+    // set an input of the bindings other than the 4 controls (an index of getBindings().getInputs()),
+    // it goes out with the next frame of the controls (see ViewModel.setInput())
+    public void setInput(int input, float value) {
+        synchronized (encoder) {
+            encoder.setInput(input, value);
+        }
+    }
+
+    // every interval frames all the controls are sent, even if they didn't change
+    public void setKeyframeInterval(int interval) {
+        synchronized (encoder) {
+            encoder.setKeyframeInterval(interval);
+        }
+    }
+
+    // turn on/off recording of the latency histograms (recording doesn't allocate, so it can stay on)
+    public void setLatencyTracking(boolean enabled) { this.latencyTracking = enabled; }
+
+    public boolean isLatencyTracking() { return latencyTracking; }
+
+    // histogram (in nanoseconds) of the given stage of the written samples
+    public LatencyHistogram getLatency(LatencyStage stage) { return latency[stage.ordinal()]; }
+
+    public void resetLatency() {
+        for (LatencyHistogram histogram : latency)
+            histogram.reset();
+    }
+
+    public void updatePlaneData(float aileron, float elevator, float rudder, float throttle){
+        updatePlaneData(aileron, elevator, rudder, throttle, 0, 0);
+    }
+
+    // inputNanos, viewModelNanos: System.nanoTime() of the input event and of ViewModel.setValues() of this sample,
+    // (0 if unknown) for latency tracking
+    public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                long inputNanos, long viewModelNanos){
+        updatesReceived.increment();
+        if (conflating) {
+            // never blocks on the network, the sender thread will take the newest state
+            slot.publish(aileron, elevator, rudder, throttle, inputNanos, viewModelNanos);
+            return;
+        }
+
+        // transport_for_now is final reference to ControlTransport, this.getTransport() may be changed meanwhile
+        final ControlTransport transport_for_now = this.getTransport();
+        // not connected: nothing to send, and no slot of the send rate is taken for it
+        // (so the first update after the connection isn't dropped for a frame that never went out)
+        if (transport_for_now == null)
+            return;
+
+        // allow a new task for ExecutorService only at the current send rate (safe for any number of input threads)
+        if (!rate.tryAcquire(System.nanoTime())) {
+            updatesDropped.increment();
+            return;
+        }
+
+        es.execute(() -> {
+                // send data only if transport_for_now it is still the current transport
+                // [transport_for_now is for sure not null]
+                if (transport_for_now != this.getTransport()) {
+                    return;
+                }
+                long dequeueNanos = latencyTracking ? System.nanoTime() : 0;
+                sendFrame(transport_for_now, aileron, elevator, rudder, throttle,
+                        inputNanos, viewModelNanos, dequeueNanos);
+        });
+    }
+
+    // write one frame of the (changed) controls to the given transport (one write of a pre-encoded buffer),
+    // and if the socket is unreachable (or stalled for stallTimeoutMillis) hand it to the connection manager,
+    // that closes it, raises onError and reconnects.
+    // the timestamps (0 if unknown) are for the latency histograms of a written frame.
+    // returns true if the frame was not sent because the socket couldn't take it (the caller may retry later)
+    private boolean sendFrame(ControlTransport transport_for_now,
+                              float aileron, float elevator, float rudder, float throttle,
+                              long inputNanos, long viewModelNanos, long dequeueNanos) {
+        IOException error = null;
+        boolean stalled = false;
+        synchronized (encoder) {
+            try {
+                long writeStart = System.nanoTime();
+                int length = transport_for_now.send(aileron, elevator, rudder, throttle);
+                long writeEnd = System.nanoTime();
+                // the rate controller learns from every write of the socket (how long, and whether it kept up)
+                if (length != 0)
+                    rate.onWrite(writeEnd - writeStart, transport_for_now.getPendingBytes(),
+                            length == ControlTransport.STALLED, writeEnd);
+                if (length == ControlTransport.STALLED) {
+                    stalled = true;
+                    framesStalled.increment();
+                    if (stalledSinceNanos == 0)
+                        stalledSinceNanos = writeEnd;
+                    else if (writeEnd - stalledSinceNanos > stallTimeoutMillis * 1000000L)
+                        error = new IOException("write stalled for more than " + stallTimeoutMillis + " ms");
+                } else if (length == 0) {
+                    stalledSinceNanos = 0;
+                    framesUnchanged.increment();
+                } else {
+                    stalledSinceNanos = 0;
+                    framesSent.increment();
+                    bytesSent.add(length);
+                    if (firstFrameNanos == 0)
+                        firstFrameNanos = writeEnd;
+                    if (latencyTracking && dequeueNanos != 0)
+                        recordLatency(inputNanos, viewModelNanos, dequeueNanos, writeEnd);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        if (error != null) {
+            synchronized (encoder) {
+                stalledSinceNanos = 0;
+            }
+            // (ignored if transport_for_now isn't the current transport anymore, e.g. closed by connect() on purpose)
+            connection.connectionLost(transport_for_now, error);
+            return false;
+        }
+        return stalled;
+    }
+
+    private void recordLatency(long inputNanos, long viewModelNanos, long dequeueNanos, long writtenNanos) {
+        if (inputNanos != 0 && viewModelNanos != 0)
+            latency[LatencyStage.INPUT_TO_VIEW_MODEL.ordinal()].record(viewModelNanos - inputNanos);
+        if (viewModelNanos != 0)
+            latency[LatencyStage.VIEW_MODEL_TO_DEQUEUE.ordinal()].record(dequeueNanos - viewModelNanos);
+        latency[LatencyStage.DEQUEUE_TO_WRITTEN.ordinal()].record(writtenNanos - dequeueNanos);
+        if (inputNanos != 0)
+            latency[LatencyStage.INPUT_TO_WRITTEN.ordinal()].record(writtenNanos - inputNanos);
+    }
+
+    // body of the sender thread in conflating send mode:
+    // wait for new state in slot, send it, and then wait the interval of the send rate (while newer states overwrite the slot).
+    // if the slot is idle, the last state is sent again as a keyframe, so deadband errors or lost frames won't stay
+    private void senderLoop(long startVersion) {
+        final float[] state = new float[4];
+        final long[] times = new long[2];
+        long lastVersion = startVersion;
+        final Thread self = Thread.currentThread();
+        while (sender == self) {
+            long version;
+            try {
+                version = slot.awaitNewer(lastVersion, state, times, IDLE_KEYFRAME_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            // stopped while waiting (a newer sender may take the slot already)
+            if (sender != self)
+                return;
+            // nothing was published yet (the user didn't touch the joystick), so there is nothing to repeat
+            if (version == 0)
+                continue;
+            final ControlTransport transport_for_now = this.getTransport();
+            // a repeated (idle keyframe) state has no latency to measure
+            boolean repeated = version == lastVersion;
+            if (repeated && transport_for_now != null) {
+                synchronized (encoder) {
+                    transport_for_now.forceKeyframe();
+                }
+            }
+            // every version between lastVersion and version was overwritten before it was sent
+            statesCoalesced.add(Math.max(0, version - lastVersion - 1));
+            lastVersion = version;
+
+            long sendTime = System.nanoTime();
+            boolean stalled = transport_for_now != null
+                    && sendFrame(transport_for_now, state[0], state[1], state[2], state[3],
+                            times[0], times[1], repeated ? 0 : sendTime);
+            // the stalled state was not sent: send it again after the interval (unless a newer one comes)
+            if (stalled)
+                lastVersion = version - 1;
+
+            // nothing was written without a transport, so there is no interval to keep
+            // (the state is sent again when the connection comes up, see republish())
+            if (transport_for_now == null)
+                continue;
+            long waitNanos = sendTime + rate.getIntervalNanos() - System.nanoTime();
+            while (waitNanos > 0 && sender == self) {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.interrupted())
+                    return;
+                waitNanos = sendTime + rate.getIntervalNanos() - System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.remotejoystick;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// one flight gear instance of a FanOutTransport: its connection state and its stats.
+// it is the sender of the errors and state changes of this instance (see FanOutTransport.onError).
+public class FanOutTarget {
+    private final String ipv4;
+    private final int port;
+
+    // the open connection (null unless CONNECTED), set by the connection thread
+    volatile SocketChannel channel = null;
+    volatile ConnectionState state = ConnectionState.DISCONNECTED;
+
+    // fields of the connection thread only:
+    SocketChannel connecting = null;
+    long connectDeadline = 0;
+    long retryAt = 0;
+    int attempt = 0;
+    boolean wasConnected = false;
+
+    // fields of the sending thread only:
+    // the channel the fields below belong to (a new connection starts from a full frame)
+    SocketChannel writing = null;
+    // the unwritten tail of the last frame (in read mode)
+    ByteBuffer pending;
+    // false if this instance missed a frame, so the next one should be the full sent state
+    boolean inSync = false;
+    long stalledSinceNanos = 0;
+
+    // stats, each written by one thread
+    volatile long framesSent = 0;
+    volatile long framesDropped = 0;
+    volatile long bytesSent = 0;
+    volatile long bytesReceived = 0;
+    volatile long reconnects = 0;
+
+    FanOutTarget(String ipv4, int port, int maxFrameBytes) {
+        this.ipv4 = ipv4;
+        this.port = port;
+        this.pending = ByteBuffer.allocateDirect(maxFrameBytes);
+        this.pending.flip();
+    }
+
+    public String getIp() { return ipv4; }
+
+    public int getPort() { return port; }
+
+    public ConnectionState getState() { return state; }
+
+    public boolean isConnected() { return channel != null; }
+
+    // frames written to this instance (whole or started)
+    public long getFramesSent() { return framesSent; }
+
+    // frames this instance missed since its socket was still full (it got the full state afterwards)
+    public long getFramesDropped() { return framesDropped; }
+
+    public long getBytesSent() { return bytesSent; }
+
+    // bytes this instance sent back (drained and dropped)
+    public long getBytesReceived() { return bytesReceived; }
+
+    public long getReconnects() { return reconnects; }
+
+    @Override
+    public String toString() { return ipv4 + ":" + port; }
+}
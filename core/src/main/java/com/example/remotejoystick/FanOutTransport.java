@@ -0,0 +1,395 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// transport of the telnet props protocol to several flight gear instances at once (e.g. a visual and instruments):
+// every frame is encoded once, and written to each connected instance by send(), never blocking.
+// each instance has its own backpressure: while its socket is full it misses frames (and then gets the full
+// sent state, see ControlFrameEncoder.encodeSentState()), a socket that stays full is closed and reconnected,
+// so a slow or dead instance never delays the others.
+// all the instances are connected, reconnected (with backoff, as ConnectionManager) and drained
+// by one selector thread. their errors and state changes are raised with the FanOutTarget as sender
+// (but for a failure of the selector itself, which is no instance's, raised with this transport as sender).
+public class FanOutTransport implements ControlTransport {
+    // event happens when the first attempt to connect an instance failed ("Connection Error"),
+    // or when an open connection to it was lost ("Disconnected"), sender is its FanOutTarget.
+    // a failure of the selector thread itself ("Connection Error" too) is raised once, with this transport as sender
+    public ErrorEventHandler onError = null;
+    // event happens on every state change of an instance, sender is its FanOutTarget
+    public ConnectionStateEventHandler onStateChange = null;
+
+    private final ControlFrameEncoder encoder;
+    private final List<FanOutTarget> targets;
+    private final Selector selector;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // requests of other threads, run by the connection thread
+    private final ConcurrentLinkedQueue<Runnable> requests = new ConcurrentLinkedQueue<>();
+
+    private volatile int connectTimeoutMillis = 2000;
+    private volatile long backoffInitialMillis = 250;
+    private volatile long backoffMaxMillis = 10000;
+    private volatile long stallTimeoutMillis = 3000;
+    private final Random jitter = new Random();
+    // reused by every read of the connection thread
+    private final ByteBuffer received = ByteBuffer.allocateDirect(4096);
+
+    // encoder is shared with the caller as in TelnetTransport (send() and forceKeyframe() use it).
+    // the instances are ipv4s[i]:ports[i], connect() starts connecting to them (set the event handlers before)
+    public FanOutTransport(ControlFrameEncoder encoder, String[] ipv4s, int[] ports) throws IOException {
+        if (ipv4s.length != ports.length || ipv4s.length == 0)
+            throw new IllegalArgumentException("expected the same number (at least 1) of addresses and ports");
+        this.encoder = encoder;
+        List<FanOutTarget> list = new ArrayList<>();
+        for (int i = 0; i < ipv4s.length; i++)
+            list.add(new FanOutTarget(ipv4s[i], ports[i], encoder.getMaxFrameBytes()));
+        this.targets = Collections.unmodifiableList(list);
+        this.selector = Selector.open();
+        this.thread = new Thread(this::loop, "FGModel-fanout");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // start connecting to all the instances (returns immediately), each is reconnected whenever it is lost
+    public void connect() {
+        request(() -> {
+            for (FanOutTarget target : targets)
+                if (target.state == ConnectionState.DISCONNECTED)
+                    startConnect(target);
+        });
+    }
+
+    public List<FanOutTarget> getTargets() { return targets; }
+
+    // how many instances are connected now
+    public int getConnectedCount() {
+        int count = 0;
+        for (int i = 0; i < targets.size(); i++)
+            if (targets.get(i).isConnected())
+                count++;
+        return count;
+    }
+
+    public void setConnectTimeout(int millis) { this.connectTimeoutMillis = millis; }
+
+    // delay before the first retry of an instance, doubled on every failed attempt up to maxMillis
+    public void setBackoff(long initialMillis, long maxMillis) {
+        if (initialMillis <= 0 || maxMillis < initialMillis)
+            throw new IllegalArgumentException("backoff should be positive and max not less than initial");
+        this.backoffInitialMillis = initialMillis;
+        this.backoffMaxMillis = maxMillis;
+    }
+
+    // an instance whose socket can't take any byte for this long is closed and reconnected
+    public void setStallTimeout(long millis) { this.stallTimeoutMillis = millis; }
+
+    // encode the frame once and write it to every connected instance.
+    // returns the bytes written to all of them (0 if nothing had to be sent or none is connected),
+    // or STALLED if every connected instance was too full to take it
+    @Override
+    public int send(float aileron, float elevator, float rudder, float throttle) {
+        ByteBuffer frame = encoder.encodeChanged(aileron, elevator, rudder, throttle);
+        ByteBuffer state = null;
+        int written = 0;
+        int connected = 0;
+        int stalled = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            FanOutTarget target = targets.get(i);
+            SocketChannel channel = target.channel;
+            if (channel == null)
+                continue;
+            connected++;
+            if (channel != target.writing) {
+                // a new connection of this instance, it starts from the full state
+                target.writing = channel;
+                target.pending.clear();
+                target.pending.flip();
+                target.inSync = false;
+                target.stalledSinceNanos = 0;
+            }
+            try {
+                if (target.pending.hasRemaining()) {
+                    int n = channel.write(target.pending);
+                    written += n;
+                    target.bytesSent += n;
+                    if (target.pending.hasRemaining()) {
+                        // still full, this instance misses the frame
+                        stalled++;
+                        dropped(target, channel);
+                        continue;
+                    }
+                }
+                target.stalledSinceNanos = 0;
+
+                ByteBuffer out = frame;
+                if (!target.inSync) {
+                    if (state == null)
+                        state = encoder.encodeSentState();
+                    out = state;
+                }
+                if (out.limit() == 0)
+                    continue;
+                // the same frame is written to every instance, from its start
+                out.position(0);
+                int n = channel.write(out);
+                written += n;
+                target.bytesSent += n;
+                target.framesSent++;
+                target.inSync = true;
+                if (out.hasRemaining()) {
+                    if (out.remaining() > target.pending.capacity())
+                        target.pending = ByteBuffer.allocateDirect(encoder.getMaxFrameBytes());
+                    target.pending.clear();
+                    target.pending.put(out);
+                    target.pending.flip();
+                }
+            } catch (IOException e) {
+                final FanOutTarget lostTarget = target;
+                final SocketChannel lostChannel = channel;
+                request(() -> lost(lostTarget, lostChannel, e));
+            }
+        }
+        return connected > 0 && stalled == connected ? STALLED : written;
+    }
+
+    // an instance missed a frame: count it, it will get the full state when its socket drains,
+    // and if it stays full for stallTimeoutMillis it is reconnected
+    private void dropped(FanOutTarget target, SocketChannel channel) {
+        target.framesDropped++;
+        target.inSync = false;
+        long now = System.nanoTime();
+        if (target.stalledSinceNanos == 0) {
+            target.stalledSinceNanos = now;
+        } else if (now - target.stalledSinceNanos > stallTimeoutMillis * 1000000L) {
+            target.stalledSinceNanos = 0;
+            final IOException e = new IOException("write stalled for more than " + stallTimeoutMillis + " ms");
+            request(() -> lost(target, channel, e));
+        }
+    }
+
+    // the least unwritten bytes of the connected instances: only when all of them are behind the rate is too high
+    @Override
+    public int getPendingBytes() {
+        int least = Integer.MAX_VALUE;
+        for (int i = 0; i < targets.size(); i++) {
+            FanOutTarget target = targets.get(i);
+            if (target.channel != null && target.channel == target.writing)
+                least = Math.min(least, target.pending.remaining());
+        }
+        return least == Integer.MAX_VALUE ? 0 : least;
+    }
+
+    @Override
+    public void forceKeyframe() { encoder.forceKeyframe(); }
+
+    // close all the connections and stop the connection thread, never throws
+    @Override
+    public void close() {
+        request(() -> {
+            closeAll();
+            running = false;
+        });
+    }
+
+    // connection thread only
+    private void closeAll() {
+        for (FanOutTarget target : targets) {
+            closeConnecting(target);
+            SocketChannel channel = target.channel;
+            target.channel = null;
+            closeQuietly(channel);
+            setState(target, ConnectionState.DISCONNECTED, 0, 0);
+        }
+    }
+
+    private void request(Runnable request) {
+        requests.add(request);
+        selector.wakeup();
+    }
+
+    // body of the connection thread
+    private void loop() {
+        int failures = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                long wakeAt = Long.MAX_VALUE;
+                for (FanOutTarget target : targets) {
+                    if (target.state == ConnectionState.CONNECTING && target.connecting != null)
+                        wakeAt = Math.min(wakeAt, target.connectDeadline);
+                    else if (target.state == ConnectionState.BACKOFF)
+                        wakeAt = Math.min(wakeAt, target.retryAt);
+                }
+                selector.select(wakeAt == Long.MAX_VALUE ? 0 : Math.max(1, wakeAt - now));
+
+                Runnable request;
+                while ((request = requests.poll()) != null)
+                    request.run();
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    FanOutTarget target = (FanOutTarget) key.attachment();
+                    if (key.isValid() && key.isConnectable() && key.channel() == target.connecting)
+                        finishConnect(target);
+                    else if (key.isValid() && key.isReadable())
+                        drain(key, target);
+                }
+                selector.selectedKeys().clear();
+
+                now = System.currentTimeMillis();
+                for (FanOutTarget target : targets) {
+                    if (!running)
+                        break;
+                    if (target.state == ConnectionState.CONNECTING && target.connecting != null
+                            && now >= target.connectDeadline)
+                        failed(target, new IOException("connect timed out after " + connectTimeoutMillis + " ms"));
+                    else if (target.state == ConnectionState.BACKOFF && now >= target.retryAt)
+                        startConnect(target);
+                }
+                failures = 0;
+            } catch (IOException | RuntimeException e) {
+                // the selector itself failed: as in ConnectionManager.loop(), report it once and try again after
+                // a pause, and give up after a while (all the instances are disconnected then)
+                failures++;
+                if (failures == 1 && onError != null)
+                    onError.handle(this, new ErrorEventArgs("Connection Error", e));
+                if (failures >= ConnectionManager.MAX_LOOP_FAILURES) {
+                    running = false;
+                    closeAll();
+                    break;
+                }
+                try {
+                    Thread.sleep(ConnectionManager.backoffDelay(failures, ConnectionManager.LOOP_RETRY_INITIAL_MILLIS,
+                            ConnectionManager.LOOP_RETRY_MAX_MILLIS, 0));
+                } catch (InterruptedException interrupted) {
+                    break;
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    private void startConnect(FanOutTarget target) {
+        target.attempt++;
+        setState(target, ConnectionState.CONNECTING, target.attempt, 0);
+        try {
+            SocketChannel channel = SocketChannel.open();
+            target.connecting = channel;
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (channel.connect(new InetSocketAddress(target.getIp(), target.getPort()))) {
+                connected(target);
+            } else {
+                target.connectDeadline = System.currentTimeMillis() + connectTimeoutMillis;
+                channel.register(selector, SelectionKey.OP_CONNECT, target);
+            }
+        } catch (IOException | RuntimeException e) {
+            failed(target, e);
+        }
+    }
+
+    private void finishConnect(FanOutTarget target) {
+        try {
+            if (target.connecting.finishConnect())
+                connected(target);
+        } catch (IOException | RuntimeException e) {
+            failed(target, e);
+        }
+    }
+
+    private void connected(FanOutTarget target) throws IOException {
+        SocketChannel channel = target.connecting;
+        // data mode (no prompt after every command), nothing else was written to this new socket yet
+        channel.write(ByteBuffer.wrap(TelnetTransport.DATA_MODE));
+        channel.register(selector, SelectionKey.OP_READ, target);
+        target.connecting = null;
+        if (target.wasConnected || target.attempt > 1)
+            target.reconnects++;
+        target.wasConnected = true;
+        target.attempt = 0;
+        target.channel = channel;
+        setState(target, ConnectionState.CONNECTED, 0, 0);
+    }
+
+    private void failed(FanOutTarget target, Exception cause) {
+        closeConnecting(target);
+        // only the first failure of an instance is an error for the user, the next ones are just state changes
+        if (target.attempt == 1 && !target.wasConnected && onError != null)
+            onError.handle(target, new ErrorEventArgs("Connection Error", cause));
+        backoff(target);
+    }
+
+    // read everything the instance sent, and drop it
+    private void drain(SelectionKey key, FanOutTarget target) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        try {
+            int n;
+            do {
+                received.clear();
+                n = channel.read(received);
+                if (n > 0)
+                    target.bytesReceived += n;
+            } while (n > 0);
+            if (n < 0) {
+                key.cancel();
+                lost(target, channel, new IOException("connection closed by flight gear"));
+            }
+        } catch (IOException e) {
+            key.cancel();
+            lost(target, channel, e);
+        }
+    }
+
+    // channel of target was lost (ignored if it isn't its current channel anymore)
+    private void lost(FanOutTarget target, SocketChannel channel, IOException cause) {
+        if (!running || target.channel != channel)
+            return;
+        target.channel = null;
+        closeQuietly(channel);
+        if (onError != null)
+            onError.handle(target, new ErrorEventArgs("Disconnected", cause));
+        backoff(target);
+    }
+
+    private void backoff(FanOutTarget target) {
+        long delay = ConnectionManager.backoffDelay(Math.max(1, target.attempt),
+                backoffInitialMillis, backoffMaxMillis, jitter.nextDouble());
+        target.retryAt = System.currentTimeMillis() + delay;
+        setState(target, ConnectionState.BACKOFF, target.attempt, delay);
+    }
+
+    private void closeConnecting(FanOutTarget target) {
+        closeQuietly(target.connecting);
+        target.connecting = null;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // not used anymore anyway
+        }
+    }
+
+    private void setState(FanOutTarget target, ConnectionState newState, int attempt, long retryInMillis) {
+        ConnectionState previous = target.state;
+        target.state = newState;
+        if (onStateChange != null)
+            onStateChange.handle(target, new ConnectionStateEventArgs(previous, newState, attempt, retryInMillis));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.remotejoystick;
+
+// the connection engine of the app, that lives longer than a screen: the model (its threads and socket),
+// the view model over it, and what they use (frame clock, telemetry, recorder, metrics export).
+// the app keeps one in a lifecycle-retained holder, so a rotation hands the same session to the new activity
+// (no new socket, no connect timeout) and only the ui handlers are bound again, while close() is called once,
+// when the app is really done with it, and stops every thread and socket of the session.
+// in the background (enterBackground()), the frame clock of the display is paused (the view model sends
+// every state itself then), and if hold is on, the stick is centered (aileron, elevator and rudder, throttle
+// is kept) so flight gear isn't left with whatever the finger did last. a conflating model keeps sending that
+// hold state as an idle keyframe, until enterForeground().
+// at a cold start, preconnect() connects to the last good endpoint while the ui is still being built, and warms up
+// the send path meanwhile, so the first touch of the joystick finds an open socket and compiled code.
+public class FlightSession {
+    private final FGModel model;
+    private final ViewModel viewModel;
+    // System.nanoTime() when the session was created (the launch, for session.timeToFirstFrameMicros)
+    private final long startNanos = System.nanoTime();
+    private volatile boolean holdWhileBackgrounded = false;
+    // guarded by this:
+    private boolean background = false;
+    private FrameClock pausedClock = null;
+    private InputRecorder recorder = null;
+    private MetricsExporter exporter = null;
+    private boolean closed = false;
+
+    public FlightSession(FGModel model) {
+        this.model = model;
+        this.viewModel = new ViewModel(model);
+        model.getMetrics().gauge("session.timeToFirstFrameMicros", () -> {
+            long first = model.getFirstFrameNanos();
+            return first != 0 ? (first - startNanos) / 1000 : 0;
+        });
+    }
+
+    public long getStartNanos() { return startNanos; }
+
+    // speculative connect at startup: warm up the send path on a background thread, and connect to endpoint
+    // (the last good one, null for none) right away, unless the model is connected to it already. returns at once.
+    // a connect of the user replaces this connection (with a new socket, even to the same endpoint)
+    public synchronized void preconnect(Endpoint endpoint) {
+        if (closed)
+            return;
+        Thread warmUp = new Thread(model::warmUp, "FGModel-warmUp");
+        warmUp.setDaemon(true);
+        warmUp.setPriority(Thread.MIN_PRIORITY);
+        warmUp.start();
+        if (endpoint != null)
+            viewModel.connectOrKeep(endpoint);
+    }
+
+    public FGModel getModel() { return model; }
+
+    public ViewModel getViewModel() { return viewModel; }
+
+    // center the stick while in the background (off by default: flight gear keeps the last state)
+    public void setHoldWhileBackgrounded(boolean hold) { this.holdWhileBackgrounded = hold; }
+
+    public boolean isHoldWhileBackgrounded() { return holdWhileBackgrounded; }
+
+    // record the input of the session to recorder (closed with the session), null to stop
+    public synchronized void setRecorder(InputRecorder recorder) {
+        if (this.recorder != null && this.recorder != recorder)
+            this.recorder.close();
+        this.recorder = recorder;
+        viewModel.setRecorder(recorder);
+    }
+
+    public synchronized InputRecorder getRecorder() { return recorder; }
+
+    // export the metrics of the session at intervals with exporter (started now, stopped with the session),
+    // null to stop exporting
+    public synchronized void setMetricsExporter(MetricsExporter exporter) {
+        if (this.exporter != null && this.exporter != exporter)
+            this.exporter.stop();
+        this.exporter = exporter;
+        if (exporter != null && !closed)
+            exporter.start();
+    }
+
+    public synchronized MetricsExporter getMetricsExporter() { return exporter; }
+
+    // no screen shows the session now (not a rotation, e.g. home was pressed)
+    public synchronized void enterBackground() {
+        if (background || closed)
+            return;
+        background = true;
+        pausedClock = viewModel.getFrameClock();
+        viewModel.setFrameClock(null);
+        if (holdWhileBackgrounded)
+            viewModel.holdValues(0, 0, 0, viewModel.getThrottle());
+    }
+
+    // a screen shows the session again: the frame clock of before goes on
+    // (the input sources of the screen set the values from now on)
+    public synchronized void enterForeground() {
+        if (!background || closed)
+            return;
+        background = false;
+        viewModel.setFrameClock(pausedClock);
+        pausedClock = null;
+    }
+
+    public synchronized boolean isBackground() { return background; }
+
+    // stop the threads and close the sockets and the recorder of this session (it can't be used after it).
+    // the ui handlers of the view model are dropped too, so they don't keep the last screen
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        viewModel.onError = null;
+        viewModel.onStateChange = null;
+        viewModel.setFrameClock(null);
+        pausedClock = null;
+        viewModel.setRecorder(null);
+        model.close();
+        // (after the model, so the last export has the end of the session)
+        if (exporter != null) {
+            exporter.stop();
+            exporter = null;
+        }
+        if (recorder != null) {
+            recorder.close();
+            recorder = null;
+        }
+    }
+
+    public synchronized boolean isClosed() { return closed; }
+}
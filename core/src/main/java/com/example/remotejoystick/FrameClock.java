@@ -0,0 +1,17 @@
+package com.example.remotejoystick;
+
+// clock that ticks once per frame, to pull one sample of the input per frame (see ViewModel.setFrameClock).
+// the app uses the display frames (ChoreographerFrameClock), tests use a virtual clock they advance themselves.
+public interface FrameClock {
+    // called once per frame, on the thread of the clock.
+    // frameNanos: the time of the frame (System.nanoTime() base)
+    interface Listener {
+        void onFrame(long frameNanos);
+    }
+
+    // start calling listener every frame (instead of the previous listener)
+    void start(Listener listener);
+
+    // stop calling the listener
+    void stop();
+}
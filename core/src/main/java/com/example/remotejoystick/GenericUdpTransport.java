@@ -0,0 +1,93 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+// transport of the flight gear generic protocol over udp, one datagram per frame with all the controls:
+// sequence, aileron, elevator, rudder, throttle
+// as text ("12,-0.5000,0.1000,0.0000,0.8000\n", see assets/Protocol/remote-joystick.xml)
+// or binary (int32 + 4 float32, big endian, see assets/Protocol/remote-joystick-binary.xml).
+// the sequence number grows by 1 every frame, so a receiver can drop a datagram older than the last one it applied
+public class GenericUdpTransport implements ControlTransport {
+    private static final byte[] SEPARATOR = ControlFrameEncoder.ascii(",");
+    private static final byte[] LINE_SEPARATOR = ControlFrameEncoder.ascii("\n");
+
+    private final DatagramChannel channel;
+    private final boolean binary;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(128);
+    private final byte[] scratch = new byte[24];
+    // sequence number of the next datagram (int, as the generic protocol chunk), wraps around
+    private int sequence = 0;
+
+    public GenericUdpTransport(DatagramChannel channel, boolean binary) {
+        this.channel = channel;
+        this.binary = binary;
+    }
+
+    // udp has no handshake, so this only checks the address and binds the local socket
+    public static GenericUdpTransport open(String ipv4, int port, boolean binary) throws IOException {
+        DatagramChannel fg = DatagramChannel.open();
+        try {
+            fg.connect(new InetSocketAddress(ipv4, port));
+        } catch (IOException | RuntimeException e) {
+            fg.close();
+            throw e;
+        }
+        return new GenericUdpTransport(fg, binary);
+    }
+
+    @Override
+    public int send(float aileron, float elevator, float rudder, float throttle) throws IOException {
+        buffer.clear();
+        int seq = sequence++;
+        if (binary) {
+            // ByteBuffer is big endian = network byte order, as the generic protocol binary mode expects
+            buffer.putInt(seq);
+            buffer.putFloat(aileron);
+            buffer.putFloat(elevator);
+            buffer.putFloat(rudder);
+            buffer.putFloat(throttle);
+        } else {
+            if (seq < 0) {
+                buffer.put((byte) '-');
+                ControlFrameEncoder.putDigits(buffer, scratch, -(long) seq);
+            } else {
+                ControlFrameEncoder.putDigits(buffer, scratch, seq);
+            }
+            putField(aileron);
+            putField(elevator);
+            putField(rudder);
+            putField(throttle);
+            buffer.put(LINE_SEPARATOR);
+        }
+        buffer.flip();
+        // a datagram is always written whole
+        return channel.write(buffer);
+    }
+
+    private void putField(float value) {
+        buffer.put(SEPARATOR);
+        ControlFrameEncoder.putFixed(buffer, scratch, value);
+    }
+
+    // a datagram is sent whole or not at all
+    @Override
+    public int getPendingBytes() { return 0; }
+
+    // every datagram carries the full state anyway
+    @Override
+    public void forceKeyframe() { }
+
+    public int getNextSequence() { return sequence; }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing to do, the socket is not used anymore anyway
+        }
+    }
+}
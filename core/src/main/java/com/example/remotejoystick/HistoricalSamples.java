@@ -0,0 +1,11 @@
+package com.example.remotejoystick;
+
+// what to do with the touch samples that android batches into one move event (MotionEvent.getHistoricalX/Y):
+public enum HistoricalSamples {
+    // use only the newest position of every event (as before)
+    IGNORE,
+    // deliver every sample, oldest first, each with its own time
+    FORWARD_ALL,
+    // smooth all the samples of the event into one value (exponential moving average), delivered once per event
+    FILTER
+}
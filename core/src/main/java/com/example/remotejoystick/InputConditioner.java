@@ -0,0 +1,156 @@
+package com.example.remotejoystick;
+
+// conditioning stage between the input (JoystickView, InputMixer) and the model: per axis deadzone, expo curve,
+// smoothing and hysteresis (see AxisConditioning). besides the handling, it keeps the digitizer jitter of a held
+// finger from becoming a stream of tiny changes on the network.
+// condition() and settle() are called by one thread at a time (ViewModel calls them under its sample lock)
+// and allocate nothing;
+// the settings are an immutable AxisConditioning per axis, swapped by any thread without locks (the filter state
+// goes on, so a swap in flight has no jump).
+public class InputConditioner {
+    private static final int AXES = 4;
+    // cutoff of the speed estimate of ONE_EURO
+    private static final float DERIVATIVE_CUTOFF_HZ = 1;
+    // step of samples of the same time (e.g. batched touch samples), in seconds
+    private static final float MIN_PERIOD_SECONDS = 0.001f;
+    // a smoothed value this close to its input is the input (so a held input settles exactly)
+    private static final float SETTLE = 0.0005f;
+    // an axis without a sample for this long settles to its last input (see settle())
+    private static final long SETTLE_AFTER_NANOS = 100000000L;
+
+    // copy on write, read once per sample
+    private volatile AxisConditioning[] axes = {AxisConditioning.NONE, AxisConditioning.NONE,
+            AxisConditioning.NONE, AxisConditioning.NONE};
+
+    // state of the conditioning thread, per axis
+    private final boolean[] started = new boolean[AXES];
+    private final long[] lastNanos = new long[AXES];
+    private final float[] lastShaped = new float[AXES];
+    private final float[] smoothed = new float[AXES];
+    private final float[] speed = new float[AXES];
+    private final float[] output = new float[AXES];
+    private volatile long samples = 0;
+    private volatile long changes = 0;
+
+    // the conditioning of the touch joystick of the app: a small center deadzone and some expo on the stick and the
+    // rudder, the stick smoothed by ONE_EURO with a hysteresis a bit above the digitizer jitter (the throttle seek bar
+    // moves in steps already). on the normalFlight trace it sends less than a fifth of the properties,
+    // at about 0.005 mean stick error (see ConditioningBenchmarkTest)
+    public static InputConditioner forTouch() {
+        InputConditioner conditioner = new InputConditioner();
+        AxisConditioning stick = AxisConditioning.oneEuro(0.02f, 0.3f, 2, 5, 0.004f);
+        conditioner.setAxis(InputMixer.AILERON, stick);
+        conditioner.setAxis(InputMixer.ELEVATOR, stick);
+        conditioner.setAxis(InputMixer.RUDDER, AxisConditioning.shaped(0.02f, 0.2f, 0));
+        return conditioner;
+    }
+
+    // conditioning of axis (InputMixer.AILERON, ...)
+    public void setAxis(int axis, AxisConditioning conditioning) {
+        if (conditioning == null)
+            throw new IllegalArgumentException("conditioning should not be null, AxisConditioning.NONE is none");
+        synchronized (this) {
+            AxisConditioning[] next = axes.clone();
+            next[axis] = conditioning;
+            axes = next;
+        }
+    }
+
+    public AxisConditioning getAxis(int axis) { return axes[axis]; }
+
+    // forget the filter state (the next sample of every axis is taken as it is)
+    public void reset() {
+        for (int axis = 0; axis < AXES; axis++)
+            started[axis] = false;
+    }
+
+    // the conditioned value of axis at nanos (System.nanoTime() of the sample)
+    public float condition(int axis, float value, long nanos) {
+        AxisConditioning conditioning = axes[axis];
+        samples++;
+        float shaped = conditioning.shape(value);
+        float result;
+        if (!started[axis]) {
+            started[axis] = true;
+            smoothed[axis] = shaped;
+            speed[axis] = 0;
+            result = shaped;
+        } else if (shaped == 0) {
+            // a released stick is centered right away (not smoothed toward it), and the filter goes on from there
+            smoothed[axis] = shaped;
+            speed[axis] = 0;
+            result = shaped;
+        } else {
+            float seconds = Math.max(MIN_PERIOD_SECONDS, (nanos - lastNanos[axis]) / 1e9f);
+            float filtered = smooth(conditioning, axis, shaped, seconds);
+            result = hold(conditioning, output[axis], filtered);
+        }
+        lastNanos[axis] = nanos;
+        lastShaped[axis] = shaped;
+        if (result != output[axis])
+            changes++;
+        output[axis] = result;
+        return result;
+    }
+
+    // the filter moves only with samples, so an input that stopped (a finger held still, no more touch events)
+    // would leave the output wherever the filter was: an axis without a sample for SETTLE_AFTER_NANOS takes its
+    // last input as it is. nanos: the time now (of the base of the samples). true if an output changed
+    public boolean settle(long nanos) {
+        boolean changed = false;
+        for (int axis = 0; axis < AXES; axis++) {
+            if (!started[axis] || output[axis] == lastShaped[axis] || nanos - lastNanos[axis] < SETTLE_AFTER_NANOS)
+                continue;
+            smoothed[axis] = lastShaped[axis];
+            speed[axis] = 0;
+            output[axis] = lastShaped[axis];
+            changes++;
+            changed = true;
+        }
+        return changed;
+    }
+
+    // the last conditioned value of axis
+    public float getOutput(int axis) { return output[axis]; }
+
+    // samples conditioned so far, and of them the ones whose output changed
+    public long getSamples() { return samples; }
+
+    public long getChanges() { return changes; }
+
+    private float smooth(AxisConditioning conditioning, int axis, float shaped, float seconds) {
+        float previous = smoothed[axis];
+        float next;
+        switch (conditioning.smoothing) {
+            case EMA:
+                next = previous + conditioning.alpha * (shaped - previous);
+                break;
+            case ONE_EURO:
+                float rawSpeed = (shaped - lastShaped[axis]) / seconds;
+                speed[axis] += lowPass(DERIVATIVE_CUTOFF_HZ, seconds) * (rawSpeed - speed[axis]);
+                float cutoff = conditioning.minCutoffHz + conditioning.beta * Math.abs(speed[axis]);
+                next = previous + lowPass(cutoff, seconds) * (shaped - previous);
+                break;
+            default:
+                next = shaped;
+        }
+        if (Math.abs(shaped - next) < SETTLE)
+            next = shaped;
+        smoothed[axis] = next;
+        return next;
+    }
+
+    // weight of a new sample of a first order low pass of cutoffHz, for samples seconds apart
+    private static float lowPass(float cutoffHz, float seconds) {
+        float tau = 1 / (2 * (float) Math.PI * cutoffHz);
+        return 1 / (1 + tau / seconds);
+    }
+
+    // the output stays where it was unless value left it by the hysteresis
+    // (the ends are always reached, so a full stick is exact. a released one doesn't get here, see condition())
+    private static float hold(AxisConditioning conditioning, float current, float value) {
+        if (Math.abs(value - current) >= conditioning.hysteresis || Math.abs(value) >= 1)
+            return value;
+        return current;
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.remotejoystick;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// merges several input sources (touch, tilt, gamepad...) into one stream of control values, per axis:
+// every source publishes the axes it drives to its Channel, from its own thread (sensors at 100-200 Hz),
+// and the mixer hands the merged values to onValues (e.g. ViewModel::setValues).
+// publishing never locks: the values of a channel are atomic, and the publisher that finds nobody mixing
+// mixes and calls onValues itself, while a publisher that finds another one mixing just leaves its values to it
+// (the mixing thread mixes again until no new value came). so onValues is never called by two threads at once,
+// always gets the newest values at last, and nothing is allocated per publish.
+// per axis, an axis of a channel is active once it was published, until it was released or timed out
+// (a timeout is seen by the next mix, that is the next publish of any channel).
+// the active overriding channels (setOverride()) take the axis, otherwise the merge rule of the axis decides:
+//   PRIORITY the active channel of the highest priority, LATEST the one that published last,
+//   SUM the sum of all the active channels (limited to the range of the axis, e.g. tilt + touch trim).
+// when no channel of an axis is active, the axis keeps its last value.
+public class InputMixer {
+    public static final int AILERON = 0;
+    public static final int ELEVATOR = 1;
+    public static final int RUDDER = 2;
+    public static final int THROTTLE = 3;
+    // masks of the axes of a channel
+    public static final int AILERON_AXIS = 1 << AILERON;
+    public static final int ELEVATOR_AXIS = 1 << ELEVATOR;
+    public static final int RUDDER_AXIS = 1 << RUDDER;
+    public static final int THROTTLE_AXIS = 1 << THROTTLE;
+    public static final int ALL_AXES = AILERON_AXIS | ELEVATOR_AXIS | RUDDER_AXIS | THROTTLE_AXIS;
+    private static final int AXES = 4;
+
+    public enum MergeRule { PRIORITY, LATEST, SUM }
+
+    // the input of one source: it publishes its axes here (from any single thread)
+    public static class Channel {
+        private final InputMixer mixer;
+        private final InputSource source;
+        private final int priority;
+        private final int axes;
+        // per axis: float bits of the value, and System.nanoTime() of its publish (0 if inactive)
+        private final AtomicIntegerArray values = new AtomicIntegerArray(AXES);
+        private final AtomicLongArray publishedNanos = new AtomicLongArray(AXES);
+        private volatile boolean override = false;
+        private volatile long timeoutNanos = 0;
+
+        private Channel(InputMixer mixer, InputSource source, int priority, int axes) {
+            this.mixer = mixer;
+            this.source = source;
+            this.priority = priority;
+            this.axes = axes;
+        }
+
+        public InputSource getSource() { return source; }
+
+        public int getPriority() { return priority; }
+
+        // mask of the axes of this channel (AILERON_AXIS | ...)
+        public int getAxes() { return axes; }
+
+        // publish the values of the axes of this channel (the others, and NaN values, are ignored:
+        // e.g. a gamepad without a throttle axis). nanos: System.nanoTime() of the input sample
+        public void publish(float aileron, float elevator, float rudder, float throttle, long nanos) {
+            set(AILERON, aileron, nanos);
+            set(ELEVATOR, elevator, nanos);
+            set(RUDDER, rudder, nanos);
+            set(THROTTLE, throttle, nanos);
+            mixer.changed(nanos);
+        }
+
+        // publish the value of one axis (ignored if it isn't an axis of this channel)
+        public void publish(int axis, float value, long nanos) {
+            set(axis, value, nanos);
+            mixer.changed(nanos);
+        }
+
+        private void set(int axis, float value, long nanos) {
+            if ((axes & (1 << axis)) == 0 || Float.isNaN(value))
+                return;
+            values.set(axis, Float.floatToRawIntBits(value));
+            // (never 0, that is inactive)
+            publishedNanos.set(axis, nanos == 0 ? 1 : nanos);
+        }
+
+        // the source has no input now (finger lifted, gamepad disconnected...), the other channels take its axes
+        public void release() {
+            for (int axis = 0; axis < AXES; axis++)
+                publishedNanos.set(axis, 0);
+            mixer.changed(0);
+        }
+
+        // while on (and active), this channel takes its axes whatever the merge rule is
+        // (e.g. the touch joystick while the finger is on it)
+        public void setOverride(boolean override) {
+            this.override = override;
+            mixer.changed(0);
+        }
+
+        public boolean isOverride() { return override; }
+
+        // an axis that wasn't published for this long is inactive (0, the default, for never)
+        public void setTimeout(long millis) { this.timeoutNanos = millis * 1000000L; }
+
+        // the value of axis, if it is active at nowNanos
+        private boolean isActive(int axis, long nowNanos) {
+            long published = publishedNanos.get(axis);
+            if (published == 0)
+                return false;
+            long timeout = timeoutNanos;
+            return timeout == 0 || nowNanos - published <= timeout;
+        }
+    }
+
+    // gets the merged values (called by one publishing thread at a time)
+    public volatile ControlValuesHandler onValues = null;
+
+    // copy on write (adding a source is rare, mixing reads the array without locks)
+    private volatile Channel[] channels = new Channel[0];
+    // copy on write as well
+    private volatile MergeRule[] rules = {MergeRule.PRIORITY, MergeRule.PRIORITY, MergeRule.PRIORITY, MergeRule.PRIORITY};
+    // bumped by every publish, a mix is of the values up to its version
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean mixing = new AtomicBoolean();
+    private volatile long latestNanos = 0;
+
+    // state of the mixing thread (only one at a time, guarded by mixing)
+    private final float[] mixed = {0, 0, 0, 0};
+    private boolean emitted = false;
+    private volatile long mixes = 0;
+
+    // add source with the given priority (higher wins under PRIORITY) for the given axes (AILERON_AXIS | ...),
+    // and start it. returns its channel
+    public Channel add(InputSource source, int priority, int axes) {
+        Channel channel = new Channel(this, source, priority, axes & ALL_AXES);
+        synchronized (this) {
+            Channel[] next = new Channel[channels.length + 1];
+            System.arraycopy(channels, 0, next, 0, channels.length);
+            next[channels.length] = channel;
+            channels = next;
+        }
+        source.start(channel);
+        return channel;
+    }
+
+    // stop the source and forget its channel (its axes go to the other channels)
+    public void remove(InputSource source) {
+        Channel removed = null;
+        synchronized (this) {
+            for (int i = 0; i < channels.length && removed == null; i++) {
+                if (channels[i].source != source)
+                    continue;
+                removed = channels[i];
+                Channel[] next = new Channel[channels.length - 1];
+                System.arraycopy(channels, 0, next, 0, i);
+                System.arraycopy(channels, i + 1, next, i, channels.length - i - 1);
+                channels = next;
+            }
+        }
+        if (removed == null)
+            return;
+        source.stop();
+        changed(0);
+    }
+
+    // stop all the sources
+    public void stop() {
+        for (Channel channel : channels)
+            channel.source.stop();
+    }
+
+    public void setMergeRule(int axis, MergeRule rule) {
+        synchronized (this) {
+            MergeRule[] next = rules.clone();
+            next[axis] = rule;
+            rules = next;
+        }
+        changed(0);
+    }
+
+    public MergeRule getMergeRule(int axis) { return rules[axis]; }
+
+    // how many times the values were mixed (less than the publishes when they came faster than onValues took them)
+    public long getMixes() { return mixes; }
+
+    // a channel changed (nanos: of its sample, 0 if none), mix unless another thread is mixing now
+    private void changed(long nanos) {
+        if (nanos != 0)
+            latestNanos = nanos;
+        version.incrementAndGet();
+        while (mixing.compareAndSet(false, true)) {
+            long mixedVersion;
+            try {
+                do {
+                    mixedVersion = version.get();
+                    mix();
+                } while (version.get() != mixedVersion);
+            } finally {
+                mixing.set(false);
+            }
+            // a publish between the last check and the release found us mixing, and left its values to us
+            if (version.get() == mixedVersion)
+                return;
+        }
+    }
+
+    // merge the active channels of every axis into mixed, and hand it to onValues if it changed
+    private void mix() {
+        mixes++;
+        long now = System.nanoTime();
+        Channel[] all = channels;
+        MergeRule[] axisRules = rules;
+        boolean changed = !emitted;
+        for (int axis = 0; axis < AXES; axis++) {
+            float value = merge(all, axis, axisRules[axis], now);
+            if (value != mixed[axis]) {
+                mixed[axis] = value;
+                changed = true;
+            }
+        }
+        ControlValuesHandler handler = onValues;
+        if (changed && handler != null) {
+            emitted = true;
+            handler.handle(mixed[AILERON], mixed[ELEVATOR], mixed[RUDDER], mixed[THROTTLE], latestNanos);
+        }
+    }
+
+    private float merge(Channel[] all, int axis, MergeRule rule, long now) {
+        // an active overriding channel takes the axis (the highest priority of them)
+        Channel best = null;
+        for (Channel channel : all)
+            if (channel.override && channel.isActive(axis, now) && better(channel, best, axis))
+                best = channel;
+        if (best != null)
+            return Float.intBitsToFloat(best.values.get(axis));
+
+        if (rule == MergeRule.SUM) {
+            float sum = 0;
+            boolean any = false;
+            for (Channel channel : all) {
+                if (channel.isActive(axis, now)) {
+                    sum += Float.intBitsToFloat(channel.values.get(axis));
+                    any = true;
+                }
+            }
+            if (!any)
+                return mixed[axis];
+            return Math.max(axis == THROTTLE ? 0 : -1, Math.min(1, sum));
+        }
+
+        for (Channel channel : all) {
+            if (!channel.isActive(axis, now))
+                continue;
+            if (rule == MergeRule.PRIORITY && better(channel, best, axis))
+                best = channel;
+            else if (rule == MergeRule.LATEST && (best == null
+                    || channel.publishedNanos.get(axis) > best.publishedNanos.get(axis)))
+                best = channel;
+        }
+        return best == null ? mixed[axis] : Float.intBitsToFloat(best.values.get(axis));
+    }
+
+    // higher priority, and of the same priority the one that published last
+    private static boolean better(Channel channel, Channel best, int axis) {
+        if (best == null || channel.priority > best.priority)
+            return true;
+        return channel.priority == best.priority && channel.publishedNanos.get(axis) > best.publishedNanos.get(axis);
+    }
+}
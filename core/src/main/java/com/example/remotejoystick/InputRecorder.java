@@ -0,0 +1,130 @@
+package com.example.remotejoystick;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// records the flight input (what ViewModel.setValues() got) to a file, to replay it later (see InputReplay).
+// the file is a header and then fixed size records of: time, aileron, elevator, rudder, throttle, flags.
+// the records are written to a memory mapped region of the file (mapped RECORDS_PER_REGION records at a time),
+// so a record is a few puts to memory, no system call, and whatever was recorded is in the file even if the
+// app is killed (the header keeps the count of records, see InputRecording).
+public class InputRecorder {
+    // "FGIR" and the version of the format
+    static final int MAGIC = 0x46474952;
+    static final int VERSION = 1;
+    // header: magic, version, record bytes, reserved (ints), records count, start time in epoch millis (longs)
+    static final int HEADER_BYTES = 32;
+    static final int COUNT_OFFSET = 16;
+    static final int START_MILLIS_OFFSET = 24;
+    // record: nanos since the start of the recording (long), aileron, elevator, rudder, throttle (floats), flags (int)
+    static final int RECORD_BYTES = 28;
+    static final int RECORDS_PER_REGION = 16384;
+
+    // flags of a record:
+    // the values came from the joystick (ViewModel.setValues_from_joystick())
+    public static final int FLAG_JOYSTICK = 1;
+    // the values were sent again since another input of the bindings changed (ViewModel.setInput())
+    public static final int FLAG_INPUT = 2;
+    // the values were set by the app itself, not by an input (ViewModel.holdValues(), e.g. the hold of the background)
+    public static final int FLAG_HOLD = 4;
+
+    // event happens when the file can't be written anymore ("Recording Error"), the recording stops then
+    public ErrorEventHandler onError = null;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long startNanos;
+    private MappedByteBuffer region = null;
+    private long regionStart = 0;
+    private long count = 0;
+    private boolean closed = false;
+
+    // create (or overwrite) the file and start recording, times of the records are from now
+    public InputRecorder(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        try {
+            this.channel = raf.getChannel();
+            channel.truncate(0);
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC);
+            header.putInt(4, VERSION);
+            header.putInt(8, RECORD_BYTES);
+            header.putLong(COUNT_OFFSET, 0);
+            header.putLong(START_MILLIS_OFFSET, System.currentTimeMillis());
+            mapRegion(HEADER_BYTES);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+        this.startNanos = System.nanoTime();
+    }
+
+    public File getFile() { return file; }
+
+    // how many records were written
+    public synchronized long getCount() { return count; }
+
+    public synchronized boolean isClosed() { return closed; }
+
+    // append a record of the input at nanos (System.nanoTime(), e.g. of the touch event), never throws.
+    // (ignored after close() or an error)
+    public synchronized void record(long nanos, float aileron, float elevator, float rudder, float throttle, int flags) {
+        if (closed)
+            return;
+        if (!region.hasRemaining()) {
+            try {
+                mapRegion(regionStart + region.capacity());
+            } catch (IOException | RuntimeException e) {
+                close();
+                if (onError != null)
+                    onError.handle(this, new ErrorEventArgs("Recording Error", e));
+                return;
+            }
+        }
+        region.putLong(nanos - startNanos);
+        region.putFloat(aileron);
+        region.putFloat(elevator);
+        region.putFloat(rudder);
+        region.putFloat(throttle);
+        region.putInt(flags);
+        // the record is complete, now count it
+        header.putLong(COUNT_OFFSET, ++count);
+    }
+
+    // write everything to the storage, cut the file after the last record and close it.
+    // the recorder can't be used after it (record() is ignored)
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            region.force();
+            header.force();
+            channel.truncate(HEADER_BYTES + count * RECORD_BYTES);
+        } catch (IOException | RuntimeException e) {
+            // the count in the header is right anyway, so the records are readable
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+    private void mapRegion(long position) throws IOException {
+        if (region != null)
+            region.force();
+        region = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) RECORDS_PER_REGION * RECORD_BYTES);
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        regionStart = position;
+    }
+}
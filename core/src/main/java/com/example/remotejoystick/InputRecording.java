@@ -0,0 +1,75 @@
+package com.example.remotejoystick;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// a file of InputRecorder, read only (mapped to memory, so reading a record is a few gets, no copy of the file).
+// a recording that wasn't closed (e.g. the app was killed) has all the records counted in its header
+public class InputRecording {
+    private final MappedByteBuffer records;
+    private final int size;
+    private final long startMillis;
+
+    private InputRecording(MappedByteBuffer records, int size, long startMillis) {
+        this.records = records;
+        this.size = size;
+        this.startMillis = startMillis;
+    }
+
+    // throws IOException if the file can't be read or isn't a recording
+    public static InputRecording open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < InputRecorder.HEADER_BYTES)
+                throw new IOException(file + " is not an input recording");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != InputRecorder.MAGIC || map.getInt(8) != InputRecorder.RECORD_BYTES)
+                throw new IOException(file + " is not an input recording");
+            if (map.getInt(4) != InputRecorder.VERSION)
+                throw new IOException(file + " is a recording of unknown version " + map.getInt(4));
+            // the count of the header, unless the file was cut (only whole records of the file are read)
+            long count = Math.min(map.getLong(InputRecorder.COUNT_OFFSET),
+                    (length - InputRecorder.HEADER_BYTES) / InputRecorder.RECORD_BYTES);
+            return new InputRecording(map, (int) Math.max(0, count), map.getLong(InputRecorder.START_MILLIS_OFFSET));
+        } finally {
+            // the mapping stays valid after the file is closed
+            raf.close();
+        }
+    }
+
+    // number of records
+    public int size() { return size; }
+
+    // when the recording started (System.currentTimeMillis())
+    public long getStartMillis() { return startMillis; }
+
+    // time of record i, in nanos since the start of the recording
+    public long getNanos(int i) { return records.getLong(offset(i)); }
+
+    public float getAileron(int i) { return records.getFloat(offset(i) + 8); }
+
+    public float getElevator(int i) { return records.getFloat(offset(i) + 12); }
+
+    public float getRudder(int i) { return records.getFloat(offset(i) + 16); }
+
+    public float getThrottle(int i) { return records.getFloat(offset(i) + 20); }
+
+    // InputRecorder.FLAG_* of record i
+    public int getFlags(int i) { return records.getInt(offset(i) + 24); }
+
+    // time from the first record to the last one
+    public long getDurationNanos() { return size == 0 ? 0 : getNanos(size - 1) - getNanos(0); }
+
+    private int offset(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("record " + i + " of " + size);
+        return InputRecorder.HEADER_BYTES + i * InputRecorder.RECORD_BYTES;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.remotejoystick;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+// replays an InputRecording through FGModel.updatePlaneData(), as the view model did when it was recorded:
+// at the original timing, faster / slower (setSpeed()), or as fast as possible.
+// the records are the raw input (from before ViewModel.setConditioner()), so a conditioned flight is replayed through
+// a conditioner of its own (setConditioner()): with the same settings it sends the states the flight sent
+// (the ones of setValues(), the sampling and the settling of a frame clock aren't replayed).
+// run() replays on the calling thread (e.g. a test against FakePropsServer), start() on a thread of its own.
+// every record is handed to the model with its due time as input time, so the latency histograms of the model
+// (setLatencyTracking()) measure the replay the same way they measure a flight, see getLateness() for the replay itself
+public class InputReplay {
+    // speed of setSpeed(): no waits between the records
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    private final InputRecording recording;
+    private final FGModel model;
+    private volatile double speed = 1;
+    private volatile InputConditioner conditioner = null;
+    private volatile boolean stopped = false;
+    private volatile int replayed = 0;
+    private volatile long durationNanos = 0;
+    // how late each record was handed to the model (after its due time), of the timed replays
+    private final LatencyHistogram lateness = new LatencyHistogram();
+    // the state handed to the model last {aileron, elevator, rudder, throttle} (of the replaying thread)
+    private final float[] sent = new float[4];
+    private Thread thread = null;
+
+    public InputReplay(InputRecording recording, FGModel model) {
+        this.recording = recording;
+        this.model = model;
+    }
+
+    // 1 is the original timing, 2 twice as fast, 0.5 half, AS_FAST_AS_POSSIBLE no waits at all
+    public void setSpeed(double speed) {
+        if (speed < 0 || Double.isNaN(speed))
+            throw new IllegalArgumentException("speed should be positive (or AS_FAST_AS_POSSIBLE)");
+        this.speed = speed;
+    }
+
+    public double getSpeed() { return speed; }
+
+    // condition the records before the model as ViewModel does (at the recorded times, whatever the speed),
+    // e.g. InputConditioner.forTouch() for a flight of the app, or other settings to try them on it.
+    // null sends the records as they are (the default). it is reset at every run(), and shouldn't be the one of
+    // a view model in use
+    public void setConditioner(InputConditioner conditioner) { this.conditioner = conditioner; }
+
+    public InputConditioner getConditioner() { return conditioner; }
+
+    // records handed to the model by the last (or current) replay
+    public int getReplayed() { return replayed; }
+
+    // how long the last replay took
+    public long getDurationNanos() { return durationNanos; }
+
+    public LatencyHistogram getLateness() { return lateness; }
+
+    // replay the whole recording on this thread, returns the number of records replayed
+    // (less than recording.size() if stop() was called)
+    public int run() throws InterruptedException {
+        stopped = false;
+        replayed = 0;
+        int size = recording.size();
+        if (size == 0)
+            return 0;
+        double replaySpeed = speed;
+        InputConditioner conditioner_for_now = conditioner;
+        if (conditioner_for_now != null)
+            conditioner_for_now.reset();
+        // (the view model starts at 0 too, before the first input)
+        Arrays.fill(sent, 0);
+        long first = recording.getNanos(0);
+        long start = System.nanoTime();
+        // (a stop() of the thread of start() may come before this run() even began, so the interrupt counts too)
+        for (int i = 0; i < size && !stopped && !Thread.currentThread().isInterrupted(); i++) {
+            long now = System.nanoTime();
+            long due = now;
+            if (replaySpeed != AS_FAST_AS_POSSIBLE) {
+                due = start + (long) ((recording.getNanos(i) - first) / replaySpeed);
+                while (now < due) {
+                    LockSupport.parkNanos(due - now);
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    if (stopped)
+                        break;
+                    now = System.nanoTime();
+                }
+                if (stopped)
+                    break;
+                lateness.record(now - due);
+            }
+            if (conditioner_for_now == null) {
+                sent[0] = recording.getAileron(i);
+                sent[1] = recording.getElevator(i);
+                sent[2] = recording.getRudder(i);
+                sent[3] = recording.getThrottle(i);
+            } else {
+                condition(conditioner_for_now, i);
+            }
+            model.updatePlaneData(sent[0], sent[1], sent[2], sent[3], due, now);
+            replayed = i + 1;
+        }
+        durationNanos = System.nanoTime() - start;
+        return replayed;
+    }
+
+    // the state of record i as ViewModel sent it through conditioner, into sent: a hold went around the conditioner
+    // (and reset it), a record of setInput() resent the last state, and any other was conditioned at its time
+    private void condition(InputConditioner conditioner, int i) {
+        int flags = recording.getFlags(i);
+        if ((flags & InputRecorder.FLAG_INPUT) != 0)
+            return;
+        if ((flags & InputRecorder.FLAG_HOLD) != 0) {
+            conditioner.reset();
+            sent[0] = recording.getAileron(i);
+            sent[1] = recording.getElevator(i);
+            sent[2] = recording.getRudder(i);
+            sent[3] = recording.getThrottle(i);
+            return;
+        }
+        long nanos = recording.getNanos(i);
+        sent[0] = conditioner.condition(InputMixer.AILERON, recording.getAileron(i), nanos);
+        sent[1] = conditioner.condition(InputMixer.ELEVATOR, recording.getElevator(i), nanos);
+        sent[2] = conditioner.condition(InputMixer.RUDDER, recording.getRudder(i), nanos);
+        sent[3] = conditioner.condition(InputMixer.THROTTLE, recording.getThrottle(i), nanos);
+    }
+
+    // replay on a thread of its own (the previous one is stopped first)
+    public synchronized void start() {
+        stop();
+        final Thread replayThread = new Thread(() -> {
+            try {
+                run();
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }, "FGModel-replay");
+        replayThread.setDaemon(true);
+        thread = replayThread;
+        replayThread.start();
+    }
+
+    // stop the replay (of run() or start()), and wait for the thread of start() to end
+    public synchronized void stop() {
+        stopped = true;
+        if (thread == null)
+            return;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    // true while the thread of start() replays
+    public synchronized boolean isRunning() { return thread != null && thread.isAlive(); }
+}
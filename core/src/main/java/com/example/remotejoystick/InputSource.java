@@ -0,0 +1,11 @@
+package com.example.remotejoystick;
+
+// a source of flight input (touch joystick, tilt of the phone, gamepad...) of an InputMixer.
+// a source publishes to its channel from whatever thread it runs on (see InputMixer.Channel)
+public interface InputSource {
+    // start publishing to channel (called by InputMixer.add())
+    void start(InputMixer.Channel channel);
+
+    // stop publishing (called by InputMixer.remove() and stop())
+    void stop();
+}
@@ -0,0 +1,138 @@
+package com.example.remotejoystick;
+
+// the touch path of JoystickView without android: turns touch positions within the joystick movement square
+// into px/py (and the seek bars into pa/pb), and delivers them to a JoystickValuesHandler.
+// a move event is given as begin(), sample() for every historical sample and the current one, and end(),
+// so the view never allocates for it, and this is unit tested on the jvm.
+// called by the ui thread only.
+public class JoystickSampler {
+    private final JoystickValuesHandler handler;
+    private HistoricalSamples historicalSamples = HistoricalSamples.IGNORE;
+    // weight of a new sample in FILTER mode (1 = no smoothing)
+    private float smoothing = 0.5f;
+
+    // size of the movement square, and radius of the knob (the knob center stays radius away from the borders)
+    private float border = -1;
+    private float radius = -1;
+
+    private float px = 0.5f;
+    private float py = 0.5f;
+    private float pa = 0.5f;
+    private float pb = 0;
+    // center of the knob within the movement square, of the last accepted sample
+    private float knobX = -1;
+    private float knobY = -1;
+
+    // state of the current event (between begin() and end())
+    private boolean moved;
+    private long lastSampleNanos;
+    private float filteredX;
+    private float filteredY;
+
+    public JoystickSampler(JoystickValuesHandler handler) {
+        this.handler = handler;
+    }
+
+    // movementBorder: width (= height) of the movement square, radius: of the knob
+    public void setGeometry(float movementBorder, float radius) {
+        this.border = movementBorder;
+        this.radius = radius;
+    }
+
+    public boolean hasGeometry() { return radius > 0; }
+
+    public void setHistoricalSamples(HistoricalSamples mode) { this.historicalSamples = mode; }
+
+    public HistoricalSamples getHistoricalSamples() { return historicalSamples; }
+
+    // weight (0 to 1] of every new sample in HistoricalSamples.FILTER mode
+    public void setSmoothing(float smoothing) {
+        if (smoothing <= 0 || smoothing > 1)
+            throw new IllegalArgumentException("smoothing should be in (0, 1]");
+        this.smoothing = smoothing;
+    }
+
+    // true if sample() should get the historical samples too (false: only the current position)
+    public boolean wantsHistoricalSamples() { return historicalSamples != HistoricalSamples.IGNORE; }
+
+    // start of a touch event
+    public void begin() {
+        moved = false;
+    }
+
+    // one position (x, y within the movement square) of the event, oldest first.
+    // a position the knob can't reach (its circle would leave the square) is ignored
+    public void sample(float x, float y, long sampleNanos) {
+        if (x < radius || y < radius || x > border - radius || y > border - radius)
+            return;
+        if (historicalSamples == HistoricalSamples.FILTER) {
+            if (moved) {
+                x = filteredX + smoothing * (x - filteredX);
+                y = filteredY + smoothing * (y - filteredY);
+            } else if (knobX >= 0) {
+                // continue from where the knob is
+                x = knobX + smoothing * (x - knobX);
+                y = knobY + smoothing * (y - knobY);
+            }
+            filteredX = x;
+            filteredY = y;
+        }
+        moved = true;
+        lastSampleNanos = sampleNanos;
+        moveTo(x, y);
+        if (historicalSamples == HistoricalSamples.FORWARD_ALL)
+            deliver(sampleNanos);
+    }
+
+    // end of a touch event: the values are delivered (once), unless every sample was delivered already.
+    // returns true if the knob moved (so the view should move it to getKnobX/Y)
+    public boolean end() {
+        if (moved && historicalSamples != HistoricalSamples.FORWARD_ALL)
+            deliver(lastSampleNanos);
+        return moved;
+    }
+
+    // the knob is dropped at the next touch, so the filter of the next drag starts at the finger
+    public void release() {
+        knobX = -1;
+        knobY = -1;
+    }
+
+    // a seek bar moved
+    public void setBars(float pa, float pb, long eventNanos) {
+        this.pa = pa;
+        this.pb = pb;
+        deliver(eventNanos);
+    }
+
+    private void moveTo(float x, float y) {
+        knobX = x;
+        knobY = y;
+        // consider the reachable area that the joystick can be within :
+        // x:[radius, border - radius]
+        // if we shift "left" we obtain x:[0, border - 2*radius]
+        // and px is the progress from 0 to (border - 2*radius)
+        // same in y axis
+        px = (x - radius) / (border - 2 * radius);
+        // the user see up direction, while in programming is the lower Y position value
+        py = 1 - (y - radius) / (border - 2 * radius);
+    }
+
+    private void deliver(long eventNanos) {
+        if (handler != null)
+            handler.handle(px, py, pa, pb, eventNanos);
+    }
+
+    public float getPx() { return px; }
+
+    public float getPy() { return py; }
+
+    public float getPa() { return pa; }
+
+    public float getPb() { return pb; }
+
+    // center of the knob within the movement square (-1 before the first touch)
+    public float getKnobX() { return knobX; }
+
+    public float getKnobY() { return knobY; }
+}
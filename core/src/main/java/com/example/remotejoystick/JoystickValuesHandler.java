@@ -0,0 +1,9 @@
+package com.example.remotejoystick;
+
+// handler of joystick-data values updates == (px, py, pa, pb), all between 0 to 1 (see JoystickView),
+// with primitives only, so nothing is allocated per touch event.
+// eventNanos: System.nanoTime() of the input sample (0 if unknown), for latency tracking.
+// (ViewModel::setValues_from_joystick fits it)
+public interface JoystickValuesHandler {
+    void handle(float px, float py, float pa, float pb, long eventNanos);
+}
@@ -0,0 +1,76 @@
+package com.example.remotejoystick;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// fixed-memory histogram of durations in nanoseconds, with log buckets:
+// every power of 2 is split to SUB_BUCKETS linear buckets, so a readout is at most ~12% above the real value.
+// record() never allocates and never locks, so it can be called from the hot path of any thread,
+// while another thread reads percentiles.
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // enough buckets for any positive long
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    // add one duration (negative durations are counted as 0)
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        total.incrementAndGet();
+        long prevMax = max.get();
+        while (nanos > prevMax && !max.compareAndSet(prevMax, nanos))
+            prevMax = max.get();
+    }
+
+    public long getCount() { return total.get(); }
+
+    public long getMax() { return max.get(); }
+
+    // the value that fraction (0 to 1) of the recorded durations are not above it (upper bound of its bucket),
+    // 0 if nothing was recorded. e.g. getPercentile(0.99) is p99
+    public long getPercentile(double fraction) {
+        long count = total.get();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        total.set(0);
+        max.set(0);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        // the last bucket would overflow
+        return lower + width - 1 < lower ? Long.MAX_VALUE : lower + width - 1;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.remotejoystick;
+
+import java.nio.ByteBuffer;
+
+// measures the round trip to flight gear, so stick lag can be told apart: phone (see FGModel.getLatency()),
+// network + flight gear (this). every interval the connection writes a marker property tagged with a sequence number
+// ("set /sim/remote-joystick/probe <seq>") on the control connection, and flight gear pushes it back to the subscriber,
+// followed by the answer of "get /sim/time/elapsed-sec" (the clock of the simulator).
+// the round trip is the time from the write to the echo (so it includes the frame time of flight gear, which handles
+// telnet once per frame, as it does for the controls), the one way latency is half of the median round trip
+// (a round trip that waited in a queue of either end says little about the path, and the mean would follow it).
+// the first answers of a connection are a warm-up (the subscription, the threads of both ends starting): they are
+// counted, but not measured, so a slow first probe doesn't inflate the smoothed estimates for the next many probes.
+// at most one probe is out at a time, a probe is skipped while the socket has control bytes to write
+// (it never competes with the frames), and one without an answer for the timeout is counted as lost.
+// set it with FGModel.setLatencyProbe(), results are read by any thread (histograms are of fixed memory).
+public class LatencyProbe implements ReceiveHandler {
+    public static final String MARKER_PATH = "/sim/remote-joystick/probe";
+    static final String TIME_PATH = "/sim/time/elapsed-sec";
+    private static final byte[] MARKER = ControlFrameEncoder.ascii(MARKER_PATH);
+    private static final byte[] SET_MARKER = ControlFrameEncoder.ascii("set " + MARKER_PATH + " ");
+    private static final byte[] GET_TIME = ControlFrameEncoder.ascii("\r\nget " + TIME_PATH + "\r\n");
+    private static final byte[] SUBSCRIBE = ControlFrameEncoder.ascii("subscribe " + MARKER_PATH + "\r\n");
+    private static final byte[] UNSUBSCRIBE = ControlFrameEncoder.ascii("unsubscribe " + MARKER_PATH + "\r\n");
+    private static final int MAX_LINE_BYTES = 128;
+    // answers of every connection that are not measured
+    static final int WARM_UP_PROBES = 1;
+
+    private volatile long intervalNanos = 1000000000L;
+    private volatile long timeoutNanos = 2000000000L;
+
+    // state of the connection thread only:
+    private long sequence = 0;
+    // sequence number of the probe that is out (-1 if none), and when it was written
+    private long outstanding = -1;
+    private long sentNanos = 0;
+    private long nextProbeNanos = 0;
+    // the echo came, the next line without "=" is the simulator time
+    private boolean awaitingTime = false;
+    private long answeredSentNanos = 0;
+    private long answeredRoundTrip = 0;
+    // round trip of the last measured probe of this connection (-1 if none), and answers left to the warm-up
+    private long lastRoundTrip = -1;
+    private int warmUpLeft = WARM_UP_PROBES;
+    private final ByteBuffer command = ByteBuffer.allocate(SET_MARKER.length + 20 + GET_TIME.length);
+    private final byte[] digits = new byte[20];
+    private final byte[] line = new byte[MAX_LINE_BYTES];
+    private int lineLength = 0;
+    private boolean lineTooLong = false;
+
+    // results:
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+    // difference between consecutive round trips
+    private final LatencyHistogram jitter = new LatencyHistogram();
+    // smoothed round trip and its variation (as tcp does, RFC 6298), and smoothed jitter (as rtp does, RFC 3550)
+    private volatile long smoothedRoundTripNanos = 0;
+    private volatile long roundTripVariationNanos = 0;
+    private volatile long jitterNanos = 0;
+    // clock of the simulator minus System.nanoTime() (of probes that weren't delayed more than usual)
+    private volatile long clockOffsetNanos = 0;
+    private volatile boolean clockOffsetKnown = false;
+    private volatile long probesSent = 0;
+    private volatile long probesAnswered = 0;
+    private volatile long probesWarmUp = 0;
+    private volatile long probesLost = 0;
+    private volatile long probesSkipped = 0;
+
+    // time between probes (of the default 1 second)
+    public void setInterval(long millis) {
+        if (millis <= 0)
+            throw new IllegalArgumentException("probe interval should be positive");
+        this.intervalNanos = millis * 1000000L;
+    }
+
+    public long getIntervalMillis() { return intervalNanos / 1000000L; }
+
+    // a probe without an answer for this long is lost (default 2 seconds)
+    public void setTimeout(long millis) {
+        if (millis <= 0)
+            throw new IllegalArgumentException("probe timeout should be positive");
+        this.timeoutNanos = millis * 1000000L;
+    }
+
+    public LatencyHistogram getRoundTrip() { return roundTrip; }
+
+    public LatencyHistogram getJitter() { return jitter; }
+
+    public long getSmoothedRoundTripNanos() { return smoothedRoundTripNanos; }
+
+    public long getRoundTripVariationNanos() { return roundTripVariationNanos; }
+
+    // estimate of the latency from the phone to flight gear: half of the median round trip (0 before the first)
+    public long getOneWayNanos() { return roundTrip.getPercentile(0.5) / 2; }
+
+    public long getJitterNanos() { return jitterNanos; }
+
+    // time of the simulator (/sim/time/elapsed-sec, in nanos) = System.nanoTime() + this, if hasClockOffset()
+    public long getClockOffsetNanos() { return clockOffsetNanos; }
+
+    public boolean hasClockOffset() { return clockOffsetKnown; }
+
+    public long getProbesSent() { return probesSent; }
+
+    public long getProbesAnswered() { return probesAnswered; }
+
+    // answered probes of the warm-up of the connections (not in the measurements)
+    public long getProbesWarmUp() { return probesWarmUp; }
+
+    public long getProbesLost() { return probesLost; }
+
+    // probes that were not written since the socket still had control bytes to write
+    public long getProbesSkipped() { return probesSkipped; }
+
+    // "subscribe" line of the marker property
+    byte[] getSubscribeCommand() { return SUBSCRIBE; }
+
+    byte[] getUnsubscribeCommand() { return UNSUBSCRIBE; }
+
+    // a new connection (subscribed to the marker): the first probe is due now
+    void connected(long nowNanos) {
+        outstanding = -1;
+        awaitingTime = false;
+        lineLength = 0;
+        lineTooLong = false;
+        nextProbeNanos = nowNanos;
+        // (the estimates start over from the first measured probe, the path may be another one)
+        lastRoundTrip = -1;
+        warmUpLeft = WARM_UP_PROBES;
+    }
+
+    // nanos until isDue() may change (a probe is due, or the one that is out times out)
+    long nanosUntilDue(long nowNanos) {
+        if (outstanding >= 0)
+            return sentNanos + timeoutNanos - nowNanos;
+        return nextProbeNanos - nowNanos;
+    }
+
+    // true if the next probe should be written now (a probe out for longer than the timeout is counted as lost)
+    boolean isDue(long nowNanos) {
+        if (outstanding >= 0) {
+            if (nowNanos - sentNanos < timeoutNanos)
+                return false;
+            outstanding = -1;
+            probesLost++;
+        }
+        return nowNanos >= nextProbeNanos;
+    }
+
+    // the probe was due, but the socket was busy with the controls: try again after an interval
+    void skip(long nowNanos) {
+        probesSkipped++;
+        nextProbeNanos = nowNanos + intervalNanos;
+    }
+
+    // the commands of the next probe (reused buffer, in read mode), it counts as written at nowNanos
+    ByteBuffer encode(long nowNanos) {
+        long tag = sequence++;
+        command.clear();
+        command.put(SET_MARKER);
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + tag % 10);
+            tag /= 10;
+        } while (tag > 0);
+        while (count > 0)
+            command.put(digits[--count]);
+        command.put(GET_TIME);
+        command.flip();
+        outstanding = sequence - 1;
+        sentNanos = nowNanos;
+        nextProbeNanos = nowNanos + intervalNanos;
+        probesSent++;
+        return command;
+    }
+
+    // parse what flight gear sent (called by the connection thread, data is valid only during the call)
+    @Override
+    public void handle(ByteBuffer data) {
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (b == '\n') {
+                if (!lineTooLong && lineLength > 0)
+                    parseLine(System.nanoTime());
+                lineLength = 0;
+                lineTooLong = false;
+            } else if (b != '\r') {
+                if (lineLength < line.length)
+                    line[lineLength++] = b;
+                else
+                    lineTooLong = true;
+            }
+        }
+    }
+
+    // "<marker>=<seq>" is the echo of a probe, a line of just a number after it is the simulator time
+    private void parseLine(long nowNanos) {
+        if (lineLength > MARKER.length && line[MARKER.length] == '='
+                && Telemetry.regionEquals(line, 0, MARKER.length, MARKER)) {
+            double tag = Telemetry.parseNumber(line, MARKER.length + 1, lineLength);
+            if (outstanding < 0 || tag != outstanding)
+                return;
+            outstanding = -1;
+            probesAnswered++;
+            if (warmUpLeft > 0) {
+                // (nor is its simulator time a measure of the clocks)
+                warmUpLeft--;
+                probesWarmUp++;
+                awaitingTime = false;
+                return;
+            }
+            answered(nowNanos - sentNanos);
+            answeredSentNanos = sentNanos;
+            awaitingTime = true;
+            return;
+        }
+        if (!awaitingTime)
+            return;
+        for (int i = 0; i < lineLength; i++)
+            if (line[i] == '=')
+                return;
+        awaitingTime = false;
+        double seconds = Telemetry.parseNumber(line, 0, lineLength);
+        if (!Double.isNaN(seconds))
+            simulatorTime((long) (seconds * 1e9));
+    }
+
+    private void answered(long rtt) {
+        roundTrip.record(rtt);
+        if (lastRoundTrip < 0) {
+            smoothedRoundTripNanos = rtt;
+            roundTripVariationNanos = rtt / 2;
+        } else {
+            long difference = Math.abs(rtt - lastRoundTrip);
+            jitter.record(difference);
+            jitterNanos += (difference - jitterNanos) / 16;
+            roundTripVariationNanos += (Math.abs(smoothedRoundTripNanos - rtt) - roundTripVariationNanos) / 4;
+            smoothedRoundTripNanos += (rtt - smoothedRoundTripNanos) / 8;
+        }
+        lastRoundTrip = rtt;
+        answeredRoundTrip = rtt;
+    }
+
+    // the simulator was at simulatorNanos about half a round trip after the probe was written
+    private void simulatorTime(long simulatorNanos) {
+        long offset = simulatorNanos - (answeredSentNanos + answeredRoundTrip / 2);
+        if (!clockOffsetKnown) {
+            clockOffsetNanos = offset;
+            clockOffsetKnown = true;
+        } else if (answeredRoundTrip <= smoothedRoundTripNanos + roundTripVariationNanos) {
+            // a probe that waited in a queue says little about the clocks
+            clockOffsetNanos += (offset - clockOffsetNanos) / 8;
+        }
+    }
+}
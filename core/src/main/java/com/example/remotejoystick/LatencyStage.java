@@ -0,0 +1,14 @@
+package com.example.remotejoystick;
+
+// stages of the way of a joystick sample from the touch event until its bytes were written to the socket,
+// each one has a LatencyHistogram in FGModel (see FGModel.getLatency)
+public enum LatencyStage {
+    // JoystickView got the touch / seek bar event -> ViewModel.setValues()
+    INPUT_TO_VIEW_MODEL,
+    // ViewModel.setValues() -> the sending thread took the sample (from the slot, or as es task)
+    VIEW_MODEL_TO_DEQUEUE,
+    // the sending thread took the sample -> the socket write returned
+    DEQUEUE_TO_WRITTEN,
+    // the whole way: JoystickView event -> the socket write returned
+    INPUT_TO_WRITTEN
+}
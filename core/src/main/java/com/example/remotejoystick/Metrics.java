@@ -0,0 +1,92 @@
+package com.example.remotejoystick;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// registry of the operational metrics of the pipeline (JoystickView -> ViewModel -> FGModel -> socket):
+// counters (StripedCounter, added to on the hot path without locks) and gauges (read only when a snapshot is taken,
+// so they cost nothing until then). metrics are registered once, by name (e.g. "model.framesSent"),
+// and snapshot() reads all of them into an immutable MetricsSnapshot, for an overlay or an export (MetricsExporter).
+// the model has one (FGModel.getMetrics()), the other stages of the pipeline register their metrics in it.
+public class Metrics {
+    // a value that is read when a snapshot is taken (e.g. queue depth), from the thread that takes it
+    public interface Gauge {
+        long get();
+    }
+
+    // copy on write (registering is rare, a snapshot reads the arrays without locks)
+    private volatile String[] names = new String[0];
+    private volatile Object[] metrics = new Object[0];
+    private volatile List<String> nameList = Collections.emptyList();
+
+    // the counter of name, registered now if it is new
+    public StripedCounter counter(String name) {
+        synchronized (this) {
+            int index = indexOf(name);
+            if (index >= 0) {
+                if (!(metrics[index] instanceof StripedCounter))
+                    throw new IllegalArgumentException("metric '" + name + "' is a gauge");
+                return (StripedCounter) metrics[index];
+            }
+            StripedCounter counter = new StripedCounter();
+            register(name, counter);
+            return counter;
+        }
+    }
+
+    // register gauge as name (replaces a gauge of the same name, e.g. of a new transport)
+    public void gauge(String name, Gauge gauge) {
+        synchronized (this) {
+            int index = indexOf(name);
+            if (index < 0) {
+                register(name, gauge);
+                return;
+            }
+            if (!(metrics[index] instanceof Gauge))
+                throw new IllegalArgumentException("metric '" + name + "' is a counter");
+            Object[] next = metrics.clone();
+            next[index] = gauge;
+            metrics = next;
+        }
+    }
+
+    // names of the metrics, in the order they were registered (the order of the snapshots)
+    public List<String> getNames() { return nameList; }
+
+    // current values of all the metrics (allocates one array of values, the names are shared)
+    public MetricsSnapshot snapshot() {
+        // (a registration in between may leave the two a metric apart, only the metrics of both are taken)
+        Object[] all = metrics;
+        List<String> list = nameList;
+        int count = Math.min(all.length, list.size());
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            Object metric = all[i];
+            values[i] = metric instanceof StripedCounter ? ((StripedCounter) metric).get() : ((Gauge) metric).get();
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), System.nanoTime(),
+                count == list.size() ? list : list.subList(0, count), values);
+    }
+
+    // (under the lock)
+    private void register(String name, Object metric) {
+        if (name.isEmpty() || name.indexOf(' ') >= 0 || name.indexOf('=') >= 0)
+            throw new IllegalArgumentException("invalid metric name '" + name + "'");
+        String[] nextNames = Arrays.copyOf(names, names.length + 1);
+        nextNames[names.length] = name;
+        Object[] next = Arrays.copyOf(metrics, metrics.length + 1);
+        next[metrics.length] = metric;
+        metrics = next;
+        names = nextNames;
+        nameList = Collections.unmodifiableList(Arrays.asList(nextNames));
+    }
+
+    // (under the lock)
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name))
+                return i;
+        return -1;
+    }
+}
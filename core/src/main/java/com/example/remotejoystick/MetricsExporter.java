@@ -0,0 +1,90 @@
+package com.example.remotejoystick;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// takes a snapshot of a Metrics registry every interval on its own (daemon) thread and hands it to a sink
+// (a file, logcat...). the pipeline never waits for it: the snapshot only reads counters and gauges.
+public class MetricsExporter {
+    // where the snapshots go (called by the exporter thread)
+    public interface Sink {
+        void export(MetricsSnapshot snapshot) throws IOException;
+    }
+
+    // event happens when the sink fails (the exporter goes on with the next snapshot)
+    public ErrorEventHandler onError = null;
+
+    private final Metrics metrics;
+    private final Sink sink;
+    private final long intervalMillis;
+    private volatile boolean running = false;
+    private Thread thread = null;
+    private volatile long exports = 0;
+
+    public MetricsExporter(Metrics metrics, long intervalMillis, Sink sink) {
+        if (intervalMillis <= 0)
+            throw new IllegalArgumentException("export interval should be positive");
+        this.metrics = metrics;
+        this.intervalMillis = intervalMillis;
+        this.sink = sink;
+    }
+
+    // a sink that appends the snapshots to file, one line each (see MetricsSnapshot.toString())
+    public static Sink toFile(final File file) {
+        return snapshot -> {
+            OutputStream out = new FileOutputStream(file, true);
+            try {
+                out.write((snapshot + "\n").getBytes(StandardCharsets.US_ASCII));
+            } finally {
+                out.close();
+            }
+        };
+    }
+
+    public synchronized void start() {
+        if (running)
+            return;
+        running = true;
+        thread = new Thread(this::loop, "Metrics-export");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // stop exporting (a last snapshot is exported, so the end of a session isn't lost)
+    public synchronized void stop() {
+        if (!running)
+            return;
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    public long getExports() { return exports; }
+
+    private void loop() {
+        boolean last = false;
+        while (!last) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                // stop(): export once more
+            }
+            last = !running;
+            try {
+                sink.export(metrics.snapshot());
+                exports++;
+            } catch (IOException | RuntimeException e) {
+                if (onError != null)
+                    onError.handle(this, new ErrorEventArgs("Metrics export failed", e));
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.remotejoystick;
+
+import java.util.List;
+
+// the values of all the metrics of a Metrics registry at one time (immutable)
+public class MetricsSnapshot {
+    // System.currentTimeMillis() and System.nanoTime() when it was taken
+    public final long wallMillis;
+    public final long nanos;
+    private final List<String> names;
+    private final long[] values;
+
+    MetricsSnapshot(long wallMillis, long nanos, List<String> names, long[] values) {
+        this.wallMillis = wallMillis;
+        this.nanos = nanos;
+        this.names = names;
+        this.values = values;
+    }
+
+    public int size() { return values.length; }
+
+    public List<String> getNames() { return names; }
+
+    public String getName(int i) { return names.get(i); }
+
+    public long getValue(int i) { return values[i]; }
+
+    // value of the metric of name, or missing if there isn't one (e.g. of a newer version)
+    public long get(String name, long missing) {
+        int index = names.indexOf(name);
+        return index < 0 ? missing : values[index];
+    }
+
+    // how much the metric of name grew since previous (e.g. frames sent in the interval)
+    public long delta(MetricsSnapshot previous, String name) {
+        return get(name, 0) - previous.get(name, 0);
+    }
+
+    // one line: "<wall millis> name=value name=value ..."
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder().append(wallMillis);
+        for (int i = 0; i < values.length; i++)
+            line.append(' ').append(names.get(i)).append('=').append(values[i]);
+        return line.toString();
+    }
+}
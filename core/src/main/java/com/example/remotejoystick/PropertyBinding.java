@@ -0,0 +1,51 @@
+package com.example.remotejoystick;
+
+// one row of a BindingTable: the flight gear property that an input drives, and how:
+// value = input * scale + offset, clamped to [min, max], sent in steps of step,
+// and only when it moved at least deadband from the last sent value (see ControlFrameEncoder)
+public class PropertyBinding {
+    public final String input;
+    // index of the input in the inputs of the table
+    public final int inputIndex;
+    public final String path;
+    public final float scale;
+    public final float offset;
+    public final float min;
+    public final float max;
+    public final float step;
+    public final float deadband;
+
+    public PropertyBinding(String input, int inputIndex, String path, float scale, float offset,
+                           float min, float max, float step, float deadband) {
+        if (path.isEmpty() || path.charAt(0) != '/')
+            throw new IllegalArgumentException("property path should start with '/': " + path);
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c <= ' ' || c > '~')
+                throw new IllegalArgumentException("property path should be printable ascii without spaces: " + path);
+        }
+        if (!(min <= max))
+            throw new IllegalArgumentException("min should not be above max: " + path);
+        if (!(step >= 1f / 10000) || !(deadband >= 0))
+            throw new IllegalArgumentException("step should be at least 0.0001 and deadband not negative: " + path);
+        this.input = input;
+        this.inputIndex = inputIndex;
+        this.path = path;
+        this.scale = scale;
+        this.offset = offset;
+        this.min = min;
+        this.max = max;
+        this.step = step;
+        this.deadband = deadband;
+    }
+
+    // the property value of the given input value
+    public float apply(float value) {
+        value = value * scale + offset;
+        if (value < min)
+            return min;
+        if (value > max)
+            return max;
+        return value;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.remotejoystick;
+
+import java.nio.ByteBuffer;
+
+// handler of the bytes that flight gear sent back, called by the connection thread for every read.
+// data is a reused buffer (in read mode), valid only during handle(), so nothing is allocated per read
+public interface ReceiveHandler {
+    void handle(ByteBuffer data);
+}
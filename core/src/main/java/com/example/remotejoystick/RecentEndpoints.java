@@ -0,0 +1,93 @@
+package com.example.remotejoystick;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the flight gear instances the app connected to lately, the last good one first.
+// it is saved as text (one "ip port TRANSPORT" line each, see encode()), so the app keeps it in its preferences
+// and pre-connects to getLast() at startup, before the user even looks at the connection boxes.
+// not thread safe (the ui thread owns it)
+public class RecentEndpoints {
+    public static final int DEFAULT_CAPACITY = 5;
+
+    private final int capacity;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    public RecentEndpoints() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RecentEndpoints(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity should be at least 1");
+        this.capacity = capacity;
+    }
+
+    // endpoint connected: it goes first (moved there if it was already known), and the oldest is dropped if full.
+    // returns false if it was the last one already (nothing to save)
+    public boolean add(Endpoint endpoint) {
+        if (!endpoints.isEmpty() && endpoints.get(0).equals(endpoint))
+            return false;
+        endpoints.remove(endpoint);
+        endpoints.add(0, endpoint);
+        while (endpoints.size() > capacity)
+            endpoints.remove(endpoints.size() - 1);
+        return true;
+    }
+
+    // the last good endpoint, or null if there is none yet
+    public Endpoint getLast() { return endpoints.isEmpty() ? null : endpoints.get(0); }
+
+    public int size() { return endpoints.size(); }
+
+    public Endpoint get(int index) { return endpoints.get(index); }
+
+    // the ips, the last one first and each once (for the suggestions of the ip box)
+    public List<String> getIps() {
+        List<String> ips = new ArrayList<>();
+        for (Endpoint endpoint : endpoints)
+            if (!ips.contains(endpoint.ip))
+                ips.add(endpoint.ip);
+        return ips;
+    }
+
+    // one "ip port TRANSPORT" line per endpoint, the last one first
+    public String encode() {
+        StringBuilder text = new StringBuilder();
+        for (Endpoint endpoint : endpoints)
+            text.append(endpoint).append('\n');
+        return text.toString();
+    }
+
+    // the endpoints of text (of encode()), lines that aren't a valid endpoint are skipped
+    // (so a saved list of an older version, or a broken one, is never an error at startup)
+    public static RecentEndpoints decode(String text, int capacity) {
+        RecentEndpoints recent = new RecentEndpoints(capacity);
+        if (text == null)
+            return recent;
+        for (String line : text.split("\n")) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length != 3)
+                continue;
+            int port = Endpoint.parsePort(fields[1]);
+            TransportType transport = transportOf(fields[2]);
+            if (Endpoint.parseIpv4(fields[0]) < 0 || port < 0 || transport == null)
+                continue;
+            Endpoint endpoint = new Endpoint(fields[0], port, transport);
+            if (!recent.endpoints.contains(endpoint) && recent.endpoints.size() < capacity)
+                recent.endpoints.add(endpoint);
+        }
+        return recent;
+    }
+
+    public static RecentEndpoints decode(String text) {
+        return decode(text, DEFAULT_CAPACITY);
+    }
+
+    private static TransportType transportOf(String name) {
+        for (TransportType type : TransportType.values())
+            if (type.name().equals(name))
+                return type;
+        return null;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.remotejoystick;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// controls how many frames per second FGModel sends, between min and max Hz, by how the socket keeps up:
+// after every write, onWrite() gets how long the write took and how many bytes the socket couldn't take yet.
+// a healthy write raises the rate a little (additive), a stalled write (or slow writes) halves it (multiplicative),
+// so the rate settles around what the network can carry (as tcp congestion control does).
+// tryAcquire() (admission of a frame) never locks, so any number of input threads can call it,
+// onWrite() is called by the sending thread (it is synchronized anyway).
+public class SendRateController {
+    // a write that took longer than this means the socket is full (a non-blocking write takes microseconds)
+    private static final long DEFAULT_SLOW_WRITE_NANOS = 2000000;
+
+    private volatile int minHz;
+    private volatile int maxHz;
+    private volatile long slowWriteNanos = DEFAULT_SLOW_WRITE_NANOS;
+    // current rate, changed only by onWrite() / setRange() (under the lock), read by everyone through intervalNanos
+    private double rateHz;
+    private volatile long intervalNanos;
+    // when the rate was halved last, it is halved at most once per interval, so one congested moment
+    // (many slow writes in a row) won't drop the rate straight to min
+    private long lastDecreaseNanos = 0;
+    private boolean decreased = false;
+    // slow writes in a row: one slow write is usually the thread being preempted, not the network
+    private int slowWrites = 0;
+    // the time the next frame is allowed (tryAcquire)
+    private final AtomicLong nextNanos = new AtomicLong(Long.MIN_VALUE / 2);
+
+    private final AtomicLong increases = new AtomicLong();
+    private final AtomicLong decreases = new AtomicLong();
+
+    // the rate starts at maxHz (and is lowered only if the network can't keep up)
+    public SendRateController(int minHz, int maxHz) {
+        setRange(minHz, maxHz);
+    }
+
+    // 1 <= minHz <= maxHz, the current rate is kept within the range (and starts at maxHz if it was above it)
+    public synchronized void setRange(int minHz, int maxHz) {
+        if (minHz <= 0 || maxHz < minHz)
+            throw new IllegalArgumentException("send rate should be positive and max not less than min");
+        this.minHz = minHz;
+        this.maxHz = maxHz;
+        if (rateHz == 0 || rateHz > maxHz)
+            rateHz = maxHz;
+        if (rateHz < minHz)
+            rateHz = minHz;
+        intervalNanos = (long) (1e9 / rateHz);
+    }
+
+    public int getMinHz() { return minHz; }
+
+    public int getMaxHz() { return maxHz; }
+
+    // two writes in a row that take longer than this are counted as congestion
+    public void setSlowWriteNanos(long nanos) { this.slowWriteNanos = nanos; }
+
+    // current frames per second
+    public int getRateHz() { return (int) Math.round(1e9 / intervalNanos); }
+
+    // current time between two frames
+    public long getIntervalNanos() { return intervalNanos; }
+
+    // how many times the rate was raised / lowered
+    public long getIncreases() { return increases.get(); }
+
+    public long getDecreases() { return decreases.get(); }
+
+    // true if a frame may be sent at nowNanos (System.nanoTime()), and then it takes the slot of that frame.
+    // a frame that came a bit late doesn't delay the next ones (so the rate holds with jittery input),
+    // but after a pause of more than an interval the schedule starts again from now (no bursts)
+    public boolean tryAcquire(long nowNanos) {
+        long interval = intervalNanos;
+        while (true) {
+            long next = nextNanos.get();
+            if (nowNanos < next)
+                return false;
+            long slot = nowNanos - next > interval ? nowNanos : next;
+            if (nextNanos.compareAndSet(next, slot + interval))
+                return true;
+        }
+    }
+
+    // report of one write: how long it took, how many bytes of it are still waiting for the socket,
+    // and whether the socket couldn't take the frame at all (ControlTransport.STALLED)
+    public synchronized void onWrite(long writeNanos, int pendingBytes, boolean stalled, long nowNanos) {
+        slowWrites = writeNanos > slowWriteNanos ? slowWrites + 1 : 0;
+        if (stalled || pendingBytes > 0 || slowWrites >= 2) {
+            if ((decreased && nowNanos - lastDecreaseNanos < intervalNanos) || rateHz <= minHz)
+                return;
+            decreased = true;
+            lastDecreaseNanos = nowNanos;
+            rateHz = Math.max(minHz, rateHz / 2);
+            decreases.incrementAndGet();
+        } else {
+            // a single slow write says nothing either way
+            if (slowWrites > 0 || rateHz >= maxHz)
+                return;
+            // about 50 healthy writes from min to max
+            rateHz = Math.min(maxHz, rateHz + Math.max(1, maxHz / 50.0));
+            increases.incrementAndGet();
+        }
+        intervalNanos = (long) (1e9 / rateHz);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.remotejoystick;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// counter that many threads add to without contending: every thread adds to one of a few stripes
+// (by its id), each on its own cache line, and get() sums them. (LongAdder does the same, but it isn't
+// on the android versions of the app.) add() never allocates and never locks, get() is a sum of a few longs,
+// and is exact once the adding threads are done (while they add, it is one of the values in between).
+public class StripedCounter {
+    // 2 stripes per cpu, a power of 2, at most 64
+    private static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4 - 1));
+    // longs of a cache line (64 bytes), so the stripes don't share one
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() { add(1); }
+
+    public void add(long n) {
+        cells.getAndAdd(stripe() * PADDING, n);
+    }
+
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++)
+            sum += cells.get(i * PADDING);
+        return sum;
+    }
+
+    // (not atomic with concurrent adds)
+    public void reset() {
+        for (int i = 0; i < STRIPES; i++)
+            cells.set(i * PADDING, 0);
+    }
+
+    // the stripe of the current thread (a thread always adds to the same one)
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        // spread consecutive ids (fibonacci hashing)
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 58) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.remotejoystick;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// mirror of flight gear properties (airspeed, altitude...) that flight gear pushes, without polling:
+// the telnet connection subscribes to the properties ("subscribe <path>"), and flight gear then sends
+// "<path>=<value>" whenever one changes. handle() parses these lines straight from the reused receive buffer
+// (lines may be split between reads), into a cache of doubles by index, so nothing is allocated per update.
+// the connection thread is the only writer, any thread (e.g. the ui) reads the cache without locks.
+// set it with FGModel.setTelemetry(), a connection subscribes to the properties as soon as it is connected.
+public class Telemetry implements ReceiveHandler {
+    // a longer line can't be one of ours, it is skipped
+    private static final int MAX_LINE_BYTES = 512;
+    private static final byte[] SUBSCRIBE = ControlFrameEncoder.ascii("subscribe ");
+    private static final byte[] UNSUBSCRIBE = ControlFrameEncoder.ascii("unsubscribe ");
+    private static final byte[] TRUE = ControlFrameEncoder.ascii("true");
+    private static final byte[] FALSE = ControlFrameEncoder.ascii("false");
+    // exact powers of ten of a double
+    private static final double[] POW10 = new double[23];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++)
+            POW10[i] = POW10[i - 1] * 10;
+    }
+
+    private final List<String> paths;
+    private final byte[][] pathBytes;
+    private final byte[] subscribeCommands;
+    private final byte[] unsubscribeCommands;
+
+    // the cache: raw bits of the double value, and System.nanoTime() of its update (0 if never updated)
+    private final AtomicLongArray values;
+    private final AtomicLongArray updatedNanos;
+    private volatile long updates = 0;
+    // lines that were not of a subscribed property, or whose value is not a number
+    private volatile long linesIgnored = 0;
+
+    // parser state, of the connection thread only: the current line so far
+    private final byte[] line = new byte[MAX_LINE_BYTES];
+    private int lineLength = 0;
+    private boolean lineTooLong = false;
+
+    // paths as flight gear writes them back: absolute, without "[0]" (e.g. /velocities/airspeed-kt)
+    public Telemetry(String... paths) {
+        if (paths.length == 0)
+            throw new IllegalArgumentException("expected at least one property to subscribe to");
+        this.paths = Collections.unmodifiableList(Arrays.asList(paths.clone()));
+        this.pathBytes = new byte[paths.length][];
+        int subscribeLength = 0;
+        int unsubscribeLength = 0;
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i].isEmpty() || paths[i].indexOf(' ') >= 0 || paths[i].indexOf('=') >= 0)
+                throw new IllegalArgumentException("invalid property path '" + paths[i] + "'");
+            pathBytes[i] = ControlFrameEncoder.ascii(paths[i]);
+            subscribeLength += SUBSCRIBE.length + pathBytes[i].length + 2;
+            unsubscribeLength += UNSUBSCRIBE.length + pathBytes[i].length + 2;
+        }
+        ByteBuffer subscribe = ByteBuffer.allocate(subscribeLength);
+        ByteBuffer unsubscribe = ByteBuffer.allocate(unsubscribeLength);
+        for (byte[] path : pathBytes) {
+            subscribe.put(SUBSCRIBE).put(path).put((byte) '\r').put((byte) '\n');
+            unsubscribe.put(UNSUBSCRIBE).put(path).put((byte) '\r').put((byte) '\n');
+        }
+        this.subscribeCommands = subscribe.array();
+        this.unsubscribeCommands = unsubscribe.array();
+        this.values = new AtomicLongArray(paths.length);
+        this.updatedNanos = new AtomicLongArray(paths.length);
+    }
+
+    public List<String> getPaths() { return paths; }
+
+    // index of the given path in the cache (look it up once, not per read), -1 if it isn't subscribed
+    public int getIndex(String path) { return paths.indexOf(path); }
+
+    // last value of the property of index (0 until the first update)
+    public double get(int index) { return Double.longBitsToDouble(values.get(index)); }
+
+    // when the property of index was last updated (System.nanoTime()), 0 if it never was
+    public long getUpdatedNanos(int index) { return updatedNanos.get(index); }
+
+    // updates of all the properties so far (changes when anything in the cache changed)
+    public long getUpdates() { return updates; }
+
+    public long getLinesIgnored() { return linesIgnored; }
+
+    // "subscribe <path>" lines of all the properties
+    byte[] getSubscribeCommands() { return subscribeCommands; }
+
+    byte[] getUnsubscribeCommands() { return unsubscribeCommands; }
+
+    // a new connection: forget the partial line of the previous one
+    void resetLine() {
+        lineLength = 0;
+        lineTooLong = false;
+    }
+
+    // parse what flight gear sent (called by the connection thread, data is valid only during the call)
+    @Override
+    public void handle(ByteBuffer data) {
+        long now = 0;
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (b == '\n') {
+                if (!lineTooLong && lineLength > 0) {
+                    if (now == 0)
+                        now = System.nanoTime();
+                    parseLine(now);
+                }
+                resetLine();
+            } else if (b != '\r') {
+                if (lineLength < line.length)
+                    line[lineLength++] = b;
+                else
+                    lineTooLong = true;
+            }
+        }
+    }
+
+    // line is "<path>=<value>"
+    private void parseLine(long now) {
+        int equals = -1;
+        for (int i = 0; i < lineLength; i++) {
+            if (line[i] == '=') {
+                equals = i;
+                break;
+            }
+        }
+        int index = equals < 0 ? -1 : indexOf(equals);
+        if (index < 0) {
+            linesIgnored++;
+            return;
+        }
+        double value = parseNumber(line, equals + 1, lineLength);
+        if (Double.isNaN(value)) {
+            linesIgnored++;
+            return;
+        }
+        values.set(index, Double.doubleToRawLongBits(value));
+        updatedNanos.set(index, now);
+        updates++;
+    }
+
+    // the path of line[0..length) (a linear search, telemetry is a handful of properties)
+    private int indexOf(int length) {
+        for (int i = 0; i < pathBytes.length; i++)
+            if (regionEquals(line, 0, length, pathBytes[i]))
+                return i;
+        return -1;
+    }
+
+    static boolean regionEquals(byte[] text, int from, int to, byte[] expected) {
+        if (to - from != expected.length)
+            return false;
+        for (int i = 0; i < expected.length; i++)
+            if (text[from + i] != expected[i])
+                return false;
+        return true;
+    }
+
+    // number (e.g. -12.5, 3e-4), or true / false as 1 / 0, of the ascii text[from..to). NaN if it isn't any of these
+    static double parseNumber(byte[] text, int from, int to) {
+        if (regionEquals(text, from, to, TRUE))
+            return 1;
+        if (regionEquals(text, from, to, FALSE))
+            return 0;
+        int i = from;
+        boolean negative = false;
+        if (i < to && (text[i] == '-' || text[i] == '+'))
+            negative = text[i++] == '-';
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean dot = false;
+        for (; i < to; i++) {
+            byte b = text[i];
+            if (b >= '0' && b <= '9') {
+                // digits beyond what a long holds only scale the number
+                if (mantissa < 100000000000000000L) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (dot)
+                        exponent--;
+                } else if (!dot) {
+                    exponent++;
+                }
+                digits++;
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0)
+            return Double.NaN;
+        if (i < to && (text[i] == 'e' || text[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (text[i] == '-' || text[i] == '+'))
+                negativeExponent = text[i++] == '-';
+            int e = 0;
+            int exponentDigits = 0;
+            for (; i < to && text[i] >= '0' && text[i] <= '9'; i++, exponentDigits++)
+                e = Math.min(1000, e * 10 + (text[i] - '0'));
+            if (exponentDigits == 0)
+                return Double.NaN;
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != to)
+            return Double.NaN;
+        double value = mantissa;
+        // exact (correctly rounded) while the mantissa and the power of ten are exact doubles, as in every value
+        // flight gear writes, beyond that a few ulps off (fine for instruments)
+        while (exponent > 0) {
+            int step = Math.min(exponent, POW10.length - 1);
+            value *= POW10[step];
+            exponent -= step;
+        }
+        while (exponent < 0) {
+            int step = Math.min(-exponent, POW10.length - 1);
+            value /= POW10[step];
+            exponent += step;
+        }
+        return negative ? -value : value;
+    }
+}
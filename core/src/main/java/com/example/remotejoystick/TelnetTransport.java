@@ -0,0 +1,117 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// transport of the flight gear telnet props protocol ("set <property> <value>" lines) over tcp.
+// only the changed controls are written, see ControlFrameEncoder.encodeChanged().
+// the channel may be non-blocking: a frame that the socket took only partly is completed (before anything else)
+// on the next send(), and while that tail can't be written, send() returns STALLED without encoding the new frame.
+// replies of the server are not read here, ConnectionManager drains them (see enterDataMode()).
+public class TelnetTransport implements ControlTransport {
+    // switches the telnet server of flight gear to data mode: no prompt after every command
+    static final byte[] DATA_MODE = ControlFrameEncoder.ascii("data\r\n");
+
+    private final SocketChannel channel;
+    private final ControlFrameEncoder encoder;
+    // the unwritten tail of the last frame (in read mode, empty when everything was written)
+    private ByteBuffer pending;
+
+    // encoder is shared with the caller (that keeps its settings between connections),
+    // the caller should not use it while send() or forceKeyframe() is running
+    public TelnetTransport(SocketChannel channel, ControlFrameEncoder encoder) {
+        this.channel = channel;
+        this.encoder = encoder;
+        this.pending = ByteBuffer.allocateDirect(encoder.getMaxFrameBytes());
+        this.pending.flip();
+    }
+
+    // connect (blocking, at most timeoutMillis) to the telnet server of flight gear
+    public static TelnetTransport open(String ipv4, int port, int timeoutMillis, ControlFrameEncoder encoder)
+            throws IOException {
+        SocketChannel fg = SocketChannel.open();
+        try {
+            // check HERE that the fg server is reachable
+            fg.socket().connect(new InetSocketAddress(ipv4, port), timeoutMillis);
+            fg.socket().setTcpNoDelay(true);
+        } catch (IOException | RuntimeException e) {
+            fg.close();
+            throw e;
+        }
+        return new TelnetTransport(fg, encoder);
+    }
+
+    @Override
+    public int send(float aileron, float elevator, float rudder, float throttle) throws IOException {
+        int written = 0;
+        if (pending.hasRemaining()) {
+            written += channel.write(pending);
+            // the socket is still full, and the new frame must not be mixed into the middle of a line
+            if (pending.hasRemaining())
+                return STALLED;
+        }
+
+        ByteBuffer frame = encoder.encodeChanged(aileron, elevator, rudder, throttle);
+        // a single write() of the whole frame, a blocking channel writes everything
+        written += channel.write(frame);
+        while (frame.hasRemaining() && channel.isBlocking())
+            written += channel.write(frame);
+        if (frame.hasRemaining()) {
+            // (the bindings of the encoder grew since this transport was opened)
+            if (frame.remaining() > pending.capacity())
+                pending = ByteBuffer.allocateDirect(encoder.getMaxFrameBytes());
+            pending.clear();
+            pending.put(frame);
+            pending.flip();
+        }
+        return written;
+    }
+
+    // ask the server for data mode, before any frame (call it before the transport is used for send()).
+    // whatever the socket doesn't take now is written first by the next send()
+    public void enterDataMode() throws IOException {
+        sendCommand(DATA_MODE);
+    }
+
+    // write command lines of the telnet protocol other than frames (e.g. "subscribe <path>\r\n"),
+    // after the unwritten tail of the last frame. whatever the socket doesn't take now is written first by the next send().
+    // (under the same lock as send(), the caller should not send() meanwhile)
+    public void sendCommand(byte[] command) throws IOException {
+        sendCommand(ByteBuffer.wrap(command));
+    }
+
+    // (command is read to its end)
+    public void sendCommand(ByteBuffer command) throws IOException {
+        int needed = pending.remaining() + command.remaining();
+        if (needed > pending.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(needed, encoder.getMaxFrameBytes()));
+            larger.put(pending);
+            pending = larger;
+        } else {
+            pending.compact();
+        }
+        pending.put(command);
+        pending.flip();
+        channel.write(pending);
+    }
+
+    // bytes of the last frame that the socket didn't take yet
+    @Override
+    public int getPendingBytes() { return pending.remaining(); }
+
+    public SocketChannel getChannel() { return channel; }
+
+    @Override
+    public void forceKeyframe() { encoder.forceKeyframe(); }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing to do, the socket is not used anymore anyway
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.remotejoystick;
+
+// the ways FGModel can send the controls to flight gear
+public enum TransportType {
+    // tcp socket, flight gear started with --telnet=<port>
+    TELNET_TCP,
+    // udp datagrams of text lines, flight gear started with
+    // --generic=socket,in,<hz>,,<port>,udp,remote-joystick   (assets/Protocol/remote-joystick.xml)
+    GENERIC_UDP_CSV,
+    // udp datagrams of binary records, flight gear started with
+    // --generic=socket,in,<hz>,,<port>,udp,remote-joystick-binary   (assets/Protocol/remote-joystick-binary.xml)
+    GENERIC_UDP_BINARY
+}
@@ -0,0 +1,344 @@
+package com.example.remotejoystick;
+
+/* class that is connecting between the gui (arbitrary joystick, text box, buttons)
+   and the FGModel(specific data [rudder, throttle ...] that should be obtain from the joystick). */
+public class ViewModel {
+
+    private FGModel model;
+    // recordFlags of setValues() that are not recorded
+    private static final int NOT_RECORDED = -1;
+    // set by one thread at a time (the ui thread, or the thread the InputMixer mixes on), read by any
+    private volatile float aileron = 0;
+    private volatile float elevator = 0;
+    private volatile float throttle = 0;
+    private volatile float rudder = 0;
+    // the last values of an input (or a hold) as they came, before the conditioner: what setInput() records
+    private volatile float rawAileron = 0;
+    private volatile float rawElevator = 0;
+    private volatile float rawThrottle = 0;
+    private volatile float rawRudder = 0;
+    private String IP = "";
+    private String port = "";
+    private TransportType transport = TransportType.TELNET_TCP;
+    private volatile Endpoint endpoint = null;
+
+    // frame-clocked sampling (see setFrameClock()): setValues() only records the newest state,
+    // and the clock pulls it to the model once per framesPerSample frames
+    private volatile FrameClock frameClock = null;
+    private final FrameClock.Listener onFrame = this::sampleFrame;
+    // guards the recorded state, since the clock may tick on another thread than the input
+    private final Object sampleLock = new Object();
+    private boolean sampleChanged = false;
+    private long sampleInputNanos = 0;
+    // System.nanoTime() of the setValues() of that first input, so INPUT_TO_VIEW_MODEL is still input -> setValues()
+    // (the wait for the frame is of VIEW_MODEL_TO_DEQUEUE)
+    private long sampleViewModelNanos = 0;
+    private volatile int framesPerSample = 1;
+    // frames since the last sample (of the clock thread only)
+    private int framesSinceSample = 0;
+
+    // records every state of setValues() when not null (see setRecorder())
+    private volatile InputRecorder recorder = null;
+    // shapes and smooths the values of setValues() (after they are recorded) when not null (see setConditioner())
+    private volatile InputConditioner conditioner = null;
+    // metrics of this stage (registered in the metrics of the model): states of setValues(),
+    // and states the frame clock handed to the model
+    private final StripedCounter valuesReceived;
+    private final StripedCounter framesSampled;
+
+    // event happens when error that related to the socket occurs, or when connect() called but ip/port is invalid.
+    public ErrorEventHandler onError = null;
+    // event happens when the connection state of the model changes (connecting, connected, waiting to reconnect...)
+    public ConnectionStateEventHandler onStateChange = null;
+
+    public void setValues_from_joystick(float px, float py, float pa, float pb) {
+        setValues_from_joystick(px, py, pa, pb, 0);
+    }
+
+    // inputNanos: System.nanoTime() of the joystick event of these values (0 if unknown), for latency tracking
+    public void setValues_from_joystick(float px, float py, float pa, float pb, long inputNanos) {
+        // (joystick_right, joystick_up, horizontal_seekBar_right, vertical_seekBar_up) == (px, py, pa, pb)
+        // all px,py,pa,pb are values between 0 to 1,
+        // 0 means "no" 1 mean "yes" , 1 == "right" in "joystick_right", for example
+
+        // convert (px,py,pa) to (aileron,elevator,rudder) values between -1 to 1  by  f(x)=(x-0.5)*2
+        // pb == throttle remains the same, as value between 0 to 1
+        setValues((px-0.5f)*2, (py-0.5f)*2, (pa-0.5f)*2, pb, inputNanos, InputRecorder.FLAG_JOYSTICK, true);
+    }
+
+    // setters:
+    public void setValues(float aileron, float elevator, float rudder, float throttle) {
+        setValues(aileron, elevator, rudder, throttle, 0);
+    }
+
+    // inputNanos: System.nanoTime() of the input event of these values (0 if unknown), for latency tracking
+    public void setValues(float aileron, float elevator, float rudder, float throttle, long inputNanos) {
+        setValues(aileron, elevator, rudder, throttle, inputNanos, 0, true);
+    }
+
+    // values the app sets itself rather than an input (e.g. the centered stick of FlightSession's hold): they go to
+    // the model exactly as they are, around the conditioner, which starts over (so the next input isn't smoothed
+    // from the state before them)
+    public void holdValues(float aileron, float elevator, float rudder, float throttle) {
+        InputConditioner conditioner_for_now = conditioner;
+        if (conditioner_for_now != null) {
+            synchronized (sampleLock) {
+                conditioner_for_now.reset();
+            }
+        }
+        setValues(aileron, elevator, rudder, throttle, 0, InputRecorder.FLAG_HOLD, false);
+    }
+
+    // recordFlags: InputRecorder.FLAG_* of where the values came from (NOT_RECORDED if they are not raw values),
+    // condition: false if the values are conditioned already (the current ones)
+    private void setValues(float aileron, float elevator, float rudder, float throttle, long inputNanos,
+                           int recordFlags, boolean condition) {
+        valuesReceived.increment();
+        if (recordFlags != NOT_RECORDED) {
+            this.rawAileron = aileron;
+            this.rawElevator = elevator;
+            this.rawRudder = rudder;
+            this.rawThrottle = throttle;
+        }
+        InputRecorder recorder_for_now = recordFlags != NOT_RECORDED ? recorder : null;
+        InputConditioner conditioner_for_now = condition ? conditioner : null;
+        if (recorder_for_now != null || conditioner_for_now != null) {
+            long sampleNanos = inputNanos != 0 ? inputNanos : System.nanoTime();
+            // the raw input is recorded, a replay conditions it again (InputReplay.setConditioner(), maybe with
+            // other settings)
+            if (recorder_for_now != null)
+                recorder_for_now.record(sampleNanos, aileron, elevator, rudder, throttle, recordFlags);
+            if (conditioner_for_now != null) {
+                // (the frame clock settles the conditioner too, see sampleFrame())
+                synchronized (sampleLock) {
+                    aileron = conditioner_for_now.condition(InputMixer.AILERON, aileron, sampleNanos);
+                    elevator = conditioner_for_now.condition(InputMixer.ELEVATOR, elevator, sampleNanos);
+                    rudder = conditioner_for_now.condition(InputMixer.RUDDER, rudder, sampleNanos);
+                    throttle = conditioner_for_now.condition(InputMixer.THROTTLE, throttle, sampleNanos);
+                }
+            }
+        }
+        if (frameClock != null) {
+            // only record it, the next frame will take the newest state
+            synchronized (sampleLock) {
+                this.aileron = aileron;
+                this.elevator = elevator;
+                this.rudder = rudder;
+                this.throttle = throttle;
+                // the latency of a sample is from the first input that it carries
+                if (!sampleChanged) {
+                    sampleInputNanos = inputNanos;
+                    sampleViewModelNanos = System.nanoTime();
+                }
+                sampleChanged = true;
+            }
+            return;
+        }
+        long viewModelNanos = System.nanoTime();
+        this.aileron = aileron;
+        this.elevator = elevator;
+        this.rudder = rudder;
+        this.throttle = throttle;
+        // update the model for the changes:
+        model.updatePlaneData(aileron,elevator,rudder,throttle, inputNanos, viewModelNanos);
+    }
+    // turn on frame-clocked sampling: from now on the model gets at most one state per framesPerSample frames
+    // of clock (the newest, if anything changed since the last one), whatever the rate of the input is.
+    // null turns it off (every setValues() goes to the model right away, as by default)
+    public void setFrameClock(FrameClock clock) {
+        if (frameClock != null)
+            frameClock.stop();
+        frameClock = clock;
+        if (clock != null)
+            clock.start(onFrame);
+    }
+
+    public FrameClock getFrameClock() { return frameClock; }
+
+    // record every state of setValues() (before the frame clock takes some of them) to recorder, null to stop.
+    // the recorder is not closed here (it belongs to the caller)
+    public void setRecorder(InputRecorder recorder) { this.recorder = recorder; }
+
+    public InputRecorder getRecorder() { return recorder; }
+
+    // condition every state of setValues() (deadzone, expo, smoothing, hysteresis) before it goes to the model,
+    // null to send the values as they are (the default). its settings may be changed at any time
+    public void setConditioner(InputConditioner conditioner) { this.conditioner = conditioner; }
+
+    public InputConditioner getConditioner() { return conditioner; }
+
+    // in frame-clocked sampling, send one state per this many frames (e.g. 2 on a 60 Hz display is 30 Hz)
+    public void setFramesPerSample(int frames) {
+        if (frames <= 0)
+            throw new IllegalArgumentException("frames per sample should be positive");
+        this.framesPerSample = frames;
+    }
+
+    public int getFramesPerSample() { return framesPerSample; }
+
+    // tick of the frame clock: hand the newest state (if it changed) to the model
+    private void sampleFrame(long frameNanos) {
+        if (++framesSinceSample < framesPerSample)
+            return;
+        framesSinceSample = 0;
+        float a, e, r, t;
+        long inputNanos, viewModelNanos;
+        synchronized (sampleLock) {
+            if (!sampleChanged && !settleConditioner(frameNanos))
+                return;
+            sampleChanged = false;
+            a = aileron;
+            e = elevator;
+            r = rudder;
+            t = throttle;
+            inputNanos = sampleInputNanos;
+            viewModelNanos = sampleViewModelNanos;
+        }
+        framesSampled.increment();
+        model.updatePlaneData(a, e, r, t, inputNanos, viewModelNanos);
+    }
+
+    // an input that stopped settles to its last value after a while (see InputConditioner.settle()),
+    // so the values are the settled ones then. true if they changed (under sampleLock)
+    private boolean settleConditioner(long frameNanos) {
+        InputConditioner conditioner_for_now = conditioner;
+        if (conditioner_for_now == null || !conditioner_for_now.settle(frameNanos))
+            return false;
+        aileron = conditioner_for_now.getOutput(InputMixer.AILERON);
+        elevator = conditioner_for_now.getOutput(InputMixer.ELEVATOR);
+        rudder = conditioner_for_now.getOutput(InputMixer.RUDDER);
+        throttle = conditioner_for_now.getOutput(InputMixer.THROTTLE);
+        // (no input event to measure the latency from)
+        sampleInputNanos = 0;
+        sampleViewModelNanos = 0;
+        return true;
+    }
+
+    // quantization step and deadband of all the properties that are sent to the model
+    // (a property is sent only when it moved at least deadband since it was last sent)
+    public void setControlResolution(float step, float deadband) {
+        int bindings = model.getBindings().getBindings().size();
+        for (int binding = 0; binding < bindings; binding++)
+            model.setResolution(binding, step, deadband);
+    }
+
+    // turn on/off probing the round trip to flight gear (a marker property once a second, see LatencyProbe)
+    public void setLatencyProbing(boolean enabled) {
+        model.setLatencyProbe(enabled ? new LatencyProbe() : null);
+    }
+
+    // round trip, one way and jitter estimates, null if probing is off
+    public LatencyProbe getLatencyProbe() { return model.getLatencyProbe(); }
+
+    // set an input of the model bindings other than the joystick (e.g. "flaps", see BindingTable),
+    // it is sent with the current joystick values. false if the bindings don't use this input
+    public boolean setInput(String input, float value) {
+        int index = model.getBindings().getInputIndex(input);
+        if (index < 0)
+            return false;
+        model.setInput(index, value);
+        // the record is of the raw input, as every record is (a replay conditions it again),
+        // while the model gets the current conditioned values
+        InputRecorder recorder_for_now = recorder;
+        if (recorder_for_now != null)
+            recorder_for_now.record(System.nanoTime(), rawAileron, rawElevator, rawRudder, rawThrottle,
+                    InputRecorder.FLAG_INPUT);
+        setValues(aileron, elevator, rudder, throttle, 0, NOT_RECORDED, false);
+        return true;
+    }
+    public void setIP(String newVal) {
+        this.IP = newVal;
+        // ( no need to update the model since it only used for the following connect method )
+    }
+    public void setPort(String newVal) {
+        this.port = newVal;
+        // ( no need to update the model since it only used for the following connect method )
+    }
+    public void setTransport(TransportType newVal) {
+        this.transport = newVal;
+        // ( no need to update the model since it only used for the following connect method )
+    }
+
+    // command the method to connect to this.ip,this.port socket (tcp or udp, according to this.transport)
+    public void connect() {
+        // make sure the given ip is valid format: [num].[num].[num].[num] where num is positive int between 0 to 255
+        // (Endpoint parses it in place, no regex or split on the ui thread)
+        if (Endpoint.parseIpv4(this.IP) < 0) {
+            if (onError != null)
+                onError.handle(this,
+                        new ErrorEventArgs("Invalid IP4 address", null));
+            return;
+        }
+
+        // make sure the given string port is valid positive integer for tcp/udp port
+        int int_port = Endpoint.parsePort(this.port);
+        if (int_port < 0) {
+            if (onError != null)
+                onError.handle(this,
+                                    new ErrorEventArgs("Port is int between 1 to 65535", null));
+        } else {
+            connect(new Endpoint(this.IP, int_port, this.transport));
+        }
+    }
+
+    // connect to endpoint with a new socket, even if the model is connected to it already
+    // (so the connect of the user also resets a connection that went half-dead)
+    public void connect(Endpoint endpoint) {
+        this.endpoint = endpoint;
+        model.connect(endpoint.ip, endpoint.port, endpoint.transport);
+    }
+
+    // connect to endpoint, unless the model is already connected or connecting to it (then that connection is kept),
+    // for the speculative connect of FlightSession.preconnect()
+    public void connectOrKeep(Endpoint endpoint) {
+        this.endpoint = endpoint;
+        model.connectOrKeep(endpoint.ip, endpoint.port, endpoint.transport);
+    }
+
+    // the endpoint of the last connect(), null if there was none (or it was invalid)
+    public Endpoint getEndpoint() { return endpoint; }
+
+    // constructor
+    public ViewModel(FGModel model){
+        this.model = model;
+        Metrics metrics = model.getMetrics();
+        this.valuesReceived = metrics.counter("viewModel.valuesReceived");
+        this.framesSampled = metrics.counter("viewModel.framesSampled");
+        metrics.gauge("viewModel.conditionedChanges", () -> {
+            InputConditioner conditioner_for_now = conditioner;
+            return conditioner_for_now != null ? conditioner_for_now.getChanges() : 0;
+        });
+        final ViewModel self = this;
+        // all errors of model go throw the view model: [works if this.onError will be set]
+        model.onError = new ErrorEventHandler() {
+            @Override
+            public void handle(Object sender, ErrorEventArgs args) {
+                if (self.onError != null)
+                    self.onError.handle(sender, args);
+            }
+        };
+        model.onStateChange = new ConnectionStateEventHandler() {
+            @Override
+            public void handle(Object sender, ConnectionStateEventArgs args) {
+                if (self.onStateChange != null)
+                    self.onStateChange.handle(sender, args);
+            }
+        };
+    }
+
+    // never used, but for good practice: getters:
+
+    public float getAileron() { return aileron; }
+
+    public float getElevator() { return elevator; }
+
+    public float getThrottle() { return throttle; }
+
+    public float getRudder() { return rudder; }
+
+    public String getIP() { return IP; }
+
+    public String getPort() { return port; }
+
+    public TransportType getTransport() { return transport; }
+}
@@ -0,0 +1,113 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class BindingTableTest {
+    private static BindingTable parse(String text) throws Exception {
+        return BindingTable.parse(new StringReader(text));
+    }
+
+    private static String asString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    // a table of count properties: the 4 controls, then throttles of engines and other inputs
+    static BindingTable wide(int count) throws Exception {
+        StringBuilder text = new StringBuilder();
+        String[] controls = {"aileron", "elevator", "rudder", "throttle"};
+        for (int i = 0; i < count; i++) {
+            if (i < 4)
+                text.append(controls[i]).append(" /controls/test/").append(controls[i]).append('\n');
+            else if (i % 2 == 0)
+                text.append("throttle /controls/engines/engine[").append(i).append("]/throttle\n");
+            else
+                text.append("input").append(i).append(" /controls/test/input").append(i).append(" step=0.01\n");
+        }
+        return parse(text.toString());
+    }
+
+    @Test
+    public void parse_readsBindings_optionsAndComments() throws Exception {
+        BindingTable table = parse(
+                "# comment\n" +
+                "\n" +
+                "throttle  /controls/engines/engine[1]/throttle   # second engine\n" +
+                "flaps     /controls/flight/flaps  scale=0.5 offset=0.5 min=0 max=1 step=0.01 deadband=0.02\n");
+        assertEquals(2, table.getBindings().size());
+        assertEquals(5, table.getInputs().size());
+        assertEquals(ControlFrameEncoder.THROTTLE, table.getInputIndex("throttle"));
+        assertEquals(4, table.getInputIndex("flaps"));
+        assertEquals(-1, table.getInputIndex("brakes"));
+
+        PropertyBinding flaps = table.getBindings().get(1);
+        assertEquals("/controls/flight/flaps", flaps.path);
+        assertEquals(4, flaps.inputIndex);
+        assertEquals(0.75f, flaps.apply(0.5f), 1e-6);
+        assertEquals(1f, flaps.apply(3f), 0);
+        assertEquals(0.01f, flaps.step, 0);
+        assertEquals(0.02f, flaps.deadband, 0);
+    }
+
+    @Test
+    public void parse_badLine_tellsTheLine() throws Exception {
+        String[] bad = {
+                "aileron\n",
+                "aileron controls/flight/aileron\n",
+                "aileron /controls/flight/aileron scale=x\n",
+                "aileron /controls/flight/aileron curve=2\n",
+                "aileron /controls/flight/aileron min=1 max=0\n",
+                "aileron /controls/flight/aileron step=0\n"};
+        for (String text : bad) {
+            try {
+                parse("# ok\n" + text);
+                fail(text);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("line 2: "));
+            }
+        }
+    }
+
+    @Test
+    public void encoder_sendsEveryBinding_ofItsInput() throws Exception {
+        ControlFrameEncoder encoder = new ControlFrameEncoder(parse(
+                "throttle /controls/engines/engine[0]/throttle\n" +
+                "throttle /controls/engines/engine[1]/throttle\n" +
+                "flaps    /controls/flight/flaps  scale=0.5\n"));
+        encoder.setInput(4, 1f);
+        assertEquals("set /controls/engines/engine[0]/throttle 0.2500\r\n" +
+                        "set /controls/engines/engine[1]/throttle 0.2500\r\n" +
+                        "set /controls/flight/flaps 0.5000\r\n",
+                asString(encoder.encodeChanged(0.9f, 0.9f, 0.9f, 0.25f)));
+
+        // only the changed input goes out
+        encoder.setInput(4, 0.5f);
+        assertEquals("set /controls/flight/flaps 0.2500\r\n",
+                asString(encoder.encodeChanged(0, 0, 0, 0.25f)));
+    }
+
+    @Test
+    public void wideTable_isOneFrame_andAllocatesNothing() throws Exception {
+        final ControlFrameEncoder encoder = new ControlFrameEncoder(wide(20));
+        ByteBuffer frame = encoder.encode(0.5f, 0.5f, 0.5f, 1f);
+        assertEquals(20, asString(frame).split("\r\n").length);
+        assertTrue(frame.remaining() <= encoder.getMaxFrameBytes());
+
+        final ByteBuffer sink = ByteBuffer.allocateDirect(encoder.getMaxFrameBytes());
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 100000; i++) {
+                encoder.setInput(5, i / 100000f);
+                sink.clear();
+                sink.put(encoder.encodeChanged(i / 100000f, -i / 100000f, 0.25f, 1f));
+            }
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated <= 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.remotejoystick;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+// properties sent (delta encoded, with the deadband of bindings.conf) of a recorded flight trace,
+// with and without the conditioning of the app (InputConditioner.forTouch()), and the cost of conditioning a sample
+public class ConditioningBenchmarkTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // model that delta encodes every update instead of sending it, and counts the properties of the frames
+    private static class CountingModel extends FGModel {
+        final ControlFrameEncoder delta = new ControlFrameEncoder();
+        long lines = 0;
+
+        CountingModel() {
+            for (int axis = 0; axis < ControlFrameEncoder.AXES; axis++)
+                delta.setResolution(axis, 0.001f, 0.005f);
+            delta.setKeyframeInterval(Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                    long inputNanos, long viewModelNanos) {
+            ByteBuffer frame = delta.encodeChanged(aileron, elevator, rudder, throttle);
+            for (int i = 0; i < frame.limit(); i++)
+                if (frame.get(i) == '\n')
+                    lines++;
+        }
+    }
+
+    private static long propertiesSent(InputRecording recording, InputConditioner conditioner) {
+        CountingModel model = new CountingModel();
+        ViewModel viewModel = new ViewModel(model);
+        viewModel.setConditioner(conditioner);
+        for (int i = 0; i < recording.size(); i++)
+            viewModel.setValues(recording.getAileron(i), recording.getElevator(i), recording.getRudder(i),
+                    recording.getThrottle(i), recording.getNanos(i));
+        return model.lines;
+    }
+
+    @Test
+    public void conditioning_onNormalFlight_sendsFarFewerProperties_cheaply() throws Exception {
+        InputRecording recording = InputTraces.record(folder.newFile("flight.rec"), InputTraces.normalFlight(120));
+        long raw = propertiesSent(recording, null);
+        InputConditioner conditioner = InputConditioner.forTouch();
+        long conditioned = propertiesSent(recording, conditioner);
+
+        // cost per sample of 4 axes, the best of a few rounds over the trace
+        long bestNanos = Long.MAX_VALUE;
+        float sink = 0;
+        for (int round = 0; round < 20; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < recording.size(); i++) {
+                long nanos = recording.getNanos(i);
+                sink += conditioner.condition(InputMixer.AILERON, recording.getAileron(i), nanos);
+                sink += conditioner.condition(InputMixer.ELEVATOR, recording.getElevator(i), nanos);
+                sink += conditioner.condition(InputMixer.RUDDER, recording.getRudder(i), nanos);
+                sink += conditioner.condition(InputMixer.THROTTLE, recording.getThrottle(i), nanos);
+            }
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+
+        // how far the smoothed stick is from the shaped one (lag and hysteresis), on average
+        conditioner.reset();
+        AxisConditioning stick = conditioner.getAxis(InputMixer.AILERON);
+        double error = 0;
+        for (int i = 0; i < recording.size(); i++) {
+            float value = recording.getAileron(i);
+            float conditioned_value = conditioner.condition(InputMixer.AILERON, value, recording.getNanos(i));
+            error += Math.abs(conditioned_value - stick.shape(value));
+        }
+        error /= recording.size();
+
+        double ratio = (double) conditioned / raw;
+        System.out.println("ConditioningBenchmark: " + recording.size() + " samples, properties sent raw " + raw +
+                ", conditioned " + conditioned + " (" + Math.round(ratio * 100) + "%), " +
+                bestNanos / recording.size() + " ns per sample, mean stick error " +
+                String.format(Locale.US, "%.4f", error) + " (" + (sink != 0) + ")");
+        assertTrue("conditioned/raw = " + ratio, ratio < 0.5);
+        assertTrue("mean error " + error, error < 0.01);
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.remotejoystick;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class ConnectionManagerTest {
+    private ConnectionManager manager;
+    private final List<ConnectionState> states = new CopyOnWriteArrayList<>();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new ConnectionManager(new ControlFrameEncoder());
+        manager.onStateChange = (sender, args) -> states.add(args.state);
+        manager.onError = (sender, args) -> errors.add(args.description);
+    }
+
+    @After
+    public void tearDown() {
+        manager.close();
+    }
+
+    private boolean awaitState(ConnectionState state, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (manager.getState() != state) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // a local port that nobody listens on
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void backoffDelay_doublesUpToMax_withJitterOfSecondHalf() {
+        assertEquals(100, ConnectionManager.backoffDelay(1, 100, 1000, 0));
+        assertEquals(200, ConnectionManager.backoffDelay(2, 100, 1000, 0));
+        assertEquals(800, ConnectionManager.backoffDelay(4, 100, 1000, 0));
+        assertEquals(1000, ConnectionManager.backoffDelay(5, 100, 1000, 0));
+        assertEquals(1000, ConnectionManager.backoffDelay(100, 100, 1000, 0));
+        // full jitter takes off half of the delay, never more
+        assertEquals(400, ConnectionManager.backoffDelay(4, 100, 1000, 1));
+        assertEquals(500, ConnectionManager.backoffDelay(100, 100, 1000, 1));
+    }
+
+    @Test
+    public void connect_returnsImmediately_andConnects() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            long start = System.nanoTime();
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue((System.nanoTime() - start) / 1000000 < 50);
+
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            assertNotNull(manager.getTransport());
+            assertEquals(ConnectionState.CONNECTING, states.get(0));
+            assertTrue(errors.isEmpty());
+
+            manager.disconnect();
+            assertTrue(awaitState(ConnectionState.DISCONNECTED, 2000));
+            assertNull(manager.getTransport());
+        }
+    }
+
+    @Test
+    public void failedConnect_raisesOneError_andKeepsRetrying() throws Exception {
+        manager.setBackoff(10, 20);
+        manager.connect("127.0.0.1", closedPort(), TransportType.TELNET_TCP);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (countOf(ConnectionState.CONNECTING) < 4 && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+
+        assertTrue(countOf(ConnectionState.CONNECTING) >= 4);
+        assertTrue(countOf(ConnectionState.BACKOFF) >= 3);
+        assertEquals(1, errors.size());
+        assertEquals("Connection Error", errors.get(0));
+        assertNull(manager.getTransport());
+    }
+
+    @Test
+    public void lostConnection_raisesDisconnected_andReconnects() throws Exception {
+        manager.setBackoff(10, 20);
+        try (FakePropsServer server = new FakePropsServer()) {
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            ControlTransport first = manager.getTransport();
+
+            manager.connectionLost(first, new IOException("reset"));
+            // a second report of the same (old) transport is ignored
+            manager.connectionLost(first, new IOException("reset"));
+            assertTrue(server.awaitConnections(2, 2000));
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+
+            assertNotSame(first, manager.getTransport());
+            assertEquals(1, manager.getReconnects());
+            assertEquals(1, errors.size());
+            assertEquals("Disconnected", errors.get(0));
+            assertTrue(states.contains(ConnectionState.BACKOFF));
+        }
+    }
+
+    @Test
+    public void telnet_entersDataMode_andDrainsReplies() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            ControlTransport transport = manager.getTransport();
+            transport.send(0.5f, 0, 0, 1);
+            assertTrue(server.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+            // in data mode not even a prompt comes back
+            assertEquals(0, server.getBytesSent());
+
+            // a server that doesn't know "data" keeps answering, and everything is read
+            server.setDataModeSupported(false);
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue(server.awaitConnections(2, 2000));
+            long deadline = System.currentTimeMillis() + 2000;
+            // (the server counts its bytes after the write, so the manager may have read them a moment before)
+            while ((server.getBytesSent() == 0 || manager.getBytesReceived() != server.getBytesSent())
+                    && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertTrue(server.getBytesSent() > 0);
+            assertEquals(server.getBytesSent(), manager.getBytesReceived());
+        }
+    }
+
+    @Test
+    public void serverClose_isFoundByReader_withoutWrites() throws Exception {
+        manager.setBackoff(10, 20);
+        try (FakePropsServer server = new FakePropsServer()) {
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            assertTrue(server.awaitConnections(1, 2000));
+
+            // nothing is sent, yet the reader sees the close, and the manager connects again
+            server.resetConnections();
+            assertTrue(server.awaitConnections(2, 2000));
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            assertEquals(1, errors.size());
+            assertEquals("Disconnected", errors.get(0));
+        }
+    }
+
+    @Test
+    public void telnetSend_stallsWithoutBlocking_whenPeerDoesNotRead() throws Exception {
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+             SocketChannel channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", listener.getLocalPort()))) {
+            // the peer end is accepted, but it never reads
+            Socket peer = listener.accept();
+            try {
+                channel.configureBlocking(false);
+                ControlFrameEncoder encoder = new ControlFrameEncoder();
+                // every frame is a keyframe, so every frame has bytes to write
+                encoder.setKeyframeInterval(1);
+                TelnetTransport transport = new TelnetTransport(channel, encoder);
+
+                // the socket buffers fill up, and then send() must not block
+                int result = 0;
+                for (int i = 0; i < 1000000 && result != ControlTransport.STALLED; i++)
+                    result = transport.send(i % 2, 0, 0, 0);
+                assertEquals(ControlTransport.STALLED, result);
+                assertTrue(transport.getPendingBytes() > 0);
+                // (the kernel may still move some of the send buffer to the peer's, so fill up what it freed)
+                Thread.sleep(50);
+                result = 0;
+                for (int i = 0; i < 1000000 && result != ControlTransport.STALLED; i++)
+                    result = transport.send(i % 2, 0, 0, 0);
+                // and it stays stalled while the peer doesn't read
+                assertEquals(ControlTransport.STALLED, transport.send(0.5f, 0, 0, 0));
+            } finally {
+                peer.close();
+            }
+        }
+    }
+
+    @Test
+    public void brokenSelector_isReportedOnce_andEndsTheThreadDisconnected() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            manager.connect("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+            assertTrue(awaitState(ConnectionState.CONNECTED, 2000));
+            // (no way to break a selector from the outside, so it is closed under the manager)
+            Field field = ConnectionManager.class.getDeclaredField("selector");
+            field.setAccessible(true);
+            ((Selector) field.get(manager)).close();
+
+            // every select() fails from now on: one error, no spinning, and then the thread gives up
+            assertTrue(awaitState(ConnectionState.DISCONNECTED, 5000));
+            assertEquals(1, errors.size());
+            assertEquals("Connection Error", errors.get(0));
+            assertTrue(server.awaitConnections(1, 2000));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (server.getOpenConnections() > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, server.getOpenConnections());
+            assertNull(manager.getTransport());
+        }
+    }
+
+    private int countOf(ConnectionState state) {
+        int count = 0;
+        for (ConnectionState s : states)
+            if (s == state)
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ControlFrameEncoderTest {
+    private static String asString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void encode_writesFourSetLines_withFixedPrecision() {
+        ControlFrameEncoder encoder = new ControlFrameEncoder();
+        String frame = asString(encoder.encode(-0.5f, 1f, 0.00004f, 0.12345f));
+        assertEquals("set /controls/flight/aileron -0.5000\r\n" +
+                        "set /controls/flight/elevator 1.0000\r\n" +
+                        "set /controls/flight/rudder 0.0000\r\n" +
+                        "set /controls/engines/current-engine/throttle 0.1235\r\n",
+                frame);
+    }
+
+    @Test
+    public void encode_tinyNegative_and_NaN_areWrittenAsZero() {
+        ControlFrameEncoder encoder = new ControlFrameEncoder();
+        String frame = asString(encoder.encode(-0.00001f, Float.NaN, -12.5f, 0));
+        assertTrue(frame.contains("aileron 0.0000\r\n"));
+        assertTrue(frame.contains("elevator 0.0000\r\n"));
+        assertTrue(frame.contains("rudder -12.5000\r\n"));
+    }
+
+    @Test
+    public void encode_steadyState_allocatesNothing() {
+        ControlFrameEncoder encoder = new ControlFrameEncoder();
+        ByteBuffer sink = ByteBuffer.allocateDirect(1024);
+        // warm up (jit, class loading)
+        for (int i = 0; i < 20000; i++) {
+            sink.clear();
+            sink.put(encoder.encode(i / 20000f, -i / 20000f, 0.25f, 1f));
+        }
+
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 100000; i++) {
+                sink.clear();
+                sink.put(encoder.encode(i / 100000f, -i / 100000f, 0.25f, 1f));
+                sink.clear();
+                sink.put(encoder.encodeChanged(i / 100000f, 0, 0.25f, 1f));
+            }
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated <= 0);
+    }
+}
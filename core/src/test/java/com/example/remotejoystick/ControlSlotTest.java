@@ -0,0 +1,91 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class ControlSlotTest {
+    @Test
+    public void reader_getsNewestState_andSkippedVersions() throws InterruptedException {
+        ControlSlot slot = new ControlSlot();
+        slot.publish(0.1f, 0.2f, 0.3f, 0.4f);
+        slot.publish(0.5f, 0.6f, 0.7f, 0.8f);
+        long last = slot.publish(-1f, 1f, 0f, 1f);
+
+        float[] out = new float[4];
+        long version = slot.awaitNewer(0, out);
+        assertEquals(last, version);
+        // 2 states were overwritten before the reader took the slot
+        assertEquals(2, version - 0 - 1);
+        assertArrayEquals(new float[]{-1f, 1f, 0f, 1f}, out, 0f);
+    }
+
+    @Test
+    public void conflatingModel_coalescesBurst_withoutGrowing() throws InterruptedException {
+        FGModel model = new FGModel();
+        model.setMaxSendRate(10);
+        model.setConflatingSend(true);
+        for (int i = 0; i < 10000; i++)
+            model.updatePlaneData(i / 10000f, 0, 0, 1);
+        // let the sender thread take the last state
+        Thread.sleep(300);
+        model.setConflatingSend(false);
+
+        assertEquals(10000, model.getUpdatesReceived());
+        // not connected, so nothing is written - but every update was either taken or coalesced
+        assertEquals(0, model.getFramesSent());
+        assertTrue("coalesced " + model.getStatesCoalesced(), model.getStatesCoalesced() > 9000);
+    }
+
+    @Test
+    public void conflatingModeTurnedOff_whileTheSenderWrites_keepsTheConnection() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            FGModel model = new FGModel();
+            final List<String> errors = new CopyOnWriteArrayList<>();
+            model.onError = (sender, args) -> errors.add(args.description);
+            try {
+                model.connect("127.0.0.1", server.getPort());
+                model.setConflatingSend(true);
+                model.updatePlaneData(0.25f, 0, 0, 1);
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.2500", 2000));
+
+                // (no way to stop the sender in the middle of its write from the outside, so the encoder it writes
+                // under is held: the sender waits for it with the next state, right before the socket)
+                Field senderField = FGModel.class.getDeclaredField("sender");
+                senderField.setAccessible(true);
+                Thread sender = (Thread) senderField.get(model);
+                Field encoderField = FGModel.class.getDeclaredField("encoder");
+                encoderField.setAccessible(true);
+                synchronized (encoderField.get(model)) {
+                    model.updatePlaneData(0.5f, 0, 0, 1);
+                    long deadline = System.currentTimeMillis() + 2000;
+                    while (sender.getState() != Thread.State.BLOCKED && System.currentTimeMillis() < deadline)
+                        Thread.sleep(1);
+                    assertEquals(Thread.State.BLOCKED, sender.getState());
+                    model.setConflatingSend(false);
+                    // an interrupt would close the socket under the write of the sender (ClosedByInterruptException,
+                    // on java 8 and android even of a non-blocking channel)
+                    assertFalse(sender.isInterrupted());
+                }
+                sender.join(2000);
+                assertFalse(sender.isAlive());
+
+                // the state it had went out, and the socket is still the first one
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+                model.setConflatingSend(true);
+                model.updatePlaneData(0.75f, 0, 0, 1);
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.7500", 2000));
+                assertEquals(ConnectionState.CONNECTED, model.getConnectionState());
+                assertEquals(0, model.getReconnects());
+                assertEquals(1, server.getConnectionsAccepted());
+                assertTrue(errors.toString(), errors.isEmpty());
+            } finally {
+                model.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+// byte count of full frames vs delta encoded frames (with deadband) on a flight trace
+public class DeltaEncodingBenchmarkTest {
+    // model that encodes every update instead of sending it
+    private static class CountingModel extends FGModel {
+        final ControlFrameEncoder full = new ControlFrameEncoder();
+        final ControlFrameEncoder delta = new ControlFrameEncoder();
+        long fullBytes = 0;
+        long deltaBytes = 0;
+        long deltaLines = 0;
+        final float[] lastDeltaValue = new float[ControlFrameEncoder.AXES];
+        final float[] lastValue = new float[ControlFrameEncoder.AXES];
+
+        CountingModel(float step, float deadband) {
+            for (int axis = 0; axis < ControlFrameEncoder.AXES; axis++)
+                delta.setResolution(axis, step, deadband);
+        }
+
+        @Override
+        public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                    long inputNanos, long viewModelNanos) {
+            fullBytes += full.encode(aileron, elevator, rudder, throttle).remaining();
+            ByteBuffer frame = delta.encodeChanged(aileron, elevator, rudder, throttle);
+            deltaBytes += frame.remaining();
+            for (int i = 0; i < frame.limit(); i++)
+                if (frame.get(i) == '\n')
+                    deltaLines++;
+            lastValue[0] = aileron;
+            lastValue[1] = elevator;
+            lastValue[2] = rudder;
+            lastValue[3] = throttle;
+        }
+    }
+
+    @Test
+    public void deltaEncoding_onNormalFlight_cutsBytesByMoreThanHalf() {
+        float[][] trace = InputTraces.normalFlight(120);
+        CountingModel model = new CountingModel(0.001f, 0.005f);
+        ViewModel vm = new ViewModel(model);
+        for (float[] sample : trace)
+            vm.setValues_from_joystick(sample[0], sample[1], sample[2], sample[3]);
+
+        double ratio = (double) model.deltaBytes / model.fullBytes;
+        System.out.println("DeltaEncodingBenchmark: " + trace.length + " frames, full " + model.fullBytes +
+                " bytes, delta " + model.deltaBytes + " bytes (" + Math.round(ratio * 100) + "%), " +
+                model.deltaLines + " of " + trace.length * 4 + " properties sent");
+        assertTrue("delta/full = " + ratio, ratio < 0.5);
+    }
+
+    @Test
+    public void deltaEncoding_sendsOnlyChangedAxes_andKeyframes() {
+        ControlFrameEncoder encoder = new ControlFrameEncoder();
+        encoder.setKeyframeInterval(3);
+        // first frame is always a keyframe
+        assertEquals(4, lines(encoder.encodeChanged(0, 0, 0, 0)));
+        // only the throttle moved
+        assertEquals("set /controls/engines/current-engine/throttle 0.5000\r\n",
+                text(encoder.encodeChanged(0, 0, 0, 0.5f)));
+        // nothing changed
+        assertEquals(0, encoder.encodeChanged(0, 0, 0, 0.5f).remaining());
+        // 3 frames after the last keyframe, all the axes are sent again
+        assertEquals(4, lines(encoder.encodeChanged(0, 0, 0, 0.5f)));
+    }
+
+    @Test
+    public void deadband_suppressesSmallMoves_untilTheyAddUp() {
+        ControlFrameEncoder encoder = new ControlFrameEncoder();
+        encoder.setKeyframeInterval(1000);
+        encoder.setResolution(ControlFrameEncoder.AILERON, 0.001f, 0.01f);
+        encoder.encodeChanged(0, 0, 0, 0);
+        assertEquals(0, encoder.encodeChanged(0.004f, 0, 0, 0).remaining());
+        assertEquals(0, encoder.encodeChanged(0.009f, 0, 0, 0).remaining());
+        assertEquals("set /controls/flight/aileron 0.0120\r\n", text(encoder.encodeChanged(0.012f, 0, 0, 0)));
+    }
+
+    private static int lines(ByteBuffer frame) {
+        int n = 0;
+        for (int i = 0; i < frame.limit(); i++)
+            if (frame.get(i) == '\n')
+                n++;
+        return n;
+    }
+
+    private static String text(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.duplicate().get(bytes);
+        return new String(bytes, java.nio.charset.StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EndpointTest {
+    @Test
+    public void parseIpv4_acceptsDottedQuads_only() {
+        assertEquals(0x7f000001L, Endpoint.parseIpv4("127.0.0.1"));
+        assertEquals(0xffffffffL, Endpoint.parseIpv4("255.255.255.255"));
+        assertEquals(0L, Endpoint.parseIpv4("0.0.0.0"));
+        assertEquals(0x0a000102L, Endpoint.parseIpv4("010.0.1.2"));
+        String[] invalid = {"", "1.2.3", "1.2.3.4.5", "256.0.0.1", "1.2.3.4.", ".1.2.3", "1..2.3", "1.2.3.a",
+                " 1.2.3.4", "1.2.3.-4", "99999999999.1.1.1", "localhost"};
+        for (String text : invalid)
+            assertEquals(text, -1, Endpoint.parseIpv4(text));
+        assertEquals(-1, Endpoint.parseIpv4(null));
+    }
+
+    @Test
+    public void parsePort_acceptsOneTo65535() {
+        assertEquals(5400, Endpoint.parsePort("5400"));
+        assertEquals(1, Endpoint.parsePort("1"));
+        assertEquals(65535, Endpoint.parsePort("65535"));
+        assertEquals(80, Endpoint.parsePort("0080"));
+        String[] invalid = {"", "0", "65536", "-1", "+80", "54 00", "99999999999999", "port"};
+        for (String text : invalid)
+            assertEquals(text, -1, Endpoint.parsePort(text));
+        assertEquals(-1, Endpoint.parsePort(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsAnInvalidAddress() {
+        new Endpoint("1.2.3", 5400, TransportType.TELNET_TCP);
+    }
+
+    @Test
+    public void parse_allocatesNothing() {
+        // (a StringBuilder, as the text of an EditText is)
+        StringBuilder ip = new StringBuilder("192.168.1.17");
+        StringBuilder port = new StringBuilder("5400");
+        final long[] sink = new long[1];
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 10000; i++)
+                sink[0] += Endpoint.parseIpv4(ip) + Endpoint.parsePort(port);
+        });
+        assertEquals(0, allocated);
+        assertTrue(sink[0] > 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FakePropsServerTest {
+    @Test
+    public void setAndGet_inPromptAndDataMode() throws Exception {
+        try (FakePropsServer server = new FakePropsServer();
+             Socket client = new Socket("127.0.0.1", server.getPort())) {
+            OutputStream out = client.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+
+            out.write("set /controls/flight/aileron 0.5000\r\nget /controls/flight/aileron\r\n".getBytes(StandardCharsets.US_ASCII));
+            // prompt of the set, then the answer of the get
+            assertEquals("/> /controls/flight/aileron = '0.5000' (string)", in.readLine());
+
+            out.write("data\r\nget /controls/flight/aileron\r\n".getBytes(StandardCharsets.US_ASCII));
+            // prompt of the "data" command itself, and then only the value
+            assertEquals("/> 0.5000", in.readLine());
+            assertEquals(1, server.getSetCommands());
+            assertEquals(0.5f, server.getFloat("/controls/flight/aileron"), 0f);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.remotejoystick;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.channels.Selector;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class FanOutTransportTest {
+    private FanOutTransport transport;
+    private final List<Object> errorSenders = new CopyOnWriteArrayList<>();
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        if (transport != null)
+            transport.close();
+    }
+
+    private FanOutTransport open(ControlFrameEncoder encoder, int... ports) throws IOException {
+        String[] ips = new String[ports.length];
+        for (int i = 0; i < ips.length; i++)
+            ips[i] = "127.0.0.1";
+        transport = new FanOutTransport(encoder, ips, ports);
+        transport.setBackoff(10, 20);
+        transport.onError = (sender, args) -> {
+            errorSenders.add(sender);
+            errors.add(args.description);
+        };
+        transport.connect();
+        return transport;
+    }
+
+    private boolean awaitConnected(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (transport.getConnectedCount() < count) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // a local port that nobody listens on
+    private static int closedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void everyInstance_getsTheSameFrames() throws Exception {
+        try (FakePropsServer a = new FakePropsServer();
+             FakePropsServer b = new FakePropsServer();
+             FakePropsServer c = new FakePropsServer()) {
+            open(new ControlFrameEncoder(), a.getPort(), b.getPort(), c.getPort());
+            assertTrue(awaitConnected(3, 2000));
+
+            int written = transport.send(0.25f, -0.5f, 0, 1);
+            assertTrue(written > 0);
+            // a delta frame: only the aileron moved
+            transport.send(0.75f, -0.5f, 0, 1);
+            for (FakePropsServer server : new FakePropsServer[]{a, b, c}) {
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.7500", 2000));
+                assertTrue(server.awaitValue("/controls/flight/elevator", "-0.5000", 2000));
+                assertTrue(server.awaitValue("/controls/engines/current-engine/throttle", "1.0000", 2000));
+            }
+            for (FanOutTarget target : transport.getTargets()) {
+                assertEquals(2, target.getFramesSent());
+                assertEquals(0, target.getFramesDropped());
+            }
+            assertTrue(errors.isEmpty());
+        }
+    }
+
+    @Test
+    public void stalledInstance_dropsFrames_withoutDelayingTheOthers_andResyncs() throws Exception {
+        try (FakePropsServer fast = new FakePropsServer();
+             FakePropsServer stuck = new FakePropsServer()) {
+            stuck.setHalfOpen(true);
+            ControlFrameEncoder encoder = new ControlFrameEncoder();
+            // every frame is a keyframe, so the socket of the stuck instance fills up soon
+            encoder.setKeyframeInterval(1);
+            open(encoder, fast.getPort(), stuck.getPort());
+            assertTrue(awaitConnected(2, 2000));
+            FanOutTarget fastTarget = transport.getTargets().get(0);
+            FanOutTarget stuckTarget = transport.getTargets().get(1);
+
+            long worstNanos = 0;
+            for (int i = 0; i < 1000000 && stuckTarget.getFramesDropped() < 10; i++) {
+                long start = System.nanoTime();
+                assertNotEquals(ControlTransport.STALLED, transport.send((i % 100) / 100f, 0, 0, 0));
+                worstNanos = Math.max(worstNanos, System.nanoTime() - start);
+            }
+            assertTrue(stuckTarget.getFramesDropped() >= 10);
+            // send() never waited for the stuck socket
+            assertTrue(worstNanos < 100000000L);
+            assertEquals(0, fastTarget.getFramesDropped());
+            transport.send(0.125f, 0, 0, 0);
+            assertTrue(fast.awaitValue("/controls/flight/aileron", "0.1250", 2000));
+
+            // once the stuck instance reads again, it gets the full state of the last frame
+            stuck.setHalfOpen(false);
+            encoder.setKeyframeInterval(1000);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!"0.3750".equals(stuck.get("/controls/flight/aileron")) && System.currentTimeMillis() < deadline) {
+                transport.send(0.375f, 0, 0, 0);
+                Thread.sleep(1);
+            }
+            assertEquals("0.3750", stuck.get("/controls/flight/aileron"));
+            assertTrue(stuckTarget.isConnected());
+            assertTrue(errors.isEmpty());
+        }
+    }
+
+    @Test
+    public void deadInstance_reportsItsOwnErrors_andTheOthersKeepGoing() throws Exception {
+        try (FakePropsServer live = new FakePropsServer()) {
+            open(new ControlFrameEncoder(), live.getPort(), closedPort());
+            assertTrue(awaitConnected(1, 2000));
+            FanOutTarget dead = transport.getTargets().get(1);
+            long deadline = System.currentTimeMillis() + 2000;
+            while (errors.isEmpty() && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+
+            transport.send(0.5f, 0, 0, 0);
+            assertTrue(live.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+            assertFalse(dead.isConnected());
+            assertEquals(0, dead.getFramesSent());
+            // one error for the first failed connect, of the dead instance only (retries are just state changes)
+            Thread.sleep(100);
+            assertEquals(1, errors.size());
+            assertEquals("Connection Error", errors.get(0));
+            assertSame(dead, errorSenders.get(0));
+
+            // a lost instance is reported as disconnected, and connected again
+            live.resetConnections();
+            assertTrue(live.awaitConnections(2, 2000));
+            assertTrue(awaitConnected(1, 2000));
+            assertEquals("Disconnected", errors.get(1));
+            assertSame(transport.getTargets().get(0), errorSenders.get(1));
+            assertEquals(1, transport.getTargets().get(0).getReconnects());
+        }
+    }
+
+    @Test
+    public void brokenSelector_isReportedOnce_byTheTransport_andDisconnectsEveryInstance() throws Exception {
+        try (FakePropsServer a = new FakePropsServer(); FakePropsServer b = new FakePropsServer()) {
+            open(new ControlFrameEncoder(), a.getPort(), b.getPort());
+            assertTrue(awaitConnected(2, 2000));
+            // (no way to break a selector from the outside, so it is closed under the transport)
+            Field field = FanOutTransport.class.getDeclaredField("selector");
+            field.setAccessible(true);
+            ((Selector) field.get(transport)).close();
+
+            // every select() fails from now on: one error, no spinning, and then the thread gives up
+            long deadline = System.currentTimeMillis() + 5000;
+            while (transport.getConnectedCount() > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, transport.getConnectedCount());
+            for (FanOutTarget target : transport.getTargets())
+                assertEquals(ConnectionState.DISCONNECTED, target.getState());
+            assertEquals(1, errors.size());
+            assertEquals("Connection Error", errors.get(0));
+            assertSame(transport, errorSenders.get(0));
+            deadline = System.currentTimeMillis() + 2000;
+            while (a.getOpenConnections() + b.getOpenConnections() > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, a.getOpenConnections() + b.getOpenConnections());
+        }
+    }
+}
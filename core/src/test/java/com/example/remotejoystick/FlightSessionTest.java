@@ -0,0 +1,185 @@
+package com.example.remotejoystick;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class FlightSessionTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // threads of FGModel (connection, sender...) that are alive now
+    private static int modelThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if (thread.getName().startsWith("FGModel-") && thread.isAlive())
+                count++;
+        return count;
+    }
+
+    private static FlightSession newSession() {
+        FGModel model = new FGModel();
+        model.setConflatingSend(true);
+        return new FlightSession(model);
+    }
+
+    @Test
+    public void screensComeAndGo_onOneConnection() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            FlightSession session = newSession();
+            try {
+                VirtualFrameClock clock = new VirtualFrameClock(60);
+                session.getViewModel().setFrameClock(clock);
+                session.getModel().connect("127.0.0.1", server.getPort());
+                assertTrue(server.awaitConnections(1, 2000));
+
+                // every "screen" binds its handlers to the same view model, and drops them when destroyed
+                for (int screen = 0; screen < 5; screen++) {
+                    ViewModel viewModel = session.getViewModel();
+                    viewModel.onError = (sender, args) -> { };
+                    viewModel.setValues(screen / 10f, 0, 0, 0.5f);
+                    clock.tick();
+                    viewModel.onError = null;
+                }
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.4000", 2000));
+                assertEquals(1, server.getConnectionsAccepted());
+                assertTrue(session.getModel().isConnected());
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void background_holdsACenteredStick_untilForeground() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            FlightSession session = newSession();
+            try {
+                VirtualFrameClock clock = new VirtualFrameClock(60);
+                ViewModel viewModel = session.getViewModel();
+                viewModel.setFrameClock(clock);
+                session.setHoldWhileBackgrounded(true);
+                session.getModel().connect("127.0.0.1", server.getPort());
+                assertTrue(server.awaitConnections(1, 2000));
+                viewModel.setValues(0.75f, -0.5f, 0.25f, 0.8f);
+                clock.tick();
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.7500", 2000));
+
+                session.enterBackground();
+                assertTrue(session.isBackground());
+                // the display frames stopped, yet the hold state went out: centered, with the throttle as it was
+                assertFalse(clock.isRunning());
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.0000", 2000));
+                assertTrue(server.awaitValue("/controls/flight/elevator", "0.0000", 2000));
+                assertTrue(server.awaitValue("/controls/flight/rudder", "0.0000", 2000));
+                assertEquals("0.8000", server.get("/controls/engines/current-engine/throttle"));
+                // and it keeps going out (as an idle keyframe)
+                long sets = server.getSetCommands();
+                long deadline = System.currentTimeMillis() + 3000;
+                while (server.getSetCommands() == sets && System.currentTimeMillis() < deadline)
+                    Thread.sleep(10);
+                assertTrue(server.getSetCommands() > sets);
+
+                session.enterForeground();
+                assertFalse(session.isBackground());
+                assertSame(clock, viewModel.getFrameClock());
+                assertTrue(clock.isRunning());
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void conditionedStick_settlesToItsLastInput_andTheHoldIsExactlyCentered() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            FlightSession session = newSession();
+            try {
+                VirtualFrameClock clock = new VirtualFrameClock(60);
+                ViewModel viewModel = session.getViewModel();
+                InputConditioner conditioner = InputConditioner.forTouch();
+                viewModel.setConditioner(conditioner);
+                // (finest resolution, so the sent values are the conditioned ones)
+                viewModel.setControlResolution(0.0001f, 0);
+                viewModel.setFrameClock(clock);
+                session.setHoldWhileBackgrounded(true);
+                session.getModel().connect("127.0.0.1", server.getPort());
+                assertTrue(server.awaitConnections(1, 2000));
+
+                // a drag to 0.76 (one touch sample per frame, on the time of the clock), then the finger rests
+                for (int i = 1; i <= 30; i++) {
+                    float value = 0.76f * i / 30;
+                    viewModel.setValues(value, -value, 0, 0.6f, clock.getNowNanos());
+                    clock.tick();
+                }
+                float last = conditioner.getAxis(InputMixer.AILERON).shape(0.76f);
+                assertNotEquals(last, viewModel.getAileron(), 0.001f);
+                // no more touch events: after a while the stick is its last input, not where the filter was
+                clock.advance(200000000L);
+                assertEquals(last, viewModel.getAileron(), 0);
+                assertEquals(-last, viewModel.getElevator(), 0);
+                assertTrue(server.awaitValue("/controls/flight/aileron", String.format(Locale.US, "%.4f", last),
+                        2000));
+
+                // the hold is not smoothed from there: exactly centered
+                session.enterBackground();
+                assertEquals(0, viewModel.getAileron(), 0);
+                assertEquals(0, viewModel.getElevator(), 0);
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.0000", 2000));
+                assertTrue(server.awaitValue("/controls/flight/elevator", "0.0000", 2000));
+                assertEquals("0.6000", server.get("/controls/engines/current-engine/throttle"));
+
+                // and the next touch starts over from the hold, not from the drag before it
+                session.enterForeground();
+                viewModel.setValues(0.5f, 0, 0, 0.6f, clock.getNowNanos());
+                clock.tick();
+                assertEquals(conditioner.getAxis(InputMixer.AILERON).shape(0.5f), viewModel.getAileron(), 0);
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void close_stopsEveryThread_andClosesTheSocketAndRecorder() throws Exception {
+        int threadsBefore = modelThreads();
+        try (FakePropsServer server = new FakePropsServer()) {
+            FlightSession session = newSession();
+            File file = folder.newFile("flight.rec");
+            session.setRecorder(new InputRecorder(file));
+            File metricsFile = new File(folder.getRoot(), "metrics.log");
+            session.setMetricsExporter(new MetricsExporter(session.getModel().getMetrics(), 60000,
+                    MetricsExporter.toFile(metricsFile)));
+            session.getViewModel().onError = (sender, args) -> { };
+            session.getModel().connect("127.0.0.1", server.getPort());
+            assertTrue(server.awaitConnections(1, 2000));
+            session.getViewModel().setValues(0.5f, 0, 0, 0);
+            assertTrue(modelThreads() > threadsBefore);
+
+            session.close();
+            session.close();
+            assertTrue(session.isClosed());
+            assertNull(session.getViewModel().onError);
+            assertNull(session.getRecorder());
+            assertNull(session.getMetricsExporter());
+            long deadline = System.currentTimeMillis() + 2000;
+            while ((modelThreads() > threadsBefore || server.getOpenConnections() > 0)
+                    && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertTrue(modelThreads() <= threadsBefore);
+            assertEquals(0, server.getOpenConnections());
+            // (the recording was closed, so it can be read back)
+            assertEquals(1, InputRecording.open(file).size());
+            // and the metrics of the end of the session were exported
+            assertTrue(new String(Files.readAllBytes(metricsFile.toPath()), StandardCharsets.US_ASCII)
+                    .contains(" viewModel.valuesReceived=1 "));
+        }
+    }
+}
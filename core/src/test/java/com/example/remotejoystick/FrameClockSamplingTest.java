@@ -0,0 +1,81 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameClockSamplingTest {
+    // model that only records what it got
+    private static class RecordingModel extends FGModel {
+        int updates = 0;
+        float aileron, throttle;
+        long inputNanos, viewModelNanos;
+
+        @Override
+        public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                    long inputNanos, long viewModelNanos) {
+            updates++;
+            this.aileron = aileron;
+            this.throttle = throttle;
+            this.inputNanos = inputNanos;
+            this.viewModelNanos = viewModelNanos;
+        }
+    }
+
+    @Test
+    public void oneSamplePerFrame_ofTheNewestState() {
+        RecordingModel model = new RecordingModel();
+        ViewModel vm = new ViewModel(model);
+        VirtualFrameClock clock = new VirtualFrameClock(60);
+        vm.setFrameClock(clock);
+
+        // a burst of touch events (as resetValues() of the joystick) between two frames
+        long before = System.nanoTime();
+        vm.setValues(0.1f, 0, 0, 0, 11);
+        long after = System.nanoTime();
+        vm.setValues(0.2f, 0, 0, 0, 12);
+        vm.setValues(0.3f, 0, 0, 0.5f, 13);
+        assertEquals(0, model.updates);
+        clock.tick();
+        assertEquals(1, model.updates);
+        assertEquals(0.3f, model.aileron, 0);
+        assertEquals(0.5f, model.throttle, 0);
+        // the latency of the sample is from its first input, and it got to the view model when setValues() was
+        // called (not at the frame)
+        assertEquals(11, model.inputNanos);
+        assertTrue(model.viewModelNanos >= before && model.viewModelNanos <= after);
+
+        // nothing changed, nothing is sent
+        clock.advance(1000000000L);
+        assertEquals(1, model.updates);
+        model.close();
+    }
+
+    @Test
+    public void sendRate_isSetByClock_notByInputRate() {
+        RecordingModel model = new RecordingModel();
+        ViewModel vm = new ViewModel(model);
+        VirtualFrameClock clock = new VirtualFrameClock(60);
+        vm.setFrameClock(clock);
+        vm.setFramesPerSample(2);
+
+        // one second of input at 1 kHz, with 60 frames
+        float[][] trace = InputTraces.normalFlight(1);
+        for (int frame = 0; frame < 60; frame++) {
+            for (int i = 0; i < 1000 / 60; i++) {
+                float[] sample = trace[(frame * 16 + i) % trace.length];
+                vm.setValues_from_joystick(sample[0], sample[1], sample[2], sample[3]);
+            }
+            clock.tick();
+        }
+        assertEquals(30, model.updates);
+
+        // without a clock every input goes to the model
+        vm.setFrameClock(null);
+        assertFalse(clock.isRunning());
+        vm.setValues(0.9f, 0, 0, 0);
+        assertEquals(31, model.updates);
+        assertEquals(0.9f, model.aileron, 0);
+        model.close();
+    }
+}
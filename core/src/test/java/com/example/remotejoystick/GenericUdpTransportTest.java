@@ -0,0 +1,58 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GenericUdpTransportTest {
+    private static DatagramChannel bindLoopback() throws Exception {
+        DatagramChannel server = DatagramChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", 0));
+        return server;
+    }
+
+    @Test
+    public void csv_sendsOneLinePerFrame_withSequence() throws Exception {
+        try (DatagramChannel server = bindLoopback()) {
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            GenericUdpTransport transport = GenericUdpTransport.open("127.0.0.1", port, false);
+            transport.send(-0.5f, 0.25f, 0, 1);
+            transport.send(0, 0, 0, 0.5f);
+            transport.close();
+
+            ByteBuffer received = ByteBuffer.allocate(128);
+            server.receive(received);
+            received.flip();
+            assertEquals("0,-0.5000,0.2500,0.0000,1.0000\n", StandardCharsets.US_ASCII.decode(received).toString());
+            received.clear();
+            server.receive(received);
+            received.flip();
+            assertEquals("1,0.0000,0.0000,0.0000,0.5000\n", StandardCharsets.US_ASCII.decode(received).toString());
+        }
+    }
+
+    @Test
+    public void binary_sendsSequenceAndFourFloats_bigEndian() throws Exception {
+        try (DatagramChannel server = bindLoopback()) {
+            int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+            GenericUdpTransport transport = GenericUdpTransport.open("127.0.0.1", port, true);
+            assertEquals(20, transport.send(-0.5f, 0.25f, 0, 1));
+            transport.close();
+
+            ByteBuffer received = ByteBuffer.allocate(128);
+            server.receive(received);
+            received.flip();
+            assertEquals(20, received.remaining());
+            assertEquals(0, received.getInt());
+            assertEquals(-0.5f, received.getFloat(), 0f);
+            assertEquals(0.25f, received.getFloat(), 0f);
+            assertEquals(0f, received.getFloat(), 0f);
+            assertEquals(1f, received.getFloat(), 0f);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.remotejoystick;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class InputConditionerTest {
+    private static final long MS = 1000000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void deadzoneAndExpo_shapeTheRange() {
+        AxisConditioning shaped = AxisConditioning.shaped(0.1f, 1, 0);
+        assertEquals(0, shaped.shape(0.05f), 0);
+        assertEquals(0, shaped.shape(-0.1f), 0);
+        // half way out of the deadzone, cubed
+        assertEquals(0.125f, shaped.shape(0.55f), 1e-6);
+        assertEquals(-0.125f, shaped.shape(-0.55f), 1e-6);
+        assertEquals(1, shaped.shape(1), 0);
+        assertEquals(-1, shaped.shape(-1.5f), 0);
+        // linear without expo, and nothing at all by default
+        assertEquals(0.5f, AxisConditioning.shaped(0.1f, 0, 0).shape(0.55f), 1e-6);
+        assertEquals(0.3f, AxisConditioning.NONE.shape(0.3f), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSettings_throw() {
+        AxisConditioning.ema(0, 0, 0, 0);
+    }
+
+    @Test
+    public void ema_movesAlphaOfTheWay_andSettles() {
+        InputConditioner conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.AILERON, AxisConditioning.ema(0, 0, 0.5f, 0));
+        assertEquals(0, conditioner.condition(InputMixer.AILERON, 0, 0), 0);
+        assertEquals(0.5f, conditioner.condition(InputMixer.AILERON, 1, 16 * MS), 0);
+        assertEquals(0.75f, conditioner.condition(InputMixer.AILERON, 1, 32 * MS), 0);
+        float value = 0;
+        for (int i = 3; i < 20; i++)
+            value = conditioner.condition(InputMixer.AILERON, 1, i * 16 * MS);
+        // a held input is reached exactly
+        assertEquals(1, value, 0);
+        // the other axes are untouched
+        assertEquals(0.3f, conditioner.condition(InputMixer.THROTTLE, 0.3f, 0), 0);
+    }
+
+    @Test
+    public void oneEuro_steadiesJitter_yetFollowsAFastMove() {
+        InputConditioner conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.ELEVATOR, AxisConditioning.oneEuro(0, 0, 1, 10, 0));
+        long nanos = 0;
+        float min = 1, max = -1;
+        // a held finger at 0.5 that jitters by +-0.01
+        for (int i = 0; i < 120; i++, nanos += 16 * MS) {
+            float value = conditioner.condition(InputMixer.ELEVATOR, 0.5f + (i % 2 == 0 ? 0.01f : -0.01f), nanos);
+            if (i >= 60) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        assertTrue("jitter left " + (max - min), max - min < 0.005f);
+        // a fast move to -0.5 is followed within a few samples
+        float value = 0;
+        for (int i = 0; i < 6; i++, nanos += 16 * MS)
+            value = conditioner.condition(InputMixer.ELEVATOR, -0.5f, nanos);
+        assertTrue("lagging at " + value, value < -0.4f);
+    }
+
+    @Test
+    public void hysteresis_holdsTheOutput_butReachesCenterAndEnds() {
+        InputConditioner conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.RUDDER, AxisConditioning.shaped(0, 0, 0.05f));
+        assertEquals(0.2f, conditioner.condition(InputMixer.RUDDER, 0.2f, 0), 0);
+        assertEquals(0.2f, conditioner.condition(InputMixer.RUDDER, 0.24f, MS), 0);
+        assertEquals(0.2f, conditioner.condition(InputMixer.RUDDER, 0.16f, 2 * MS), 0);
+        assertEquals(0.26f, conditioner.condition(InputMixer.RUDDER, 0.26f, 3 * MS), 0);
+        assertEquals(0.01f, conditioner.condition(InputMixer.RUDDER, 0.01f, 4 * MS), 0);
+        assertEquals(0, conditioner.condition(InputMixer.RUDDER, 0, 5 * MS), 0);
+        conditioner.condition(InputMixer.RUDDER, 0.98f, 6 * MS);
+        assertEquals(1, conditioner.condition(InputMixer.RUDDER, 1, 7 * MS), 0);
+        assertEquals(8, conditioner.getSamples());
+        assertEquals(6, conditioner.getChanges());
+    }
+
+    @Test
+    public void release_centersAtOnce_andAStoppedInputSettlesToItsLastValue() {
+        InputConditioner conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.AILERON, AxisConditioning.ema(0, 0, 0.25f, 0));
+        conditioner.condition(InputMixer.AILERON, 0, 0);
+        float value = conditioner.condition(InputMixer.AILERON, 0.8f, 16 * MS);
+        assertEquals(0.2f, value, 1e-6f);
+        // no sample for a while: not yet, then the last input
+        assertFalse(conditioner.settle(50 * MS));
+        assertTrue(conditioner.settle(200 * MS));
+        assertEquals(0.8f, conditioner.getOutput(InputMixer.AILERON), 0);
+        assertFalse(conditioner.settle(300 * MS));
+        // a release is centered right away, not smoothed toward the center
+        assertEquals(0, conditioner.condition(InputMixer.AILERON, 0, 316 * MS), 0);
+        assertEquals(0.2f, conditioner.condition(InputMixer.AILERON, 0.8f, 332 * MS), 1e-6f);
+    }
+
+    @Test
+    public void settings_swapWhileConditioning_withoutAJump() {
+        InputConditioner conditioner = new InputConditioner();
+        conditioner.setAxis(InputMixer.AILERON, AxisConditioning.ema(0, 0, 0.1f, 0));
+        conditioner.condition(InputMixer.AILERON, 0, 0);
+        float before = conditioner.condition(InputMixer.AILERON, 1, 16 * MS);
+        conditioner.setAxis(InputMixer.AILERON, AxisConditioning.ema(0, 0, 0.2f, 0));
+        // goes on from the filter state, at the new alpha
+        assertEquals(before + 0.2f * (1 - before), conditioner.condition(InputMixer.AILERON, 1, 32 * MS), 1e-6);
+        conditioner.setAxis(InputMixer.AILERON, AxisConditioning.NONE);
+        assertEquals(1, conditioner.condition(InputMixer.AILERON, 1, 48 * MS), 0);
+    }
+
+    @Test
+    public void viewModel_conditionsWhatItSends_butRecordsTheRawInput() throws Exception {
+        final float[] sent = new float[4];
+        FGModel model = new FGModel() {
+            @Override
+            public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                        long inputNanos, long viewModelNanos) {
+                sent[0] = aileron;
+                sent[1] = elevator;
+                sent[2] = rudder;
+                sent[3] = throttle;
+            }
+        };
+        File file = folder.newFile("flight.rec");
+        InputRecorder recorder = new InputRecorder(file);
+        try {
+            model.setBindings(BindingTable.parse(new StringReader(
+                    "aileron /controls/flight/aileron\nflaps /controls/flight/flaps\n")));
+            ViewModel viewModel = new ViewModel(model);
+            viewModel.setRecorder(recorder);
+            InputConditioner conditioner = new InputConditioner();
+            conditioner.setAxis(InputMixer.AILERON, AxisConditioning.shaped(0.1f, 1, 0));
+            viewModel.setConditioner(conditioner);
+            viewModel.setValues(0.55f, 0.05f, 0, 0.5f, 1);
+            assertArrayEquals(new float[]{0.125f, 0.05f, 0, 0.5f}, sent, 1e-6f);
+            // an input of the bindings resends the current values, not conditioned again
+            assertTrue(viewModel.setInput("flaps", 1));
+            assertArrayEquals(new float[]{0.125f, 0.05f, 0, 0.5f}, sent, 1e-6f);
+            viewModel.setValues(0.55f, 0.05f, 0, 0.5f, 2);
+            assertEquals(0.125f, viewModel.getAileron(), 1e-6f);
+        } finally {
+            model.close();
+            recorder.close();
+        }
+        // every record is the raw input, the one of setInput() too (so a replay conditions it only once)
+        InputRecording recording = InputRecording.open(file);
+        assertEquals(3, recording.size());
+        for (int i = 0; i < 3; i++)
+            assertEquals(0.55f, recording.getAileron(i), 0);
+        assertEquals(InputRecorder.FLAG_INPUT, recording.getFlags(1));
+    }
+
+    @Test
+    public void condition_allocatesNothing() {
+        InputConditioner conditioner = InputConditioner.forTouch();
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 10000; i++) {
+                long nanos = i * 16 * MS;
+                conditioner.condition(InputMixer.AILERON, (i % 100) / 100f, nanos);
+                conditioner.condition(InputMixer.ELEVATOR, -(i % 50) / 50f, nanos);
+                conditioner.condition(InputMixer.RUDDER, 0, nanos);
+                conditioner.condition(InputMixer.THROTTLE, 0.5f, nanos);
+            }
+        });
+        assertEquals(0, allocated);
+    }
+}
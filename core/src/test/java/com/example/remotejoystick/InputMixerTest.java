@@ -0,0 +1,191 @@
+package com.example.remotejoystick;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InputMixerTest {
+    // a source that the test publishes for
+    private static class SyntheticSource implements InputSource {
+        InputMixer.Channel channel;
+        boolean stopped = false;
+
+        @Override
+        public void start(InputMixer.Channel channel) { this.channel = channel; }
+
+        @Override
+        public void stop() { stopped = true; }
+    }
+
+    private InputMixer mixer;
+    private final float[] last = new float[4];
+    private int calls = 0;
+
+    @Before
+    public void setUp() {
+        mixer = new InputMixer();
+        mixer.onValues = (aileron, elevator, rudder, throttle, inputNanos) -> {
+            last[InputMixer.AILERON] = aileron;
+            last[InputMixer.ELEVATOR] = elevator;
+            last[InputMixer.RUDDER] = rudder;
+            last[InputMixer.THROTTLE] = throttle;
+            calls++;
+        };
+    }
+
+    private SyntheticSource add(int priority, int axes) {
+        SyntheticSource source = new SyntheticSource();
+        assertSame(mixer.add(source, priority, axes), source.channel);
+        return source;
+    }
+
+    @Test
+    public void higherPriority_takesTheAxes_andReleaseHandsThemBack() {
+        SyntheticSource touch = add(0, InputMixer.ALL_AXES);
+        SyntheticSource gamepad = add(2, InputMixer.AILERON_AXIS | InputMixer.ELEVATOR_AXIS);
+
+        touch.channel.publish(0.1f, 0.2f, 0.3f, 0.4f, 1);
+        assertArrayEquals(new float[]{0.1f, 0.2f, 0.3f, 0.4f}, last, 0);
+        gamepad.channel.publish(-0.5f, 0.5f, 0.9f, 0.9f, 2);
+        // the gamepad has no rudder and throttle here
+        assertArrayEquals(new float[]{-0.5f, 0.5f, 0.3f, 0.4f}, last, 0);
+        // a lower priority doesn't move the axes of the gamepad
+        touch.channel.publish(0.7f, 0.7f, 0.3f, 0.4f, 3);
+        assertArrayEquals(new float[]{-0.5f, 0.5f, 0.3f, 0.4f}, last, 0);
+        // nothing changed, nothing emitted
+        int callsBefore = calls;
+        touch.channel.publish(0.7f, 0.7f, 0.3f, 0.4f, 4);
+        assertEquals(callsBefore, calls);
+
+        gamepad.channel.release();
+        assertArrayEquals(new float[]{0.7f, 0.7f, 0.3f, 0.4f}, last, 0);
+        // no active source keeps the last values
+        touch.channel.release();
+        assertArrayEquals(new float[]{0.7f, 0.7f, 0.3f, 0.4f}, last, 0);
+
+        mixer.remove(gamepad);
+        assertTrue(gamepad.stopped);
+        assertFalse(touch.stopped);
+        mixer.stop();
+        assertTrue(touch.stopped);
+    }
+
+    @Test
+    public void override_winsOverPriority_whileItIsOn() {
+        SyntheticSource touch = add(0, InputMixer.ALL_AXES);
+        SyntheticSource tilt = add(1, InputMixer.AILERON_AXIS | InputMixer.ELEVATOR_AXIS);
+        tilt.channel.publish(0.5f, 0.5f, Float.NaN, Float.NaN, 1);
+        touch.channel.publish(-0.25f, -0.25f, 0, 0.5f, 2);
+        assertEquals(0.5f, last[InputMixer.AILERON], 0);
+
+        // finger down on the joystick
+        touch.channel.setOverride(true);
+        assertEquals(-0.25f, last[InputMixer.AILERON], 0);
+        tilt.channel.publish(0.75f, 0.75f, Float.NaN, Float.NaN, 3);
+        assertEquals(-0.25f, last[InputMixer.AILERON], 0);
+        assertEquals(-0.25f, last[InputMixer.ELEVATOR], 0);
+        // finger up
+        touch.channel.setOverride(false);
+        assertEquals(0.75f, last[InputMixer.AILERON], 0);
+        assertEquals(0.5f, last[InputMixer.THROTTLE], 0);
+    }
+
+    @Test
+    public void latestRule_followsWhoeverMovedLast_andSumIsClamped() {
+        mixer.setMergeRule(InputMixer.THROTTLE, InputMixer.MergeRule.LATEST);
+        mixer.setMergeRule(InputMixer.AILERON, InputMixer.MergeRule.SUM);
+        assertEquals(InputMixer.MergeRule.SUM, mixer.getMergeRule(InputMixer.AILERON));
+        SyntheticSource seekBar = add(0, InputMixer.ALL_AXES);
+        SyntheticSource lever = add(5, InputMixer.AILERON_AXIS | InputMixer.THROTTLE_AXIS);
+
+        seekBar.channel.publish(0.5f, 0, 0, 0.25f, 1);
+        lever.channel.publish(0.25f, 0, 0, 0.75f, 2);
+        assertEquals(0.75f, last[InputMixer.THROTTLE], 0);
+        assertEquals(0.75f, last[InputMixer.AILERON], 0);
+        // the seek bar moved last, despite its lower priority
+        seekBar.channel.publish(0.5f, 0, 0, 0.5f, 3);
+        assertEquals(0.5f, last[InputMixer.THROTTLE], 0);
+
+        lever.channel.publish(0.75f, 0, 0, 0.75f, 4);
+        assertEquals(1, last[InputMixer.AILERON], 0);
+        seekBar.channel.publish(-1, 0, 0, 0.5f, 5);
+        lever.channel.publish(-1, 0, 0, 0.75f, 6);
+        assertEquals(-1, last[InputMixer.AILERON], 0);
+    }
+
+    @Test
+    public void timedOutChannel_isInactive() throws Exception {
+        SyntheticSource touch = add(0, InputMixer.ALL_AXES);
+        SyntheticSource gamepad = add(1, InputMixer.ALL_AXES);
+        gamepad.channel.setTimeout(20);
+        touch.channel.publish(0.1f, 0.1f, 0.1f, 0.1f, System.nanoTime());
+        gamepad.channel.publish(0.9f, 0.9f, 0.9f, 0.9f, System.nanoTime());
+        assertEquals(0.9f, last[InputMixer.AILERON], 0);
+        Thread.sleep(50);
+        // the next publish sees the gamepad timed out
+        touch.channel.publish(0.2f, 0.2f, 0.2f, 0.2f, System.nanoTime());
+        assertArrayEquals(new float[]{0.2f, 0.2f, 0.2f, 0.2f}, last, 0);
+    }
+
+    @Test
+    public void concurrentPublishers_neverCallOnValuesAtOnce_andTheNewestValuesWin() throws Exception {
+        final int threads = 4;
+        final int publishes = 200000;
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final float[] seen = new float[4];
+        mixer.onValues = (aileron, elevator, rudder, throttle, inputNanos) -> {
+            if (inside.incrementAndGet() != 1)
+                overlaps.incrementAndGet();
+            seen[InputMixer.AILERON] = aileron;
+            seen[InputMixer.ELEVATOR] = elevator;
+            seen[InputMixer.RUDDER] = rudder;
+            seen[InputMixer.THROTTLE] = throttle;
+            inside.decrementAndGet();
+        };
+        // one source per axis, all of them at once
+        final SyntheticSource[] sources = new SyntheticSource[threads];
+        for (int i = 0; i < threads; i++)
+            sources[i] = add(0, 1 << i);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] publishers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int axis = i;
+            publishers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 1; n <= publishes; n++)
+                    sources[axis].channel.publish(axis, n / (float) publishes, System.nanoTime());
+            });
+            publishers[i].start();
+        }
+        start.countDown();
+        for (Thread publisher : publishers)
+            publisher.join();
+
+        assertEquals(0, overlaps.get());
+        assertArrayEquals(new float[]{1, 1, 1, 1}, seen, 0);
+        assertTrue(mixer.getMixes() <= (long) threads * publishes);
+    }
+
+    @Test
+    public void publish_allocatesNothing() {
+        SyntheticSource touch = add(0, InputMixer.ALL_AXES);
+        SyntheticSource gamepad = add(1, InputMixer.AILERON_AXIS);
+        mixer.setMergeRule(InputMixer.RUDDER, InputMixer.MergeRule.SUM);
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 10000; i++) {
+                touch.channel.publish(i % 100 / 100f, 0.5f, i % 7 / 10f, 0.25f, System.nanoTime());
+                gamepad.channel.publish(InputMixer.AILERON, i % 3 / 3f, System.nanoTime());
+            }
+        });
+        assertEquals(0, allocated);
+    }
+}
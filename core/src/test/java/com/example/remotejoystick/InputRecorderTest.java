@@ -0,0 +1,106 @@
+package com.example.remotejoystick;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class InputRecorderTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void records_areReadBack_acrossRegions() throws Exception {
+        File file = folder.newFile("flight.rec");
+        InputRecorder recorder = new InputRecorder(file);
+        long start = System.nanoTime();
+        int count = InputRecorder.RECORDS_PER_REGION * 2 + 10;
+        for (int i = 0; i < count; i++)
+            recorder.record(start + i * 1000L, i / (float) count, -0.5f, 0.25f, 1, i % 3);
+        assertEquals(count, recorder.getCount());
+        recorder.close();
+        // nothing after close
+        recorder.record(start, 1, 1, 1, 1, 0);
+        assertEquals(InputRecorder.HEADER_BYTES + count * (long) InputRecorder.RECORD_BYTES, file.length());
+
+        InputRecording recording = InputRecording.open(file);
+        assertEquals(count, recording.size());
+        for (int i = 0; i < count; i += 997) {
+            assertEquals(i / (float) count, recording.getAileron(i), 0);
+            assertEquals(-0.5f, recording.getElevator(i), 0);
+            assertEquals(0.25f, recording.getRudder(i), 0);
+            assertEquals(1, recording.getThrottle(i), 0);
+            assertEquals(i % 3, recording.getFlags(i));
+        }
+        assertEquals((count - 1) * 1000L, recording.getDurationNanos());
+        assertEquals(recording.getNanos(0) + 1000, recording.getNanos(1));
+    }
+
+    @Test
+    public void unclosedRecording_isReadable_uptoTheLastRecord() throws Exception {
+        File file = folder.newFile("killed.rec");
+        InputRecorder recorder = new InputRecorder(file);
+        for (int i = 0; i < 100; i++)
+            recorder.record(System.nanoTime(), 0, 0, 0, i / 100f, InputRecorder.FLAG_JOYSTICK);
+        // as if the app was killed: the file still has the whole mapped region, the header has the count
+        assertTrue(file.length() > InputRecorder.HEADER_BYTES + 100 * InputRecorder.RECORD_BYTES);
+
+        InputRecording recording = InputRecording.open(file);
+        assertEquals(100, recording.size());
+        assertEquals(0.99f, recording.getThrottle(99), 0);
+        try {
+            recording.getThrottle(100);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+        recorder.close();
+    }
+
+    @Test
+    public void open_rejectsOtherFiles() throws Exception {
+        File file = folder.newFile("other.rec");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        try {
+            InputRecording.open(file);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void viewModel_recordsWhatSetValuesGot() throws Exception {
+        File file = folder.newFile("view-model.rec");
+        FGModel model = new FGModel();
+        try {
+            ViewModel viewModel = new ViewModel(model);
+            InputRecorder recorder = new InputRecorder(file);
+            viewModel.setRecorder(recorder);
+            viewModel.setValues_from_joystick(1, 0.5f, 0.25f, 0.75f, System.nanoTime());
+            viewModel.setValues(0.1f, 0.2f, 0.3f, 0.4f);
+            viewModel.setInput("throttle", 1);
+            viewModel.setRecorder(null);
+            viewModel.setValues(0, 0, 0, 0);
+            recorder.close();
+
+            InputRecording recording = InputRecording.open(file);
+            assertEquals(3, recording.size());
+            assertEquals(1, recording.getAileron(0), 0);
+            assertEquals(-0.5f, recording.getRudder(0), 0);
+            assertEquals(InputRecorder.FLAG_JOYSTICK, recording.getFlags(0));
+            assertEquals(0.4f, recording.getThrottle(1), 0);
+            assertEquals(0, recording.getFlags(1));
+            assertEquals(InputRecorder.FLAG_INPUT, recording.getFlags(2));
+        } finally {
+            model.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.remotejoystick;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+// replays of recorded flights into FGModel against the in-process FakePropsServer
+public class InputReplayTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    // model that only keeps every state it got
+    private static class CapturingModel extends FGModel {
+        final List<String> states = new ArrayList<>();
+
+        @Override
+        public void updatePlaneData(float aileron, float elevator, float rudder, float throttle,
+                                    long inputNanos, long viewModelNanos) {
+            states.add(aileron + " " + elevator + " " + rudder + " " + throttle);
+        }
+    }
+
+    private FakePropsServer server;
+    private FGModel model;
+    private InputRecording recording;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakePropsServer();
+        model = new FGModel();
+        // 2 seconds of flight at 60 Hz
+        recording = InputTraces.record(folder.newFile("flight.rec"), InputTraces.normalFlight(2));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        model.close();
+        server.close();
+    }
+
+    @Test
+    public void asFastAsPossible_deliversTheLastState() throws Exception {
+        model.setConflatingSend(true);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        LoadDriver.Report report = driver.replay(recording, InputReplay.AS_FAST_AS_POSSIBLE);
+        System.out.println("Replay as fast as possible: " + report);
+        assertEquals(recording.size(), report.updatesPushed);
+        // much faster than the 2 seconds of the flight
+        assertTrue(report.durationMillis < 1000);
+        int last = recording.size() - 1;
+        assertEquals(recording.getAileron(last), server.getFloat("/controls/flight/aileron"), 0.002f);
+        assertEquals(recording.getElevator(last), server.getFloat("/controls/flight/elevator"), 0.002f);
+    }
+
+    @Test
+    public void timedReplay_keepsTheRecordedTiming_scaled() throws Exception {
+        model.setMaxSendRate(200);
+        model.setConflatingSend(true);
+        model.setLatencyTracking(true);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        InputReplay replay = new InputReplay(recording, model);
+        replay.setSpeed(2);
+        assertEquals(recording.size(), replay.run());
+        double expectedMillis = recording.getDurationNanos() / 2 / 1e6;
+        System.out.println("Replay at 2x: " + replay.getDurationNanos() / 1000000 + " ms (expected " +
+                Math.round(expectedMillis) + "), lateness p99 " + replay.getLateness().getPercentile(0.99) / 1000 +
+                " us, input to written p99 " +
+                model.getLatency(LatencyStage.INPUT_TO_WRITTEN).getPercentile(0.99) / 1000 + " us");
+        assertEquals(expectedMillis, replay.getDurationNanos() / 1e6, 100);
+        assertEquals(recording.size(), replay.getLateness().getCount());
+        assertTrue(model.getLatency(LatencyStage.INPUT_TO_WRITTEN).getCount() > 0);
+    }
+
+    @Test
+    public void start_replaysOnItsOwnThread_untilStopped() throws Exception {
+        InputReplay replay = new InputReplay(recording, model);
+        replay.start();
+        assertTrue(replay.isRunning());
+        Thread.sleep(200);
+        replay.stop();
+        assertFalse(replay.isRunning());
+        int replayed = replay.getReplayed();
+        assertTrue(replayed > 0 && replayed < recording.size());
+        Thread.sleep(50);
+        assertEquals(replayed, replay.getReplayed());
+    }
+
+    @Test
+    public void conditionedFlight_replaysTheSameStates_throughAConditioner() throws Exception {
+        File file = folder.newFile("conditioned.rec");
+        CapturingModel flight = new CapturingModel();
+        CapturingModel replayed = new CapturingModel();
+        CapturingModel unconditioned = new CapturingModel();
+        try {
+            flight.setBindings(BindingTable.parse(new StringReader(
+                    "aileron /controls/flight/aileron\nflaps /controls/flight/flaps\n")));
+            ViewModel viewModel = new ViewModel(flight);
+            viewModel.setConditioner(InputConditioner.forTouch());
+            InputRecorder recorder = new InputRecorder(file);
+            viewModel.setRecorder(recorder);
+            // the flight of the app: the touch joystick, flaps on the way, and a hold in the background
+            float[][] trace = InputTraces.normalFlight(2);
+            long start = System.nanoTime();
+            for (int i = 0; i < trace.length; i++) {
+                float[] sample = trace[i];
+                viewModel.setValues_from_joystick(sample[0], sample[1], sample[2], sample[3],
+                        start + i * 1000000000L / InputTraces.SAMPLE_RATE_HZ);
+                if (i == 30)
+                    assertTrue(viewModel.setInput("flaps", 0.5f));
+                if (i == 60)
+                    viewModel.holdValues(0, 0, 0, sample[3]);
+                if (i == 61)
+                    assertTrue(viewModel.setInput("flaps", 1));
+            }
+            recorder.close();
+        } finally {
+            flight.close();
+        }
+
+        InputRecording conditioned = InputRecording.open(file);
+        assertEquals(flight.states.size(), conditioned.size());
+        InputReplay replay = new InputReplay(conditioned, replayed);
+        replay.setSpeed(InputReplay.AS_FAST_AS_POSSIBLE);
+        replay.setConditioner(InputConditioner.forTouch());
+        replay.run();
+        // twice, the conditioner starts over every run
+        replayed.states.clear();
+        replay.run();
+        assertEquals(flight.states, replayed.states);
+
+        // the raw records alone aren't what the flight sent
+        InputReplay raw = new InputReplay(conditioned, unconditioned);
+        raw.setSpeed(InputReplay.AS_FAST_AS_POSSIBLE);
+        raw.run();
+        assertNotEquals(flight.states, unconditioned.states);
+        replayed.close();
+        unconditioned.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JoystickSamplerTest {
+    // values of the last delivery, and how many there were
+    private float px, py, pa, pb;
+    private long nanos;
+    private int deliveries;
+
+    private JoystickSampler newSampler(HistoricalSamples mode) {
+        JoystickSampler sampler = new JoystickSampler((px, py, pa, pb, eventNanos) -> {
+            this.px = px;
+            this.py = py;
+            this.pa = pa;
+            this.pb = pb;
+            this.nanos = eventNanos;
+            deliveries++;
+        });
+        // square of 110, knob radius 10: the knob center moves within [10, 100]
+        sampler.setGeometry(110, 10);
+        sampler.setHistoricalSamples(mode);
+        return sampler;
+    }
+
+    @Test
+    public void position_mapsToValues_withUpAsOne() {
+        JoystickSampler sampler = newSampler(HistoricalSamples.IGNORE);
+        sampler.begin();
+        sampler.sample(10, 100, 7);
+        assertTrue(sampler.end());
+        assertEquals(1, deliveries);
+        assertEquals(0, px, 1e-6);
+        assertEquals(0, py, 1e-6);
+        assertEquals(0.5f, pa, 1e-6);
+        assertEquals(0, pb, 1e-6);
+        assertEquals(7, nanos);
+
+        sampler.begin();
+        sampler.sample(100, 10, 8);
+        sampler.end();
+        assertEquals(1, px, 1e-6);
+        assertEquals(1, py, 1e-6);
+        assertEquals(100, sampler.getKnobX(), 1e-6);
+        assertEquals(10, sampler.getKnobY(), 1e-6);
+
+        sampler.setBars(0.25f, 0.75f, 9);
+        assertEquals(3, deliveries);
+        assertEquals(0.25f, pa, 1e-6);
+        assertEquals(0.75f, pb, 1e-6);
+        assertEquals(1, px, 1e-6);
+    }
+
+    @Test
+    public void unreachablePosition_isIgnored() {
+        JoystickSampler sampler = newSampler(HistoricalSamples.IGNORE);
+        sampler.begin();
+        sampler.sample(5, 50, 1);
+        assertFalse(sampler.end());
+        assertEquals(0, deliveries);
+    }
+
+    @Test
+    public void forwardAll_deliversEverySample_withItsTime() {
+        JoystickSampler sampler = newSampler(HistoricalSamples.FORWARD_ALL);
+        sampler.begin();
+        sampler.sample(10, 55, 1);
+        sampler.sample(55, 55, 2);
+        sampler.sample(100, 55, 3);
+        assertTrue(sampler.end());
+        assertEquals(3, deliveries);
+        assertEquals(1, px, 1e-6);
+        assertEquals(3, nanos);
+    }
+
+    @Test
+    public void filter_deliversOneSmoothedValue_perEvent() {
+        JoystickSampler sampler = newSampler(HistoricalSamples.FILTER);
+        sampler.begin();
+        sampler.sample(10, 55, 1);
+        sampler.end();
+        assertEquals(0, px, 1e-6);
+
+        sampler.begin();
+        sampler.sample(100, 55, 2);
+        sampler.sample(100, 55, 3);
+        sampler.end();
+        assertEquals(2, deliveries);
+        // 10 -> 55 -> 77.5 with smoothing 0.5
+        assertEquals((77.5f - 10) / 90, px, 1e-6);
+        assertEquals(3, nanos);
+
+        // a new touch starts at the finger
+        sampler.release();
+        sampler.begin();
+        sampler.sample(10, 55, 4);
+        sampler.end();
+        assertEquals(0, px, 1e-6);
+    }
+
+    @Test
+    public void moveEvents_allocateNothing() {
+        for (HistoricalSamples mode : HistoricalSamples.values()) {
+            final JoystickSampler sampler = newSampler(mode);
+            long allocated = Allocations.bestOf(5, () -> {
+                for (int i = 0; i < 100000; i++) {
+                    sampler.begin();
+                    // 4 historical samples and the current one
+                    for (int j = 0; j < 5; j++)
+                        sampler.sample(10 + (i + j) % 90, 100 - (i + j) % 90, i);
+                    sampler.end();
+                }
+            });
+            assertTrue(mode + " allocated " + allocated + " bytes", allocated <= 0);
+        }
+    }
+}
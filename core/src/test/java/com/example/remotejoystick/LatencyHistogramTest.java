@@ -0,0 +1,43 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1..1000 microseconds
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        long p50 = histogram.getPercentile(0.5);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue("p50 " + p50, p50 >= 500000 && p50 <= 500000 * 1.13);
+        assertTrue("p99 " + p99, p99 >= 990000 && p99 <= 1000000);
+    }
+
+    @Test
+    public void buckets_coverEveryValue_inOrder() {
+        long prevUpper = -1;
+        for (long v : new long[]{0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(v + " <= " + upper, v <= upper);
+            assertTrue(upper >= prevUpper);
+            prevUpper = upper;
+        }
+    }
+
+    @Test
+    public void record_allocatesNothing() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 100000; i++)
+                histogram.record(i * 37L);
+        });
+        assertTrue("allocated " + allocated + " bytes", allocated <= 0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class LatencyProbeTest {
+    private static final long MS = 1000000;
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String text(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void probe_isEchoed_andMeasured() {
+        LatencyProbe probe = new LatencyProbe();
+        long now = System.nanoTime();
+        probe.connected(now);
+        assertTrue(probe.isDue(now));
+        assertEquals("set /sim/remote-joystick/probe 0\r\nget /sim/time/elapsed-sec\r\n", text(probe.encode(now)));
+        // one probe at a time
+        assertFalse(probe.isDue(now + 1500 * MS));
+
+        // an old echo is not of this probe, then the echo and the time of the simulator (in one line split in two).
+        // it is the warm-up of the connection: answered, but not measured
+        probe.handle(bytes("/sim/remote-joystick/probe=7\r\n/sim/remote-joystick/pro"));
+        assertEquals(0, probe.getProbesAnswered());
+        probe.handle(bytes("be=0\r\n12.5\r\n"));
+        assertEquals(1, probe.getProbesAnswered());
+        assertEquals(1, probe.getProbesWarmUp());
+        assertEquals(0, probe.getRoundTrip().getCount());
+        assertEquals(0, probe.getSmoothedRoundTripNanos());
+        assertFalse(probe.hasClockOffset());
+
+        // the next one is measured
+        long sent = System.nanoTime();
+        assertEquals("set /sim/remote-joystick/probe 1\r\nget /sim/time/elapsed-sec\r\n", text(probe.encode(sent)));
+        probe.handle(bytes("/sim/remote-joystick/probe=1\r\n12.75\r\n"));
+        assertEquals(2, probe.getProbesAnswered());
+        long rtt = probe.getSmoothedRoundTripNanos();
+        assertTrue(rtt > 0 && rtt < 1000 * MS);
+        assertEquals(1, probe.getRoundTrip().getCount());
+        assertEquals(probe.getRoundTrip().getPercentile(0.5) / 2, probe.getOneWayNanos());
+        assertTrue(probe.hasClockOffset());
+        assertEquals(12750 * MS - (sent + rtt / 2), probe.getClockOffsetNanos());
+
+        // the next one after the interval, and it is lost if no echo comes in the timeout
+        assertFalse(probe.isDue(sent + 500 * MS));
+        assertTrue(probe.isDue(sent + 1000 * MS));
+        assertEquals("set /sim/remote-joystick/probe 2\r\nget /sim/time/elapsed-sec\r\n",
+                text(probe.encode(sent + 1000 * MS)));
+        assertEquals(2000 * MS, probe.nanosUntilDue(sent + 1000 * MS));
+        assertTrue(probe.isDue(sent + 3000 * MS));
+        assertEquals(1, probe.getProbesLost());
+        probe.skip(sent + 3000 * MS);
+        assertEquals(1, probe.getProbesSkipped());
+        assertFalse(probe.isDue(sent + 3500 * MS));
+    }
+
+    @Test
+    public void slowFirstProbe_ofAConnection_doesNotInflateTheOneWayEstimate() {
+        LatencyProbe probe = new LatencyProbe();
+        probe.connected(0);
+        for (int i = 0; i < 6; i++) {
+            long now = System.nanoTime();
+            probe.isDue(now + 2000 * MS);
+            // the first round trip waited 300 ms (the connection warming up), the rest about 10 ms
+            probe.encode(now - (i == 0 ? 300 : 10) * MS);
+            probe.handle(bytes("/sim/remote-joystick/probe=" + i + "\r\n"));
+        }
+        assertEquals(6, probe.getProbesAnswered());
+        assertEquals(5, probe.getRoundTrip().getCount());
+        assertTrue(probe.getRoundTrip().getMax() < 100 * MS);
+        long oneWay = probe.getOneWayNanos();
+        assertTrue("one way " + oneWay, oneWay >= 5 * MS && oneWay < 10 * MS);
+        // half of the round trip, never more
+        assertTrue(probe.getSmoothedRoundTripNanos() < 20 * MS);
+        assertTrue(probe.getJitterNanos() < 5 * MS);
+    }
+
+    @Test
+    public void jitter_isTheDifferenceOfConsecutiveRoundTrips() {
+        LatencyProbe probe = new LatencyProbe();
+        probe.connected(0);
+        for (int i = 0; i < 3; i++) {
+            long now = System.nanoTime();
+            probe.isDue(now + 2000 * MS);
+            // sent "earlier" by i ms, so round trips grow by about 1 ms each
+            probe.encode(now - i * MS);
+            probe.handle(bytes("/sim/remote-joystick/probe=" + i + "\r\n"));
+        }
+        // (the first is the warm-up of the connection)
+        assertEquals(3, probe.getProbesAnswered());
+        assertEquals(1, probe.getJitter().getCount());
+        assertTrue(probe.getJitter().getMax() < 5 * MS);
+        assertFalse(probe.hasClockOffset());
+    }
+
+    @Test
+    public void model_measuresRoundTrip_andClockOffset_againstServer() throws Exception {
+        FGModel model = new FGModel();
+        try (FakePropsServer server = new FakePropsServer()) {
+            // flight gear handles telnet once per frame, as if it ran at ~100 fps
+            server.setCommandDelayMillis(10);
+            LatencyProbe probe = new LatencyProbe();
+            probe.setInterval(50);
+            model.setLatencyProbe(probe);
+            model.connect("127.0.0.1", server.getPort());
+            long deadline = System.currentTimeMillis() + 5000;
+            while (probe.getProbesAnswered() < 10 && System.currentTimeMillis() < deadline)
+                Thread.sleep(5);
+
+            System.out.println("LatencyProbe against a 10 ms server: round trip p50 " +
+                    probe.getRoundTrip().getPercentile(0.5) / 1000 + " us, one way " + probe.getOneWayNanos() / 1000 +
+                    " us, jitter " + probe.getJitterNanos() / 1000 + " us, " + probe.getProbesSent() + " sent, " +
+                    probe.getProbesLost() + " lost");
+            assertTrue(probe.getProbesAnswered() >= 10);
+            assertTrue(probe.getRoundTrip().getPercentile(0.5) >= 10 * MS);
+            assertTrue(probe.getSmoothedRoundTripNanos() < 200 * MS);
+            // half of the round trip, whatever waited in a queue
+            assertEquals(probe.getRoundTrip().getPercentile(0.5) / 2, probe.getOneWayNanos());
+            // the server clock started at its start time (same machine, so the offset is known exactly)
+            assertTrue(probe.hasClockOffset());
+            assertEquals(-server.getStartNanos(), probe.getClockOffsetNanos(), 30 * MS);
+            // once a 50 ms interval at most (plus the first one)
+            assertTrue(server.getSetCommands() <= probe.getProbesSent());
+        } finally {
+            model.close();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.remotejoystick;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+// load tests of FGModel against the in-process FakePropsServer
+public class LoadDriverTest {
+    private FakePropsServer server;
+    private FGModel model;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakePropsServer();
+        model = new FGModel();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        model.close();
+        server.close();
+    }
+
+    @Test
+    public void conflating_sustainsRate_andDeliversLastState() throws Exception {
+        model.setMaxSendRate(100);
+        model.setConflatingSend(true);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        float[][] trace = InputTraces.normalFlight(10);
+        LoadDriver.Report report = driver.run(trace, 500, 1000);
+        System.out.println("LoadDriver conflating 500 Hz -> 100 Hz: " + report);
+
+        assertEquals(500, report.updatesPushed, 5);
+        assertTrue(report.framesSent > 50 && report.framesSent <= 110);
+        assertTrue(report.serverSetCommands > 0);
+        // the last pushed sample got to the server (up to the deadband / quantization)
+        float[] last = trace[(int) ((report.updatesPushed - 1) % trace.length)];
+        assertEquals((last[0] - 0.5f) * 2, server.getFloat("/controls/flight/aileron"), 0.002f);
+    }
+
+    @Test
+    public void rateController_dropsUpdates_aboveSendRate() throws Exception {
+        model.setMaxSendRate(100);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        LoadDriver.Report report = driver.run(InputTraces.normalFlight(10), 2000, 1000);
+        System.out.println("LoadDriver per-event 2000 Hz -> 100 Hz: " + report);
+        assertTrue(report.updatesDropped > 0);
+        // never above the rate, and the socket keeps up, so the rate stays at the max
+        // (the old 10 ms / 2 limiter let only a few frames through a burst like this)
+        assertTrue(report.framesSent + report.framesUnchanged <= 101);
+        assertTrue(report.framesSent + report.framesUnchanged > 70);
+        assertEquals(100, model.getSendRate());
+        assertEquals(report.updatesPushed, report.framesSent + report.framesUnchanged + report.updatesDropped);
+    }
+
+    @Test
+    public void reset_isDetectedAsDisconnect_andReconnected() throws Exception {
+        model.setConflatingSend(true);
+        model.setReconnectBackoff(50, 200);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        LoadDriver.Report report = driver.run(InputTraces.normalFlight(10), 200, 1500,
+                server::resetConnections, 500);
+        System.out.println("LoadDriver reset: " + report);
+        assertTrue(report.disconnectDetectionMillis >= 0 && report.disconnectDetectionMillis < 500);
+        // the model connected again by itself, and kept sending
+        assertTrue(server.awaitConnections(2, 2000));
+        assertEquals(1, model.getReconnects());
+        assertEquals(ConnectionState.CONNECTED, model.getConnectionState());
+    }
+}
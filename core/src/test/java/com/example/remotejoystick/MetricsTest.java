@@ -0,0 +1,141 @@
+package com.example.remotejoystick;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stripedCounter_isExact_acrossThreads() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < 100000; n++)
+                    counter.increment();
+                counter.add(5);
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(8 * 100005, counter.get());
+        counter.reset();
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void registry_snapshotsCountersAndGauges_inOrder() {
+        Metrics metrics = new Metrics();
+        StripedCounter frames = metrics.counter("frames");
+        final AtomicLong depth = new AtomicLong(3);
+        metrics.gauge("depth", depth::get);
+        assertSame(frames, metrics.counter("frames"));
+        frames.add(10);
+
+        MetricsSnapshot first = metrics.snapshot();
+        assertEquals(Arrays.asList("frames", "depth"), first.getNames());
+        assertEquals(10, first.get("frames", -1));
+        assertEquals(3, first.get("depth", -1));
+        assertEquals(-1, first.get("missing", -1));
+
+        // a snapshot doesn't change afterwards, and a gauge can be replaced
+        frames.increment();
+        metrics.gauge("depth", () -> 7);
+        metrics.counter("late");
+        MetricsSnapshot second = metrics.snapshot();
+        assertEquals(10, first.get("frames", -1));
+        assertEquals(2, first.size());
+        assertEquals(1, second.delta(first, "frames"));
+        assertEquals(7, second.get("depth", -1));
+        assertEquals(3, second.size());
+        assertTrue(second.toString().endsWith(" frames=11 depth=7 late=0"));
+        assertTrue(second.nanos >= first.nanos);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aCounter_isNotAGauge() {
+        Metrics metrics = new Metrics();
+        metrics.counter("frames");
+        metrics.gauge("frames", () -> 0);
+    }
+
+    @Test
+    public void increment_allocatesNothing() {
+        final StripedCounter counter = new Metrics().counter("frames");
+        assertEquals(0, Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 10000; i++)
+                counter.increment();
+        }));
+    }
+
+    @Test
+    public void model_reportsThePipeline() throws Exception {
+        FGModel model = new FGModel();
+        try (FakePropsServer server = new FakePropsServer()) {
+            ViewModel viewModel = new ViewModel(model);
+            model.connect("127.0.0.1", server.getPort());
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!model.isConnected() && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            viewModel.setValues(0.5f, 0, 0, 0);
+            assertTrue(server.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+            // (the server may read the frame before the sender thread counted it)
+            deadline = System.currentTimeMillis() + 2000;
+            while (model.getFramesSent() == 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+
+            MetricsSnapshot snapshot = model.getMetrics().snapshot();
+            assertEquals(1, snapshot.get("viewModel.valuesReceived", -1));
+            assertEquals(1, snapshot.get("model.updatesReceived", -1));
+            assertEquals(model.getFramesSent(), snapshot.get("model.framesSent", -1));
+            assertEquals(model.getBytesSent(), snapshot.get("model.bytesSent", -1));
+            assertTrue(snapshot.get("model.bytesSent", -1) > 0);
+            assertEquals(ConnectionState.CONNECTED.ordinal(), snapshot.get("connection.state", -1));
+            assertEquals(0, snapshot.get("model.queueDepth", -1));
+            assertEquals(0, snapshot.get("model.errors", -1));
+        } finally {
+            model.close();
+        }
+    }
+
+    @Test
+    public void exporter_appendsSnapshots_andALastOneOnStop() throws Exception {
+        Metrics metrics = new Metrics();
+        StripedCounter frames = metrics.counter("frames");
+        File file = new File(folder.getRoot(), "metrics.log");
+        MetricsExporter exporter = new MetricsExporter(metrics, 20, MetricsExporter.toFile(file));
+        exporter.start();
+        long deadline = System.currentTimeMillis() + 2000;
+        while (exporter.getExports() < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        frames.add(42);
+        exporter.stop();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertTrue(lines.size() >= 3);
+        assertEquals(exporter.getExports(), lines.size());
+        assertTrue(lines.get(0).endsWith(" frames=0"));
+        assertTrue(lines.get(lines.size() - 1).endsWith(" frames=42"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RecentEndpointsTest {
+    private static Endpoint endpoint(String ip, int port) {
+        return new Endpoint(ip, port, TransportType.TELNET_TCP);
+    }
+
+    @Test
+    public void add_putsTheLastGoodOneFirst_andDropsTheOldest() {
+        RecentEndpoints recent = new RecentEndpoints(3);
+        assertNull(recent.getLast());
+        assertTrue(recent.add(endpoint("10.0.0.1", 5400)));
+        assertTrue(recent.add(endpoint("10.0.0.2", 5400)));
+        assertTrue(recent.add(endpoint("10.0.0.3", 5400)));
+        // known: moved to the front, not added twice
+        assertTrue(recent.add(endpoint("10.0.0.1", 5400)));
+        assertEquals(3, recent.size());
+        assertEquals(endpoint("10.0.0.1", 5400), recent.getLast());
+        assertFalse(recent.add(endpoint("10.0.0.1", 5400)));
+
+        recent.add(endpoint("10.0.0.4", 5400));
+        assertEquals(3, recent.size());
+        assertEquals(endpoint("10.0.0.4", 5400), recent.get(0));
+        assertEquals(endpoint("10.0.0.1", 5400), recent.get(1));
+        assertEquals(endpoint("10.0.0.3", 5400), recent.get(2));
+    }
+
+    @Test
+    public void encode_decode_roundTrip() {
+        RecentEndpoints recent = new RecentEndpoints();
+        recent.add(new Endpoint("192.168.1.17", 5500, TransportType.GENERIC_UDP_BINARY));
+        recent.add(endpoint("192.168.1.17", 5400));
+        recent.add(endpoint("127.0.0.1", 5401));
+        RecentEndpoints decoded = RecentEndpoints.decode(recent.encode());
+        assertEquals(3, decoded.size());
+        for (int i = 0; i < recent.size(); i++)
+            assertEquals(recent.get(i), decoded.get(i));
+        assertEquals(Arrays.asList("127.0.0.1", "192.168.1.17"), decoded.getIps());
+    }
+
+    @Test
+    public void decode_skipsBrokenLines() {
+        String text = "1.2.3.4 5400 TELNET_TCP\n" +
+                "garbage\n" +
+                "1.2.3 5400 TELNET_TCP\n" +
+                "1.2.3.5 0 TELNET_TCP\n" +
+                "1.2.3.6 5400 CARRIER_PIGEON\n" +
+                "\n" +
+                "1.2.3.4 5400 TELNET_TCP\n" +
+                "1.2.3.7 5401 GENERIC_UDP_CSV";
+        RecentEndpoints decoded = RecentEndpoints.decode(text);
+        assertEquals(2, decoded.size());
+        assertEquals(endpoint("1.2.3.4", 5400), decoded.getLast());
+        assertEquals(new Endpoint("1.2.3.7", 5401, TransportType.GENERIC_UDP_CSV), decoded.get(1));
+        assertEquals(0, RecentEndpoints.decode(null).size());
+        assertEquals(0, RecentEndpoints.decode("").size());
+    }
+}
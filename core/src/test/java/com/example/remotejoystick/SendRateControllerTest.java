@@ -0,0 +1,137 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SendRateControllerTest {
+    private static final long MS = 1000000;
+
+    @Test
+    public void startsAtMax_andHalvesOnStall_downToMin() {
+        SendRateController rate = new SendRateController(10, 100);
+        assertEquals(100, rate.getRateHz());
+
+        long now = 0;
+        rate.onWrite(10000, 0, true, now);
+        assertEquals(50, rate.getRateHz());
+        // more congestion within the same interval doesn't count again
+        rate.onWrite(10000, 0, true, now + MS);
+        assertEquals(50, rate.getRateHz());
+        rate.onWrite(10000, 100, false, now += 100 * MS);
+        assertEquals(25, rate.getRateHz());
+        // one slow write is not congestion yet, two in a row are
+        rate.onWrite(5 * MS, 0, false, now += 100 * MS);
+        assertEquals(25, rate.getRateHz());
+        rate.onWrite(5 * MS, 0, false, now += 100 * MS);
+        assertEquals(13, rate.getRateHz(), 1);
+        rate.onWrite(10000, 0, true, now += 100 * MS);
+        rate.onWrite(10000, 0, true, now += 100 * MS);
+        assertEquals(10, rate.getRateHz());
+        assertEquals(4, rate.getDecreases());
+    }
+
+    @Test
+    public void healthyWrites_raiseRate_upToMax() {
+        SendRateController rate = new SendRateController(10, 100);
+        rate.onWrite(10000, 0, true, 0);
+        assertEquals(50, rate.getRateHz());
+
+        for (int i = 1; i <= 24; i++)
+            rate.onWrite(10000, 0, false, i * MS);
+        assertEquals(98, rate.getRateHz());
+        for (int i = 0; i < 10; i++)
+            rate.onWrite(10000, 0, false, 100 * MS);
+        assertEquals(100, rate.getRateHz());
+        assertEquals(25, rate.getIncreases());
+    }
+
+    @Test
+    public void setRange_keepsRateWithinRange() {
+        SendRateController rate = new SendRateController(10, 100);
+        rate.setRange(10, 40);
+        assertEquals(40, rate.getRateHz());
+        rate.setRange(60, 200);
+        assertEquals(60, rate.getRateHz());
+        try {
+            rate.setRange(20, 10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void tryAcquire_admitsOneFramePerInterval_withoutBursts() {
+        SendRateController rate = new SendRateController(10, 100);
+        long now = 1000 * MS;
+        assertTrue(rate.tryAcquire(now));
+        assertFalse(rate.tryAcquire(now + 5 * MS));
+        assertTrue(rate.tryAcquire(now + 10 * MS));
+        // a late frame keeps the schedule
+        assertTrue(rate.tryAcquire(now + 28 * MS));
+        assertTrue(rate.tryAcquire(now + 30 * MS));
+        // after a pause of a second, only one frame is admitted right away
+        now += 1030 * MS;
+        assertTrue(rate.tryAcquire(now));
+        assertFalse(rate.tryAcquire(now + 5 * MS));
+        assertTrue(rate.tryAcquire(now + 10 * MS));
+    }
+
+    @Test
+    public void tryAcquire_holdsRate_forManyThreads() throws Exception {
+        final SendRateController rate = new SendRateController(10, 200);
+        final AtomicLong admitted = new AtomicLong();
+        final long durationNanos = 500 * MS;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long end = System.nanoTime() + durationNanos;
+                long now;
+                while ((now = System.nanoTime()) < end)
+                    if (rate.tryAcquire(now))
+                        admitted.incrementAndGet();
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        // 200 Hz for half a second (+ the first frame)
+        assertEquals(100, admitted.get(), 5);
+    }
+
+    @Test
+    public void perEventModel_takesNoSendSlot_whileNotConnected() throws Exception {
+        FGModel model = new FGModel();
+        try (FakePropsServer server = new FakePropsServer()) {
+            // one frame per second at most
+            model.setMinSendRate(1);
+            model.setMaxSendRate(1);
+            // the joystick moves before the connection is up: nothing is sent, and no slot is spent on it
+            for (int i = 0; i < 100; i++)
+                model.updatePlaneData(i / 100f, 0, 0, 0);
+            model.connect("127.0.0.1", server.getPort());
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!model.isConnected() && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertTrue(model.isConnected());
+
+            // so the first update of the connection goes out right away
+            model.updatePlaneData(0.5f, 0, 0, 0);
+            assertEquals(0, model.getUpdatesDropped());
+            assertTrue(server.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+        } finally {
+            model.close();
+        }
+    }
+}
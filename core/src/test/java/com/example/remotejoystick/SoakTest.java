@@ -0,0 +1,68 @@
+package com.example.remotejoystick;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+// soak test: a long flight against a FakePropsServer that keeps answering every command,
+// at many times the real frame rate, so a long run (see below) is hours of flight at 50 frames per second.
+// the throughput of every second should stay as it was at the start, and every reply should be drained.
+// run it longer with: ./gradlew :core:test --tests '*SoakTest' -Dsoak.seconds=600
+public class SoakTest {
+    private static final int RATE_HZ = 1000;
+
+    private FakePropsServer server;
+    private FGModel model;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakePropsServer();
+        // the worst case: "data" isn't supported, so there is a prompt after every command
+        server.setDataModeSupported(false);
+        model = new FGModel();
+        model.setMaxSendRate(RATE_HZ);
+        model.setConflatingSend(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        model.close();
+        server.close();
+    }
+
+    @Test
+    public void throughputStaysSteady_andRepliesAreDrained() throws Exception {
+        int seconds = Integer.getInteger("soak.seconds", 3);
+        LoadDriver driver = new LoadDriver(server, model);
+        assertTrue(driver.connect(2000));
+
+        float[][] trace = InputTraces.normalFlight(60);
+        // "set" commands per second of every second of the run
+        double[] windows = new double[seconds];
+        for (int i = 0; i < seconds; i++) {
+            windows[i] = driver.run(trace, 2 * RATE_HZ, 1000).commandsPerSecond;
+            assertTrue("still connected after " + i + " s", model.isConnected());
+        }
+        double[] sorted = windows.clone();
+        Arrays.sort(sorted);
+        double median = sorted[seconds / 2];
+        System.out.println("Soak: " + seconds + " s, " + model.getFramesSent() + " frames (" +
+                model.getFramesSent() / 50 + " s of flight at 50 Hz), commands/s: median " + Math.round(median) +
+                ", min " + Math.round(sorted[0]) + ", " + model.getBytesReceived() + " bytes received");
+
+        assertTrue(median > 0);
+        // no second fell far below the others (as it would if replies piled up and the server stalled)
+        assertTrue(sorted[0] > median / 2);
+        assertEquals(0, model.getReconnects());
+        // every byte the server sent was read
+        long deadline = System.currentTimeMillis() + 2000;
+        while (model.getBytesReceived() < server.getBytesSent() && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        assertTrue(server.getBytesSent() > 0);
+        assertEquals(server.getBytesSent(), model.getBytesReceived());
+    }
+}
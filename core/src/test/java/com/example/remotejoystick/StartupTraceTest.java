@@ -0,0 +1,98 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+// cold start of the app against a local stand-in of flight gear: launch (new model and session, the saved
+// endpoints read) -> pre-connect -> first touch -> first control frame on the wire
+public class StartupTraceTest {
+    private static String millis(long fromNanos, long toNanos) {
+        return toNanos == 0 ? "-" : String.format(Locale.US, "%.1f ms", (toNanos - fromNanos) / 1e6);
+    }
+
+    @Test
+    public void coldStart_preconnects_andTheFirstTouchGoesOutRightAway() throws Exception {
+        try (FakePropsServer server = new FakePropsServer()) {
+            RecentEndpoints saved = new RecentEndpoints();
+            saved.add(new Endpoint("127.0.0.1", server.getPort(), TransportType.TELNET_TCP));
+            String preferences = saved.encode();
+
+            final long[] connectedNanos = new long[1];
+            long launch = System.nanoTime();
+            FGModel model = new FGModel();
+            model.setConflatingSend(true);
+            FlightSession session = new FlightSession(model);
+            try {
+                session.getViewModel().onStateChange = (sender, args) -> {
+                    if (args.state == ConnectionState.CONNECTED && connectedNanos[0] == 0)
+                        connectedNanos[0] = System.nanoTime();
+                };
+                session.preconnect(RecentEndpoints.decode(preferences).getLast());
+                long ready = System.nanoTime();
+                // the first touch, likely while the socket is still connecting (so it found no socket to go to)
+                session.getViewModel().setValues(0.25f, 0, 0, 0.5f, System.nanoTime());
+                long touch = System.nanoTime();
+
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.2500", 2000));
+                long firstSet = server.getFirstSetNanos();
+                System.out.println("StartupTrace: session ready " + millis(launch, ready) +
+                        ", first touch " + millis(launch, touch) +
+                        ", connected " + millis(launch, connectedNanos[0]) +
+                        ", first byte at the server " + millis(launch, server.getFirstByteNanos()) +
+                        ", first frame written " + millis(launch, model.getFirstFrameNanos()) +
+                        ", first set at the server " + millis(launch, firstSet));
+
+                assertEquals(1, server.getConnectionsAccepted());
+                assertTrue("launch to first set " + millis(launch, firstSet), firstSet - launch < 1000000000L);
+                // the state that found no socket went out as the connection came up, not at the next idle keyframe
+                assertTrue("connected to first set " + millis(connectedNanos[0], firstSet),
+                        firstSet - connectedNanos[0] < 500000000L);
+                assertTrue(model.getMetrics().snapshot().get("session.timeToFirstFrameMicros", -1) > 0);
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    @Test
+    public void preconnect_keepsAConnectionToItsEndpoint_butTheConnectOfTheUserReconnects() throws Exception {
+        try (FakePropsServer server = new FakePropsServer(); FakePropsServer other = new FakePropsServer()) {
+            FGModel model = new FGModel();
+            model.setConflatingSend(true);
+            FlightSession session = new FlightSession(model);
+            try {
+                ViewModel viewModel = session.getViewModel();
+                Endpoint endpoint = new Endpoint("127.0.0.1", server.getPort(), TransportType.TELNET_TCP);
+                session.preconnect(endpoint);
+                assertTrue(server.awaitConnections(1, 2000));
+                viewModel.setValues(0.25f, 0, 0, 0);
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.2500", 2000));
+                // a pre-connect again (e.g. of a new session of the model) keeps the socket
+                session.preconnect(endpoint);
+                Thread.sleep(100);
+                assertEquals(1, server.getConnectionsAccepted());
+
+                // the boxes were filled with the same endpoint, and the user pressed connect: a new socket
+                // (e.g. to reset a connection that went half-dead)
+                viewModel.setIP("127.0.0.1");
+                viewModel.setPort(Integer.toString(server.getPort()));
+                viewModel.connect();
+                assertTrue(server.awaitConnections(2, 2000));
+                viewModel.setValues(0.5f, 0, 0, 0);
+                assertTrue(server.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+                assertEquals(endpoint, viewModel.getEndpoint());
+
+                // another endpoint replaces the connection
+                viewModel.setPort(Integer.toString(other.getPort()));
+                viewModel.connect();
+                assertTrue(other.awaitConnections(1, 2000));
+                assertTrue(other.awaitValue("/controls/flight/aileron", "0.5000", 2000));
+            } finally {
+                session.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.remotejoystick;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class TelemetryTest {
+    private static final String AIRSPEED = "/velocities/airspeed-kt";
+    private static final String ALTITUDE = "/position/altitude-ft";
+    private static final String WOW = "/gear/gear/wow";
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // a single line "<path>=<value>" of the first path, NaN if it was ignored
+    private static double parse(String value) {
+        Telemetry telemetry = new Telemetry(AIRSPEED);
+        telemetry.handle(bytes(AIRSPEED + "=" + value + "\r\n"));
+        return telemetry.getUpdates() == 1 ? telemetry.get(0) : Double.NaN;
+    }
+
+    @Test
+    public void linesSplitBetweenReads_areParsed() {
+        String pushed = AIRSPEED + "=123.5\r\n" + "/sim/unknown=5\r\n" + ALTITUDE + "=-12e2\r\n" + WOW + "=true\r\n";
+        for (int chunk = 1; chunk <= pushed.length(); chunk++) {
+            Telemetry telemetry = new Telemetry(AIRSPEED, ALTITUDE, WOW);
+            for (int i = 0; i < pushed.length(); i += chunk)
+                telemetry.handle(bytes(pushed.substring(i, Math.min(pushed.length(), i + chunk))));
+            assertEquals(123.5, telemetry.get(telemetry.getIndex(AIRSPEED)), 0);
+            assertEquals(-1200, telemetry.get(telemetry.getIndex(ALTITUDE)), 0);
+            assertEquals(1, telemetry.get(telemetry.getIndex(WOW)), 0);
+            assertEquals(3, telemetry.getUpdates());
+            assertEquals(1, telemetry.getLinesIgnored());
+            assertTrue(telemetry.getUpdatedNanos(0) != 0);
+        }
+    }
+
+    @Test
+    public void values_areParsedAsDoubleParsesThem() {
+        String[] numbers = {"0", "-0.25", "+3", "1.5E3", "2.5e-3", "0.1", "123456.789012", "-98765.4321", ".5", "5.",
+                "12345678901234567890", "1e300", "4.9e-320"};
+        for (String number : numbers)
+            assertEquals(number, Double.parseDouble(number), parse(number), Math.abs(Double.parseDouble(number)) * 1e-15);
+        assertEquals(0, parse("false"), 0);
+        String[] invalid = {"", "-", "abc", "1e", "1.2.3", "12x", "nan", "True"};
+        for (String value : invalid)
+            assertTrue(value, Double.isNaN(parse(value)));
+    }
+
+    @Test
+    public void tooLongLine_isSkipped_andTheNextOneParsed() {
+        Telemetry telemetry = new Telemetry(AIRSPEED);
+        StringBuilder longLine = new StringBuilder(AIRSPEED + "=1");
+        for (int i = 0; i < 1000; i++)
+            longLine.append('0');
+        telemetry.handle(bytes(longLine + "\r\n" + AIRSPEED + "=42\r\n"));
+        assertEquals(42, telemetry.get(0), 0);
+        assertEquals(1, telemetry.getUpdates());
+    }
+
+    @Test
+    public void handle_allocatesNothing() {
+        final Telemetry telemetry = new Telemetry(AIRSPEED, ALTITUDE, WOW);
+        StringBuilder pushed = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            pushed.append(AIRSPEED).append('=').append(100 + i * 0.25).append("\r\n")
+                    .append(ALTITUDE).append('=').append(5000 - i).append("\r\n");
+        byte[] text = pushed.toString().getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer received = ByteBuffer.allocateDirect(text.length);
+        received.put(text).flip();
+        long allocated = Allocations.bestOf(5, () -> {
+            for (int i = 0; i < 100; i++) {
+                received.rewind();
+                telemetry.handle(received);
+            }
+        });
+        assertEquals(0, allocated);
+        assertEquals(124.75, telemetry.get(0), 0);
+    }
+
+    @Test
+    public void model_subscribes_andMirrorsPushedValues() throws Exception {
+        FGModel model = new FGModel();
+        try (FakePropsServer server = new FakePropsServer()) {
+            model.setReconnectBackoff(10, 20);
+            Telemetry telemetry = new Telemetry(AIRSPEED, "/controls/flight/aileron");
+            model.setTelemetry(telemetry);
+            model.connect("127.0.0.1", server.getPort());
+            assertTrue(server.awaitSubscribed(AIRSPEED, 2000));
+
+            server.put(AIRSPEED, "150.25");
+            assertTrue(awaitValue(telemetry, 0, 150.25));
+            // the echo of a control the model sent
+            model.updatePlaneData(0.5f, 0, 0, 0);
+            assertTrue(awaitValue(telemetry, 1, 0.5));
+
+            // a new connection subscribes again
+            server.resetConnections();
+            assertTrue(server.awaitConnections(2, 2000));
+            assertTrue(server.awaitSubscribed(AIRSPEED, 2000));
+            server.put(AIRSPEED, "151");
+            assertTrue(awaitValue(telemetry, 0, 151));
+
+            // another telemetry replaces the subscriptions of the open connection
+            Telemetry altitude = new Telemetry(ALTITUDE);
+            model.setTelemetry(altitude);
+            assertTrue(server.awaitSubscribed(ALTITUDE, 2000));
+            long deadline = System.currentTimeMillis() + 2000;
+            while (server.isSubscribed(AIRSPEED) && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            assertFalse(server.isSubscribed(AIRSPEED));
+            server.put(ALTITUDE, "3500");
+            assertTrue(awaitValue(altitude, 0, 3500));
+        } finally {
+            model.close();
+        }
+    }
+
+    private static boolean awaitValue(Telemetry telemetry, int index, double value) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (telemetry.get(index) != value) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+}
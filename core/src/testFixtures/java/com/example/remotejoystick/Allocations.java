@@ -0,0 +1,24 @@
+package com.example.remotejoystick;
+
+import java.lang.management.ManagementFactory;
+
+// measures the bytes allocated by the current thread (jvm tests only, uses com.sun.management)
+public class Allocations {
+    // bytes allocated by work.run() on this thread, the least of a few rounds
+    // (so a background jit compilation in the middle of one round won't count)
+    public static long bestOf(int rounds, Runnable work) {
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        // cost of the measurement itself
+        long before = mx.getThreadAllocatedBytes(thread);
+        long overhead = mx.getThreadAllocatedBytes(thread) - before;
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            before = mx.getThreadAllocatedBytes(thread);
+            work.run();
+            best = Math.min(best, mx.getThreadAllocatedBytes(thread) - before - overhead);
+        }
+        return best;
+    }
+}
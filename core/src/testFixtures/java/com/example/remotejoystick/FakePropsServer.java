@@ -0,0 +1,326 @@
+package com.example.remotejoystick;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// in-process stand-in of the flight gear telnet props server (fgfs --telnet=<port>), for tests and load tests.
+// it listens on 127.0.0.1, keeps a property map and understands the commands the app uses:
+//   set <path> <value>   get <path>   data   prompt   quit   subscribe <path>   unsubscribe <path>
+// in prompt mode (the default, as flight gear) every command is answered with the prompt "/> ",
+// and "get" with "<path> = '<value>' (string)", in data mode there is no prompt and "get" answers only "<value>".
+// a connection that subscribed to a property gets "<path>=<value>" whenever it changes (by "set" or put()).
+// /sim/time/elapsed-sec is the seconds since the server started (as the clock of the simulator), unless put().
+// faults can be injected: latency per command, slow reads, resets (RST) and half-open connections
+// (the server stops reading and answering, but the socket stays open).
+public class FakePropsServer implements AutoCloseable {
+    private static final byte[] PROMPT = "/> ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final String ELAPSED_SEC = "/sim/time/elapsed-sec";
+
+    private final ServerSocket server;
+    private final long startNanos = System.nanoTime();
+    private final Thread acceptThread;
+    private final Map<String, String> properties = new ConcurrentHashMap<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+
+    private volatile long commandDelayMillis = 0;
+    private volatile long readDelayMillis = 0;
+    private volatile int readChunkBytes = 4096;
+    private volatile boolean halfOpen = false;
+    private volatile boolean dataModeSupported = true;
+
+    private final AtomicLong connectionsAccepted = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong setCommands = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    // System.nanoTime() of the first bytes received and of the first set command (0 until then), for startup traces
+    private final AtomicLong firstByteNanos = new AtomicLong();
+    private final AtomicLong firstSetNanos = new AtomicLong();
+
+    public FakePropsServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        acceptThread = new Thread(this::acceptLoop, "FakePropsServer-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() { return server.getLocalPort(); }
+
+    // System.nanoTime() when the server started, /sim/time/elapsed-sec is counted from it
+    public long getStartNanos() { return startNanos; }
+
+    // property value, or null if it was never set
+    public String get(String path) { return properties.get(path); }
+
+    public void put(String path, String value) {
+        properties.put(path, value);
+        changed(path, value);
+    }
+
+    // true if a connection is subscribed to path now
+    public boolean isSubscribed(String path) {
+        for (Connection connection : connections)
+            if (connection.subscriptions.contains(path))
+                return true;
+        return false;
+    }
+
+    public boolean awaitSubscribed(String path, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isSubscribed(path)) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // push the new value to the subscribers of path
+    private void changed(String path, String value) {
+        byte[] update = (path + "=" + value + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        for (Connection connection : connections) {
+            if (!connection.subscriptions.contains(path))
+                continue;
+            try {
+                connection.write(update);
+            } catch (IOException e) {
+                // the connection is closed by its own thread
+            }
+        }
+    }
+
+    // float value of the property, or NaN if it was never set
+    public float getFloat(String path) {
+        String value = properties.get(path);
+        return value == null ? Float.NaN : Float.parseFloat(value);
+    }
+
+    // wait until the property has the given value, false on timeout
+    public boolean awaitValue(String path, String value, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!value.equals(properties.get(path))) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // wait until at least count connections were accepted, false on timeout
+    public boolean awaitConnections(long count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (connectionsAccepted.get() < count) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // fault injection:
+
+    // every command is processed only after this delay (server side latency)
+    public void setCommandDelayMillis(long millis) { this.commandDelayMillis = millis; }
+
+    // the server sleeps this long before every read of at most chunkBytes (slow reader, fills the client buffers)
+    public void setSlowReads(long delayMillis, int chunkBytes) {
+        this.readDelayMillis = delayMillis;
+        this.readChunkBytes = chunkBytes;
+    }
+
+    // when on, the server stops reading and answering all connections, but keeps them open
+    // (as a peer that disappeared without closing), when off they continue
+    public void setHalfOpen(boolean halfOpen) { this.halfOpen = halfOpen; }
+
+    // when off, "data" is an unknown command, so the server keeps answering every command with a prompt
+    // (as a server that never stops talking back, to test the client keeps reading)
+    public void setDataModeSupported(boolean supported) { this.dataModeSupported = supported; }
+
+    // close all connections with RST (as a crashed / restarted flight gear)
+    public void resetConnections() {
+        for (Connection connection : connections)
+            connection.reset();
+    }
+
+    // counters:
+
+    public long getConnectionsAccepted() { return connectionsAccepted.get(); }
+
+    public int getOpenConnections() { return connections.size(); }
+
+    public long getCommands() { return commands.get(); }
+
+    public long getSetCommands() { return setCommands.get(); }
+
+    public long getBytesReceived() { return bytesReceived.get(); }
+
+    public long getBytesSent() { return bytesSent.get(); }
+
+    public long getFirstByteNanos() { return firstByteNanos.get(); }
+
+    public long getFirstSetNanos() { return firstSetNanos.get(); }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Connection connection : connections)
+            connection.close();
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connectionsAccepted.incrementAndGet();
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                Thread thread = new Thread(connection, "FakePropsServer-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // server closed
+            }
+        }
+    }
+
+    // one client connection, read and answered by its own thread
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private boolean dataMode = false;
+        private final StringBuilder line = new StringBuilder();
+        final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+        private volatile OutputStream out;
+
+        Connection(Socket socket) { this.socket = socket; }
+
+        @Override
+        public void run() {
+            try {
+                InputStream in = socket.getInputStream();
+                out = socket.getOutputStream();
+                byte[] chunk = new byte[64 * 1024];
+                while (true) {
+                    while (halfOpen)
+                        Thread.sleep(5);
+                    if (readDelayMillis > 0)
+                        Thread.sleep(readDelayMillis);
+                    int n = in.read(chunk, 0, Math.min(chunk.length, readChunkBytes));
+                    if (n < 0)
+                        break;
+                    bytesReceived.addAndGet(n);
+                    firstByteNanos.compareAndSet(0, System.nanoTime());
+                    for (int i = 0; i < n; i++) {
+                        char c = (char) (chunk[i] & 0xff);
+                        if (c == '\n') {
+                            if (!handleLine(line.toString().trim()))
+                                return;
+                            line.setLength(0);
+                        } else if (c != '\r') {
+                            line.append(c);
+                        }
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // connection reset / closed
+            } finally {
+                close();
+            }
+        }
+
+        // returns false if the connection should be closed
+        private boolean handleLine(String command) throws IOException, InterruptedException {
+            if (command.isEmpty())
+                return true;
+            if (commandDelayMillis > 0)
+                Thread.sleep(commandDelayMillis);
+            commands.incrementAndGet();
+
+            String[] parts = command.split("\\s+", 3);
+            String reply = "";
+            switch (parts[0]) {
+                case "set":
+                    if (parts.length >= 3) {
+                        properties.put(parts[1], parts[2]);
+                        setCommands.incrementAndGet();
+                        firstSetNanos.compareAndSet(0, System.nanoTime());
+                        changed(parts[1], parts[2]);
+                    }
+                    break;
+                case "get":
+                    String value = parts.length >= 2 ? properties.get(parts[1]) : null;
+                    if (value == null && parts.length >= 2 && parts[1].equals(ELAPSED_SEC))
+                        value = String.format(Locale.US, "%.6f", (System.nanoTime() - startNanos) / 1e9);
+                    if (value == null)
+                        value = "";
+                    reply = dataMode ? value + "\r\n" : parts[1] + " = '" + value + "' (string)\r\n";
+                    break;
+                case "data":
+                    if (dataModeSupported)
+                        dataMode = true;
+                    else
+                        reply = "Unknown command: data\r\n";
+                    break;
+                case "subscribe":
+                    if (parts.length >= 2)
+                        subscriptions.add(parts[1]);
+                    break;
+                case "unsubscribe":
+                    if (parts.length >= 2)
+                        subscriptions.remove(parts[1]);
+                    break;
+                case "prompt":
+                    dataMode = false;
+                    break;
+                case "quit":
+                    return false;
+                default:
+                    reply = dataMode ? "" : "Unknown command: " + parts[0] + "\r\n";
+            }
+            byte[] bytes = reply.getBytes(StandardCharsets.US_ASCII);
+            if (bytes.length > 0)
+                write(bytes);
+            if (!dataMode)
+                write(PROMPT);
+            return true;
+        }
+
+        // (subscription updates are written by other threads too)
+        synchronized void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            bytesSent.addAndGet(bytes.length);
+        }
+
+        void reset() {
+            try {
+                // linger 0 makes close() send RST instead of FIN
+                socket.setSoLinger(true, 0);
+            } catch (SocketException e) {
+                // already closed
+            }
+            close();
+        }
+
+        void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.remotejoystick;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+// joystick input traces for tests and benchmarks.
+// each sample is {px, py, pa, pb} as JoystickView gives them (values between 0 to 1, seek bars in 0.01 steps)
+public class InputTraces {
+    public static final int SAMPLE_RATE_HZ = 60;
+
+    // deterministic trace of a normal flight: take-off throttle, turns and climbs with holds between them,
+    // a few rudder corrections, and digitizer jitter of the finger on the joystick all the time
+    public static float[][] normalFlight(int seconds) {
+        Random random = new Random(42);
+        int samples = seconds * SAMPLE_RATE_HZ;
+        float[][] trace = new float[samples][];
+        float px = 0.5f, py = 0.5f, pa = 0.5f, pb = 0;
+        float targetX = 0.5f, targetY = 0.5f, targetA = 0.5f, targetB = 0.8f;
+        for (int i = 0; i < samples; i++) {
+            // every 3 seconds a new maneuver: hold (half the time), or move the stick somewhere else
+            if (i % (3 * SAMPLE_RATE_HZ) == 0 && i > 0) {
+                boolean hold = random.nextBoolean();
+                targetX = hold ? px : 0.2f + 0.6f * random.nextFloat();
+                targetY = hold ? py : 0.3f + 0.4f * random.nextFloat();
+            }
+            // rudder corrections are rare, throttle is changed every ~20 seconds
+            if (i % (10 * SAMPLE_RATE_HZ) == 0 && i > 0)
+                targetA = random.nextBoolean() ? 0.5f : 0.4f + 0.2f * random.nextFloat();
+            if (i % (20 * SAMPLE_RATE_HZ) == 0 && i > 0)
+                targetB = 0.5f + 0.4f * random.nextFloat();
+
+            // smooth approach of the finger to the target, and of the seek bars (in steps of 0.01)
+            px += (targetX - px) * 0.05f;
+            py += (targetY - py) * 0.05f;
+            pa = approachInSteps(pa, targetA);
+            pb = approachInSteps(pb, targetB);
+
+            float jitterX = (float) random.nextGaussian() * 0.002f;
+            float jitterY = (float) random.nextGaussian() * 0.002f;
+            trace[i] = new float[]{px + jitterX, py + jitterY, pa, pb};
+        }
+        return trace;
+    }
+
+    // record the trace to file as InputRecorder records the view model (joystick values converted to controls,
+    // one sample per 1 / SAMPLE_RATE_HZ second), and open the recording
+    public static InputRecording record(File file, float[][] trace) throws IOException {
+        InputRecorder recorder = new InputRecorder(file);
+        long start = System.nanoTime();
+        for (int i = 0; i < trace.length; i++) {
+            float[] sample = trace[i];
+            recorder.record(start + i * 1000000000L / SAMPLE_RATE_HZ, (sample[0] - 0.5f) * 2, (sample[1] - 0.5f) * 2,
+                    (sample[2] - 0.5f) * 2, sample[3], InputRecorder.FLAG_JOYSTICK);
+        }
+        recorder.close();
+        return InputRecording.open(file);
+    }
+
+    private static float approachInSteps(float value, float target) {
+        if (Math.abs(target - value) < 0.01f)
+            return Math.round(value * 100) / 100f;
+        return Math.round((value + Math.signum(target - value) * 0.01f) * 100) / 100f;
+    }
+}
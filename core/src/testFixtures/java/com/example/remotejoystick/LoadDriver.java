@@ -0,0 +1,156 @@
+package com.example.remotejoystick;
+
+import java.util.concurrent.locks.LockSupport;
+
+// load driver: pushes a joystick trace through ViewModel.setValues_from_joystick() at a fixed rate,
+// into a FGModel that is connected to a FakePropsServer, and reports what got through.
+// a fault (e.g. server::resetConnections) can be injected in the middle of the run,
+// and the time until the model reported "Disconnected" is measured.
+// replay() pushes a recorded flight (InputRecording) instead, at its own timing (scaled) or as fast as possible.
+public class LoadDriver {
+    // results of one run
+    public static class Report {
+        public final long durationMillis;
+        public final long updatesPushed;
+        public final long framesSent;
+        public final long framesUnchanged;
+        // updates the per-event limiter didn't send, and states the conflating sender skipped for newer ones
+        public final long updatesDropped;
+        public final long statesCoalesced;
+        // "set" commands that got to the server, per second of the run
+        public final long serverSetCommands;
+        public final double commandsPerSecond;
+        // fault injection -> "Disconnected" error, -1 if there was no fault or it wasn't detected
+        public final long disconnectDetectionMillis;
+
+        Report(long durationMillis, long updatesPushed, long framesSent, long framesUnchanged, long updatesDropped,
+               long statesCoalesced, long serverSetCommands, long disconnectDetectionMillis) {
+            this.durationMillis = durationMillis;
+            this.updatesPushed = updatesPushed;
+            this.framesSent = framesSent;
+            this.framesUnchanged = framesUnchanged;
+            this.updatesDropped = updatesDropped;
+            this.statesCoalesced = statesCoalesced;
+            this.serverSetCommands = serverSetCommands;
+            this.commandsPerSecond = serverSetCommands * 1000.0 / durationMillis;
+            this.disconnectDetectionMillis = disconnectDetectionMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "pushed " + updatesPushed + " updates in " + durationMillis + " ms: " +
+                    framesSent + " frames sent, " + framesUnchanged + " unchanged, " +
+                    updatesDropped + " dropped, " + statesCoalesced + " coalesced, " +
+                    serverSetCommands + " set commands at the server (" + Math.round(commandsPerSecond) + "/s)" +
+                    (disconnectDetectionMillis >= 0 ? ", disconnect detected after " + disconnectDetectionMillis + " ms"
+                            : "");
+        }
+    }
+
+    private final FakePropsServer server;
+    private final FGModel model;
+    private final ViewModel viewModel;
+    private volatile long disconnectedNanos = 0;
+
+    public LoadDriver(FakePropsServer server, FGModel model) {
+        this.server = server;
+        this.model = model;
+        this.viewModel = new ViewModel(model);
+        this.viewModel.onError = (sender, args) -> {
+            if ("Disconnected".equals(args.description) && disconnectedNanos == 0)
+                disconnectedNanos = System.nanoTime();
+        };
+    }
+
+    public ViewModel getViewModel() { return viewModel; }
+
+    // connect the model to the server, and wait until it is connected. false on timeout
+    public boolean connect(long timeoutMillis) throws InterruptedException {
+        disconnectedNanos = 0;
+        model.connect("127.0.0.1", server.getPort());
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!model.isConnected()) {
+            if (System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    // push the trace (from its start, repeated as needed) at rateHz for durationMillis
+    public Report run(float[][] trace, int rateHz, long durationMillis) throws InterruptedException {
+        return run(trace, rateHz, durationMillis, null, 0);
+    }
+
+    // like run(), and fault.run() is called faultAtMillis after the start
+    public Report run(float[][] trace, int rateHz, long durationMillis, Runnable fault, long faultAtMillis)
+            throws InterruptedException {
+        long sentBefore = model.getFramesSent();
+        long unchangedBefore = model.getFramesUnchanged();
+        long droppedBefore = model.getUpdatesDropped();
+        long coalescedBefore = model.getStatesCoalesced();
+        long setsBefore = server.getSetCommands();
+
+        long periodNanos = 1000000000L / rateHz;
+        long start = System.nanoTime();
+        long end = start + durationMillis * 1000000L;
+        long faultTime = start + faultAtMillis * 1000000L;
+        long faultNanos = 0;
+        long pushed = 0;
+        long next = start;
+        while (next < end) {
+            if (fault != null && faultNanos == 0 && next >= faultTime) {
+                faultNanos = System.nanoTime();
+                fault.run();
+            }
+            float[] sample = trace[(int) (pushed % trace.length)];
+            viewModel.setValues_from_joystick(sample[0], sample[1], sample[2], sample[3], System.nanoTime());
+            pushed++;
+            next += periodNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0)
+                LockSupport.parkNanos(wait);
+        }
+        awaitServerIdle();
+
+        long detection = -1;
+        if (faultNanos != 0 && disconnectedNanos != 0)
+            detection = (disconnectedNanos - faultNanos) / 1000000;
+        return new Report(durationMillis, pushed,
+                model.getFramesSent() - sentBefore, model.getFramesUnchanged() - unchangedBefore,
+                model.getUpdatesDropped() - droppedBefore, model.getStatesCoalesced() - coalescedBefore,
+                server.getSetCommands() - setsBefore, detection);
+    }
+
+    // replay the recording into the model at speed (see InputReplay.setSpeed()), and report what got through
+    public Report replay(InputRecording recording, double speed) throws InterruptedException {
+        long sentBefore = model.getFramesSent();
+        long unchangedBefore = model.getFramesUnchanged();
+        long droppedBefore = model.getUpdatesDropped();
+        long coalescedBefore = model.getStatesCoalesced();
+        long setsBefore = server.getSetCommands();
+
+        InputReplay replay = new InputReplay(recording, model);
+        replay.setSpeed(speed);
+        int pushed = replay.run();
+        awaitServerIdle();
+
+        return new Report(Math.max(1, replay.getDurationNanos() / 1000000), pushed,
+                model.getFramesSent() - sentBefore, model.getFramesUnchanged() - unchangedBefore,
+                model.getUpdatesDropped() - droppedBefore, model.getStatesCoalesced() - coalescedBefore,
+                server.getSetCommands() - setsBefore, -1);
+    }
+
+    // wait (up to 2 seconds) until the server didn't get new commands for 100 ms
+    private void awaitServerIdle() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        long last = -1;
+        while (System.currentTimeMillis() < deadline) {
+            long now = server.getCommands();
+            if (now == last)
+                return;
+            last = now;
+            Thread.sleep(100);
+        }
+    }
+}
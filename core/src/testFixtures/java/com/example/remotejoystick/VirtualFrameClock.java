@@ -0,0 +1,40 @@
+package com.example.remotejoystick;
+
+// FrameClock of tests and benchmarks: ticks only when the test advances it, on the thread of the test,
+// so frame-clocked code runs deterministically and as fast as possible
+public class VirtualFrameClock implements FrameClock {
+    private final long periodNanos;
+    private long nowNanos = 0;
+    private long ticks = 0;
+    private Listener listener = null;
+
+    public VirtualFrameClock(int framesPerSecond) {
+        this.periodNanos = 1000000000L / framesPerSecond;
+    }
+
+    @Override
+    public void start(Listener listener) { this.listener = listener; }
+
+    @Override
+    public void stop() { this.listener = null; }
+
+    public boolean isRunning() { return listener != null; }
+
+    // one frame
+    public void tick() {
+        nowNanos += periodNanos;
+        ticks++;
+        if (listener != null)
+            listener.onFrame(nowNanos);
+    }
+
+    // the frames of the given time
+    public void advance(long nanos) {
+        for (long frames = nanos / periodNanos; frames > 0; frames--)
+            tick();
+    }
+
+    public long getTicks() { return ticks; }
+
+    public long getNowNanos() { return nowNanos; }
+}